@@ -1,7 +1,5 @@
 package com.expensemanager.app;
 
-import android.content.ContentValues;
-import android.database.sqlite.SQLiteDatabase;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ArrayAdapter;
@@ -10,20 +8,19 @@ import android.widget.EditText;
 import android.widget.Spinner;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
+import com.expensemanager.core.Money;
 
 public class AddBalanceSourceActivity extends AppCompatActivity {
 
     private EditText nameEditText, balanceEditText;
     private Spinner typeSpinner;
     private Button saveBtn, cancelBtn;
-    private DatabaseHelper dbHelper;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_add_balance_source);
 
-        dbHelper = new DatabaseHelper(this);
         initializeViews();
         setupSpinner();
         setupClickListeners();
@@ -75,27 +72,37 @@ public class AddBalanceSourceActivity extends AppCompatActivity {
             return;
         }
 
-        double balance;
+        Money balance;
         try {
-            balance = Double.parseDouble(balanceStr);
+            balance = Money.parse(balanceStr);
         } catch (NumberFormatException e) {
             Toast.makeText(this, "Por favor ingresa un saldo válido", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(DatabaseHelper.COLUMN_BS_NAME, name);
-        values.put(DatabaseHelper.COLUMN_BS_TYPE, type);
-        values.put(DatabaseHelper.COLUMN_BS_BALANCE, balance);
+        final String sourceName = name;
+        final String sourceType = type;
+        final Money sourceBalance = balance;
 
-        long result = db.insert(DatabaseHelper.TABLE_BALANCE_SOURCES, null, values);
-
-        if (result != -1) {
-            Toast.makeText(this, "Fuente de saldo agregada exitosamente", Toast.LENGTH_SHORT).show();
-            finish();
-        } else {
-            Toast.makeText(this, "Error al agregar la fuente de saldo", Toast.LENGTH_SHORT).show();
-        }
+        saveBtn.setEnabled(false);
+        DbExecutor.write(this, new DbExecutor.Work<Long>() {
+            @Override
+            public Long run(DatabaseHelper db) {
+                return db.getBalanceSourceDao().insert(sourceName, sourceType, sourceBalance);
+            }
+        }, new DbExecutor.Callback<Long>() {
+            @Override
+            public void onResult(Long result) {
+                if (result != -1) {
+                    Toast.makeText(AddBalanceSourceActivity.this, "Fuente de saldo agregada exitosamente",
+                            Toast.LENGTH_SHORT).show();
+                    finish();
+                } else {
+                    saveBtn.setEnabled(true);
+                    Toast.makeText(AddBalanceSourceActivity.this, "Error al agregar la fuente de saldo",
+                            Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
     }
-}
\ No newline at end of file
+}
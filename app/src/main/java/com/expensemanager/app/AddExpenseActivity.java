@@ -1,8 +1,7 @@
 package com.expensemanager.app;
 
 import android.app.DatePickerDialog;
-import android.content.ContentValues;
-import android.database.sqlite.SQLiteDatabase;
+import android.content.Context;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ArrayAdapter;
@@ -14,6 +13,7 @@ import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
+import com.expensemanager.core.Money;
 import java.util.Calendar;
 
 public class AddExpenseActivity extends AppCompatActivity {
@@ -23,7 +23,6 @@ public class AddExpenseActivity extends AppCompatActivity {
     private Spinner typeSpinner;
     private TextView reminderLabel, dueDateLabel, intervalLabel;
     private Button saveBtn, cancelBtn;
-    private DatabaseHelper dbHelper;
     private Calendar selectedDate;
 
     @Override
@@ -31,7 +30,6 @@ public class AddExpenseActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_add_expense);
 
-        dbHelper = new DatabaseHelper(this);
         selectedDate = Calendar.getInstance();
 
         initializeViews();
@@ -169,20 +167,14 @@ public class AddExpenseActivity extends AppCompatActivity {
             return;
         }
 
-        double amount;
+        Money amount;
         try {
-            amount = Double.parseDouble(amountStr);
+            amount = Money.parse(amountStr);
         } catch (NumberFormatException e) {
             Toast.makeText(this, "Por favor ingresa un monto válido", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(DatabaseHelper.COLUMN_RE_NAME, name);
-        values.put(DatabaseHelper.COLUMN_RE_AMOUNT, amount);
-        values.put(DatabaseHelper.COLUMN_RE_TYPE, type);
-
         if (type.equals("SUSCRIPCIÓN")) {
             String dueDateStr = dueDateEditText.getText().toString().trim();
             String reminderDaysStr = reminderDaysEditText.getText().toString().trim();
@@ -203,36 +195,67 @@ public class AddExpenseActivity extends AppCompatActivity {
                 intervalHours = 2;
             }
 
-            values.put(DatabaseHelper.COLUMN_RE_DUE_DATE, selectedDate.getTimeInMillis());
-            values.put(DatabaseHelper.COLUMN_RE_REMINDER_DAYS, reminderDays);
-            values.put(DatabaseHelper.COLUMN_RE_NOTIFICATION_INTERVAL_HOURS, intervalHours);
-            values.put(DatabaseHelper.COLUMN_RE_IS_ACTIVE, 1);
-
-            long result = db.insert(DatabaseHelper.TABLE_RECURRING_EXPENSES, null, values);
-
-            if (result != -1) {
-                NotificationScheduler.scheduleMultipleNotifications(this, (int)result, name, amount,
-                        selectedDate.getTimeInMillis(), reminderDays, "expense", intervalHours);
-
-                Toast.makeText(this, "Suscripción agregada con recordatorio", Toast.LENGTH_SHORT).show();
-                finish();
-            } else {
-                Toast.makeText(this, "Error al agregar la suscripción", Toast.LENGTH_SHORT).show();
-            }
+            final String expenseName = name;
+            final Money expenseAmount = amount;
+            final String expenseType = type;
+            final long dueDate = selectedDate.getTimeInMillis();
+            final int expenseReminderDays = reminderDays;
+            final int expenseIntervalHours = intervalHours;
+            final Context appContext = getApplicationContext();
+
+            saveBtn.setEnabled(false);
+            DbExecutor.write(this, new DbExecutor.Work<Long>() {
+                @Override
+                public Long run(DatabaseHelper db) {
+                    long id = db.getRecurringExpenseDao().insert(expenseName, expenseAmount, expenseType,
+                            dueDate, expenseReminderDays, expenseIntervalHours, true);
+                    if (id != -1) {
+                        // Escribe en la cola de recordatorios: va en el mismo hilo que el insert
+                        NotificationScheduler.scheduleMultipleNotifications(appContext, id, expenseName,
+                                expenseAmount, dueDate, expenseReminderDays, "expense", expenseIntervalHours);
+                    }
+                    return id;
+                }
+            }, new DbExecutor.Callback<Long>() {
+                @Override
+                public void onResult(Long result) {
+                    if (result != -1) {
+                        Toast.makeText(AddExpenseActivity.this, "Suscripción agregada con recordatorio",
+                                Toast.LENGTH_SHORT).show();
+                        finish();
+                    } else {
+                        saveBtn.setEnabled(true);
+                        Toast.makeText(AddExpenseActivity.this, "Error al agregar la suscripción",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         } else {
-            values.put(DatabaseHelper.COLUMN_RE_DUE_DATE, System.currentTimeMillis());
-            values.put(DatabaseHelper.COLUMN_RE_REMINDER_DAYS, 0);
-            values.put(DatabaseHelper.COLUMN_RE_NOTIFICATION_INTERVAL_HOURS, 2);
-            values.put(DatabaseHelper.COLUMN_RE_IS_ACTIVE, 0);
-
-            long result = db.insert(DatabaseHelper.TABLE_RECURRING_EXPENSES, null, values);
-
-            if (result != -1) {
-                Toast.makeText(this, "Gasto único agregado (sin recordatorio)", Toast.LENGTH_SHORT).show();
-                finish();
-            } else {
-                Toast.makeText(this, "Error al agregar el gasto", Toast.LENGTH_SHORT).show();
-            }
+            final String expenseName = name;
+            final Money expenseAmount = amount;
+            final String expenseType = type;
+
+            saveBtn.setEnabled(false);
+            DbExecutor.write(this, new DbExecutor.Work<Long>() {
+                @Override
+                public Long run(DatabaseHelper db) {
+                    return db.getRecurringExpenseDao().insert(expenseName, expenseAmount, expenseType,
+                            System.currentTimeMillis(), 0, 2, false);
+                }
+            }, new DbExecutor.Callback<Long>() {
+                @Override
+                public void onResult(Long result) {
+                    if (result != -1) {
+                        Toast.makeText(AddExpenseActivity.this, "Gasto único agregado (sin recordatorio)",
+                                Toast.LENGTH_SHORT).show();
+                        finish();
+                    } else {
+                        saveBtn.setEnabled(true);
+                        Toast.makeText(AddExpenseActivity.this, "Error al agregar el gasto",
+                                Toast.LENGTH_SHORT).show();
+                    }
+                }
+            });
         }
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,7 @@
 package com.expensemanager.app;
 
 import android.app.DatePickerDialog;
-import android.content.ContentValues;
-import android.database.sqlite.SQLiteDatabase;
+import android.content.Context;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
@@ -17,35 +16,38 @@ import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
-import java.text.NumberFormat;
+import com.expensemanager.core.Amortization;
+import com.expensemanager.core.Formatters;
+import com.expensemanager.core.InstallmentSchedule;
+import com.expensemanager.core.Money;
+import com.expensemanager.core.PaymentItem;
+import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Locale;
+import java.util.List;
 
 public class AddLoanActivity extends AppCompatActivity {
 
     private EditText loanNameEditText, capitalAmountEditText, totalAmountEditText,
             installmentsEditText, startDateEditText, startTimeEditText, customDaysEditText,
-            reminderDaysEditText, notificationIntervalEditText;
-    private Spinner paymentFrequencySpinner;
-    private LinearLayout customDaysLayout;
+            reminderDaysEditText, notificationIntervalEditText, annualRateEditText;
+    private Spinner paymentFrequencySpinner, amortizationMethodSpinner;
+    private LinearLayout customDaysLayout, totalAmountLayout, annualRateLayout;
     private TextView interestInfoTextView, installmentAmountTextView;
     private Button saveBtn, cancelBtn;
-    private DatabaseHelper dbHelper;
     private Calendar selectedDate;
-    private NumberFormat formatter;
     private String selectedFrequency = "MENSUAL";
+    private String selectedMethod = Amortization.FLAT;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_add_loan);
 
-        dbHelper = new DatabaseHelper(this);
         selectedDate = Calendar.getInstance();
-        formatter = NumberFormat.getCurrencyInstance(new Locale("es", "PE"));
 
         initializeViews();
         setupSpinner();
+        setupMethodSpinner();
         setupClickListeners();
         setupCalculationListeners();
     }
@@ -62,6 +64,10 @@ public class AddLoanActivity extends AppCompatActivity {
         paymentFrequencySpinner = findViewById(R.id.paymentFrequencySpinner);
         customDaysEditText = findViewById(R.id.customDaysEditText);
         customDaysLayout = findViewById(R.id.customDaysLayout);
+        amortizationMethodSpinner = findViewById(R.id.amortizationMethodSpinner);
+        totalAmountLayout = findViewById(R.id.totalAmountLayout);
+        annualRateLayout = findViewById(R.id.annualRateLayout);
+        annualRateEditText = findViewById(R.id.annualRateEditText);
         interestInfoTextView = findViewById(R.id.interestInfoTextView);
         installmentAmountTextView = findViewById(R.id.installmentAmountTextView);
         saveBtn = findViewById(R.id.saveBtn);
@@ -97,6 +103,35 @@ public class AddLoanActivity extends AppCompatActivity {
                     else if (position == 1) selectedFrequency = "QUINCENAL";
                     else selectedFrequency = "MENSUAL";
                 }
+                // La tasa del período depende de la frecuencia
+                calculateLoanAmounts();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+    }
+
+    private void setupMethodSpinner() {
+        String[] methods = {"Cuotas iguales (total a pagar)", "Francés (cuota fija, TEA)",
+                "Alemán (capital fijo, TEA)"};
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, methods);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        amortizationMethodSpinner.setAdapter(adapter);
+
+        amortizationMethodSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (position == 1) selectedMethod = Amortization.FRENCH;
+                else if (position == 2) selectedMethod = Amortization.GERMAN;
+                else selectedMethod = Amortization.FLAT;
+
+                // Cuotas iguales se registran con el total; francés y alemán con la TEA
+                boolean flat = selectedMethod.equals(Amortization.FLAT);
+                totalAmountLayout.setVisibility(flat ? View.VISIBLE : View.GONE);
+                annualRateLayout.setVisibility(flat ? View.GONE : View.VISIBLE);
+                calculateLoanAmounts();
             }
 
             @Override
@@ -121,9 +156,16 @@ public class AddLoanActivity extends AppCompatActivity {
         capitalAmountEditText.addTextChangedListener(calculationWatcher);
         totalAmountEditText.addTextChangedListener(calculationWatcher);
         installmentsEditText.addTextChangedListener(calculationWatcher);
+        annualRateEditText.addTextChangedListener(calculationWatcher);
+        customDaysEditText.addTextChangedListener(calculationWatcher);
     }
 
     private void calculateLoanAmounts() {
+        if (!selectedMethod.equals(Amortization.FLAT)) {
+            calculateAmortizedAmounts();
+            return;
+        }
+
         String capitalStr = capitalAmountEditText.getText().toString().trim();
         String totalStr = totalAmountEditText.getText().toString().trim();
         String installmentsStr = installmentsEditText.getText().toString().trim();
@@ -135,8 +177,8 @@ public class AddLoanActivity extends AppCompatActivity {
         }
 
         try {
-            double capital = Double.parseDouble(capitalStr);
-            double total = Double.parseDouble(totalStr);
+            Money capital = Money.parse(capitalStr);
+            Money total = Money.parse(totalStr);
             int installments = Integer.parseInt(installmentsStr);
 
             if (installments <= 0) {
@@ -145,20 +187,84 @@ public class AddLoanActivity extends AppCompatActivity {
                 return;
             }
 
-            if (total < capital) {
+            if (total.compareTo(capital) < 0) {
                 interestInfoTextView.setText("❌ El total debe ser mayor al capital");
                 installmentAmountTextView.setText("Cuota: --");
                 return;
             }
 
             // Calcular interés automáticamente
-            double interestAmount = total - capital;
-            double interestRate = ((total - capital) / capital) * 100;
-            double installmentAmount = total / installments;
+            Money interestAmount = total.minus(capital);
+            double interestRate = interestAmount.getCents() * 100.0 / capital.getCents();
+            Money installmentAmount = total.installment(installments);
+            Money lastInstallmentAmount = total.lastInstallment(installments);
 
             interestInfoTextView.setText(String.format("💰 Interés: %s (%.2f%%)",
-                    formatter.format(interestAmount), interestRate));
-            installmentAmountTextView.setText("📊 Cuota: " + formatter.format(installmentAmount));
+                    Formatters.money(interestAmount), interestRate));
+            if (lastInstallmentAmount.equals(installmentAmount)) {
+                installmentAmountTextView.setText("📊 Cuota: " + Formatters.money(installmentAmount));
+            } else {
+                installmentAmountTextView.setText("📊 Cuota: " + Formatters.money(installmentAmount) +
+                        " (última: " + Formatters.money(lastInstallmentAmount) + ")");
+            }
+        } catch (NumberFormatException e) {
+            interestInfoTextView.setText("Interés: --");
+            installmentAmountTextView.setText("Cuota: --");
+        }
+    }
+
+    /**
+     * Resumen de francés y alemán: recorre el cronograma sin guardarlo y se queda
+     * con la primera y la última cuota y el interés total.
+     */
+    private void calculateAmortizedAmounts() {
+        String capitalStr = capitalAmountEditText.getText().toString().trim();
+        String rateStr = annualRateEditText.getText().toString().trim();
+        String installmentsStr = installmentsEditText.getText().toString().trim();
+
+        if (capitalStr.isEmpty() || rateStr.isEmpty() || installmentsStr.isEmpty()) {
+            interestInfoTextView.setText("Interés: --");
+            installmentAmountTextView.setText("Cuota: --");
+            return;
+        }
+
+        try {
+            Money capital = Money.parse(capitalStr);
+            double annualRate = Double.parseDouble(rateStr);
+            int installments = Integer.parseInt(installmentsStr);
+
+            if (installments <= 0 || capital.isNegative() || annualRate < 0) {
+                interestInfoTextView.setText("Interés: --");
+                installmentAmountTextView.setText("Cuota: --");
+                return;
+            }
+
+            // [0] = primera cuota, [1] = última, [2] = interés total
+            final long[] summary = new long[3];
+            Amortization.generate(selectedMethod, capital.getCents(), annualRate, installments,
+                    selectedDate.getTimeInMillis(), getPaymentIntervalDays(), selectedDate.getTimeZone(),
+                    new Amortization.Sink() {
+                        @Override
+                        public void row(int number, long dueDate, long payment, long principal, long interest,
+                                        long balance) {
+                            if (number == 1) {
+                                summary[0] = payment;
+                            }
+                            summary[1] = payment;
+                            summary[2] += interest;
+                        }
+                    });
+            Money firstPayment = Money.ofCents(summary[0]);
+            Money lastPayment = Money.ofCents(summary[1]);
+
+            interestInfoTextView.setText(String.format("💰 Interés: %s (TEA %.2f%%)",
+                    Formatters.money(Money.ofCents(summary[2])), annualRate));
+            if (firstPayment.equals(lastPayment)) {
+                installmentAmountTextView.setText("📊 Cuota: " + Formatters.money(firstPayment));
+            } else {
+                installmentAmountTextView.setText("📊 Cuota: " + Formatters.money(firstPayment) +
+                        " (última: " + Formatters.money(lastPayment) + ")");
+            }
         } catch (NumberFormatException e) {
             interestInfoTextView.setText("Interés: --");
             installmentAmountTextView.setText("Cuota: --");
@@ -262,6 +368,7 @@ public class AddLoanActivity extends AppCompatActivity {
         String loanName = loanNameEditText.getText().toString().trim();
         String capitalStr = capitalAmountEditText.getText().toString().trim();
         String totalStr = totalAmountEditText.getText().toString().trim();
+        String rateStr = annualRateEditText.getText().toString().trim();
         String installmentsStr = installmentsEditText.getText().toString().trim();
         String startDateStr = startDateEditText.getText().toString().trim();
         String startTimeStr = startTimeEditText.getText().toString().trim();
@@ -277,11 +384,17 @@ public class AddLoanActivity extends AppCompatActivity {
             return;
         }
 
-        if (totalStr.isEmpty()) {
+        final boolean flat = selectedMethod.equals(Amortization.FLAT);
+        if (flat && totalStr.isEmpty()) {
             Toast.makeText(this, "Por favor ingresa el total a pagar", Toast.LENGTH_SHORT).show();
             return;
         }
 
+        if (!flat && rateStr.isEmpty()) {
+            Toast.makeText(this, "Por favor ingresa la tasa efectiva anual", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
         if (installmentsStr.isEmpty()) {
             Toast.makeText(this, "Por favor ingresa el número de cuotas", Toast.LENGTH_SHORT).show();
             return;
@@ -297,14 +410,19 @@ public class AddLoanActivity extends AppCompatActivity {
             return;
         }
 
-        double capital;
-        double totalAmount;
+        Money capital;
+        Money totalAmount = null;
+        double annualRate = 0;
         int installments;
         int reminderDays;
         int notificationIntervalHours;
         try {
-            capital = Double.parseDouble(capitalStr);
-            totalAmount = Double.parseDouble(totalStr);
+            capital = Money.parse(capitalStr);
+            if (flat) {
+                totalAmount = Money.parse(totalStr);
+            } else {
+                annualRate = Double.parseDouble(rateStr);
+            }
             installments = Integer.parseInt(installmentsStr);
             reminderDays = Integer.parseInt(reminderDaysStr);
             notificationIntervalHours = Integer.parseInt(notificationIntervalEditText.getText().toString().trim());
@@ -313,11 +431,21 @@ public class AddLoanActivity extends AppCompatActivity {
             return;
         }
 
-        if (totalAmount < capital) {
+        if (capital.isZero() || capital.isNegative()) {
+            Toast.makeText(this, "El monto prestado debe ser mayor a 0", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        if (flat && totalAmount.compareTo(capital) < 0) {
             Toast.makeText(this, "El total a pagar debe ser mayor o igual al capital", Toast.LENGTH_SHORT).show();
             return;
         }
 
+        if (!flat && annualRate < 0) {
+            Toast.makeText(this, "La tasa no puede ser negativa", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
         if (installments <= 0) {
             Toast.makeText(this, "El número de cuotas debe ser mayor a 0", Toast.LENGTH_SHORT).show();
             return;
@@ -331,73 +459,73 @@ public class AddLoanActivity extends AppCompatActivity {
             }
         }
 
-        // Calcular interés automáticamente
-        double interestRate = ((totalAmount - capital) / capital) * 100;
-        double installmentAmount = totalAmount / installments;
+        // Cuotas iguales: la tasa es el recargo sobre el capital (interés calculado del total)
+        double interestRate = flat
+                ? totalAmount.minus(capital).getCents() * 100.0 / capital.getCents()
+                : annualRate;
         int paymentIntervalDays = getPaymentIntervalDays();
 
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-
-        // Insertar préstamo
-        ContentValues loanValues = new ContentValues();
-        loanValues.put(DatabaseHelper.COLUMN_LOAN_NAME, loanName);
-        loanValues.put(DatabaseHelper.COLUMN_LOAN_CAPITAL, capital);
-        loanValues.put(DatabaseHelper.COLUMN_LOAN_INTEREST_RATE, interestRate);
-        loanValues.put(DatabaseHelper.COLUMN_LOAN_TOTAL_AMOUNT, totalAmount);
-        loanValues.put(DatabaseHelper.COLUMN_LOAN_INSTALLMENTS, installments);
-        loanValues.put(DatabaseHelper.COLUMN_LOAN_INSTALLMENT_AMOUNT, installmentAmount);
-        loanValues.put(DatabaseHelper.COLUMN_LOAN_START_DATE, selectedDate.getTimeInMillis());
-        loanValues.put(DatabaseHelper.COLUMN_LOAN_PAYMENT_FREQUENCY, selectedFrequency);
-        loanValues.put(DatabaseHelper.COLUMN_LOAN_PAYMENT_INTERVAL_DAYS, paymentIntervalDays);
-
-        long loanId = db.insert(DatabaseHelper.TABLE_LOANS, null, loanValues);
-
-        if (loanId != -1) {
-            // Crear cuotas individuales
-            Calendar installmentDate = (Calendar) selectedDate.clone();
-
-            for (int i = 1; i <= installments; i++) {
-                ContentValues installmentValues = new ContentValues();
-                installmentValues.put(DatabaseHelper.COLUMN_LI_LOAN_ID, loanId);
-                installmentValues.put(DatabaseHelper.COLUMN_LI_INSTALLMENT_NUMBER, i);
-                installmentValues.put(DatabaseHelper.COLUMN_LI_AMOUNT, installmentAmount);
-                installmentValues.put(DatabaseHelper.COLUMN_LI_DUE_DATE, installmentDate.getTimeInMillis());
-                installmentValues.put(DatabaseHelper.COLUMN_LI_IS_PAID, 0);
-                installmentValues.put(DatabaseHelper.COLUMN_LI_REMINDER_DAYS, reminderDays);
-                installmentValues.put(DatabaseHelper.COLUMN_LI_NOTIFICATION_INTERVAL_HOURS, notificationIntervalHours);
-
-                long installmentId = db.insert(DatabaseHelper.TABLE_LOAN_INSTALLMENTS, null, installmentValues);
-
-                // Programar notificaciones múltiples para cada cuota
-                if (installmentId != -1) {
-                    String notificationTitle = loanName + " - Cuota " + i + "/" + installments;
-                    NotificationScheduler.scheduleMultipleNotifications(this, (int)installmentId,
-                            notificationTitle, installmentAmount, installmentDate.getTimeInMillis(),
-                            reminderDays, "loan", notificationIntervalHours);
-
-                    // Mostrar información de cuándo llegará la primera notificación
-                    if (i == 1) {
-                        long firstNotificationTime = installmentDate.getTimeInMillis() - (reminderDays * 60 * 1000L);
-                        long minutesUntilFirst = (firstNotificationTime - System.currentTimeMillis()) / 60000;
-
-                        String message = String.format("✅ Primera notificación en %d minutos\n⏰ Vencimiento: %s",
-                                minutesUntilFirst,
-                                startDateStr + " " + startTimeStr);
-                        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+        // Fechas, montos y desglose de cada cuota
+        final InstallmentSchedule schedule = InstallmentSchedule.of(selectedMethod, capital, interestRate,
+                installments, selectedDate.getTimeInMillis(), paymentIntervalDays, selectedDate.getTimeZone());
+
+        final Loan loan = new Loan(0, loanName, capital, interestRate, schedule.total(), installments,
+                schedule.amounts[0], selectedDate.getTimeInMillis(), selectedFrequency, paymentIntervalDays,
+                selectedMethod);
+        final long[] installmentDueDates = schedule.dueDates;
+        final Money[] installmentAmounts = schedule.amounts;
+        final int loanReminderDays = reminderDays;
+        final int loanIntervalHours = notificationIntervalHours;
+        final String dueText = startDateStr + " " + startTimeStr;
+        final Context appContext = getApplicationContext();
+
+        saveBtn.setEnabled(false);
+        // Préstamo y cuotas en una sola transacción: o se guarda todo o nada
+        DbExecutor.write(this, new DbExecutor.Work<long[]>() {
+            @Override
+            public long[] run(DatabaseHelper db) {
+                long[] installmentIds = db.getLoanDao().insertWithInstallments(loan, schedule,
+                        loanReminderDays, loanIntervalHours);
+                if (installmentIds != null) {
+                    // Recordatorios de cada cuota, solo tras confirmar la transacción; todos en
+                    // otra transacción y una sola alarma al final
+                    int installments = installmentDueDates.length;
+                    List<PaymentItem> items = new ArrayList<>(installments);
+                    for (int i = 1; i <= installments; i++) {
+                        String notificationTitle = loan.name + " - Cuota " + i + "/" + installments;
+                        items.add(new PaymentItem(installmentIds[i - 1], "loan", notificationTitle,
+                                notificationTitle, installmentAmounts[i - 1], installmentDueDates[i - 1],
+                                loanReminderDays, loanIntervalHours));
                     }
+                    NotificationScheduler.enqueueReminders(appContext, items);
+                    NotificationScheduler.armNext(appContext);
                 }
-
-                // Avanzar según la frecuencia de pago
-                installmentDate.add(Calendar.DAY_OF_YEAR, paymentIntervalDays);
+                return installmentIds;
+            }
+        }, new DbExecutor.Callback<long[]>() {
+            @Override
+            public void onResult(long[] installmentIds) {
+                onLoanSaved(installmentIds, installmentDueDates, loanReminderDays, dueText);
             }
+        });
+    }
+
+    private void onLoanSaved(long[] installmentIds, long[] dueDates, int reminderDays, String dueText) {
+        if (installmentIds != null) {
+            if (dueDates.length > 0) {
+                // Mostrar información de cuándo llegará la primera notificación
+                long firstNotificationTime = dueDates[0] - (reminderDays * 60 * 1000L);
+                long minutesUntilFirst = (firstNotificationTime - System.currentTimeMillis()) / 60000;
 
-            String frequencyText = selectedFrequency.equals("PERSONALIZADO")
-                    ? "cada " + paymentIntervalDays + " días"
-                    : selectedFrequency.toLowerCase();
+                String message = String.format("✅ Primera notificación en %d minutos\n⏰ Vencimiento: %s",
+                        minutesUntilFirst, dueText);
+                Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+            }
 
             finish();
         } else {
+            saveBtn.setEnabled(true);
             Toast.makeText(this, "Error al agregar el préstamo", Toast.LENGTH_SHORT).show();
         }
     }
-}
\ No newline at end of file
+}
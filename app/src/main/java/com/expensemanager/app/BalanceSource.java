@@ -0,0 +1,21 @@
+package com.expensemanager.app;
+
+import com.expensemanager.core.Money;
+
+/**
+ * Fila de balance_sources.
+ */
+public class BalanceSource {
+
+    public final long id;
+    public final String name;
+    public final String type;
+    public final Money balance;
+
+    public BalanceSource(long id, String name, String type, Money balance) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.balance = balance;
+    }
+}
@@ -0,0 +1,73 @@
+package com.expensemanager.app;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.expensemanager.core.Money;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Acceso a balance_sources. Obtener con {@link DatabaseHelper#getBalanceSourceDao()}.
+ */
+public class BalanceSourceDao {
+
+    // Proyección y posiciones fijas: el mapper no busca columnas por nombre
+    private static final String COLUMNS =
+            DatabaseHelper.COLUMN_BS_ID + ", " +
+            DatabaseHelper.COLUMN_BS_NAME + ", " +
+            DatabaseHelper.COLUMN_BS_TYPE + ", " +
+            DatabaseHelper.COLUMN_BS_BALANCE;
+    private static final int COL_ID = 0;
+    private static final int COL_NAME = 1;
+    private static final int COL_TYPE = 2;
+    private static final int COL_BALANCE = 3;
+
+    private static final String SQL_ALL = "SELECT " + COLUMNS + " FROM " + DatabaseHelper.TABLE_BALANCE_SOURCES +
+            " ORDER BY " + DatabaseHelper.COLUMN_BS_ID;
+
+    private final SQLiteDatabase db;
+    private final SQLiteStatement insertStatement;
+
+    BalanceSourceDao(SQLiteDatabase db) {
+        this.db = db;
+        this.insertStatement = db.compileStatement(
+                "INSERT INTO " + DatabaseHelper.TABLE_BALANCE_SOURCES + " (" +
+                        DatabaseHelper.COLUMN_BS_NAME + ", " +
+                        DatabaseHelper.COLUMN_BS_TYPE + ", " +
+                        DatabaseHelper.COLUMN_BS_BALANCE + ") VALUES (?, ?, ?)");
+    }
+
+    /**
+     * @return id de la nueva fuente o -1 si falla
+     */
+    public long insert(String name, String type, Money balance) {
+        synchronized (insertStatement) {
+            insertStatement.bindString(1, name);
+            insertStatement.bindString(2, type);
+            insertStatement.bindLong(3, balance.getCents());
+            return insertStatement.executeInsert();
+        }
+    }
+
+    public List<BalanceSource> getAll() {
+        List<BalanceSource> sources = new ArrayList<>();
+        Cursor cursor = db.rawQuery(SQL_ALL, null);
+        try {
+            while (cursor.moveToNext()) {
+                sources.add(map(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return sources;
+    }
+
+    private static BalanceSource map(Cursor cursor) {
+        return new BalanceSource(
+                cursor.getLong(COL_ID),
+                cursor.getString(COL_NAME),
+                cursor.getString(COL_TYPE),
+                Money.ofCents(cursor.getLong(COL_BALANCE)));
+    }
+}
@@ -1,162 +1,254 @@
 package com.expensemanager.app;
 
+import android.app.AlarmManager;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
 import androidx.core.app.NotificationCompat;
-import java.text.NumberFormat;
-import java.util.Locale;
+import com.expensemanager.core.Formatters;
+import com.expensemanager.core.PaymentItem;
+import java.util.List;
 
+/**
+ * Al encender el equipo avisa de los pagos vencidos y vuelve a llenar la cola
+ * de recordatorios.
+ *
+ * El trabajo corre fuera del hilo principal (goAsync) y en tandas de
+ * {@link #PAGE_SIZE} pagos, con un presupuesto de tiempo por pasada. Tras cada
+ * tanda se guarda un punto de control (la clave del último pago); si la pasada
+ * se corta, por presupuesto o porque el sistema mata el proceso, una alarma de
+ * respaldo la retoma desde ahí.
+ */
 public class BootReceiver extends BroadcastReceiver {
 
+    private static final String TAG = "BootReceiver";
+
+    /** Retomar una reprogramación interrumpida desde el punto de control. */
+    static final String ACTION_RESUME_RESCHEDULE = "RESUME_RESCHEDULE";
+
+    private static final int PAGE_SIZE = 200;
+    // Margen bajo los ~10 s que el sistema da a un broadcast con goAsync
+    private static final long TIME_BUDGET_MILLIS = 8000;
+    // Alarma de respaldo: si la pasada no termina, se retoma pasado este tiempo
+    private static final long RESUME_DELAY_MILLIS = 30 * 1000L;
+    private static final int OVERDUE_LINES = 20;
+
+    private static final String PREFS_NAME = "boot_reschedule";
+    private static final String KEY_CHECKPOINT_DUE = "checkpoint_due";
+    private static final String KEY_CHECKPOINT_ID = "checkpoint_id";
+    private static final String KEY_CHECKPOINT_TYPE = "checkpoint_type";
+    private static final String KEY_PASS_STARTED_AT = "pass_started_at";
+    private static final String KEY_PASS_ITEMS = "pass_items";
+    private static final String KEY_PASS_BUSY_MILLIS = "pass_busy_millis";
+    private static final String KEY_PASS_SLICES = "pass_slices";
+    private static final String KEY_LAST_PASS_AT = "last_pass_at";
+    private static final String KEY_LAST_PASS_ITEMS = "last_pass_items";
+    private static final String KEY_LAST_PASS_BUSY_MILLIS = "last_pass_busy_millis";
+    private static final String KEY_LAST_PASS_WALL_MILLIS = "last_pass_wall_millis";
+    private static final String KEY_LAST_PASS_SLICES = "last_pass_slices";
+
     @Override
     public void onReceive(Context context, Intent intent) {
-        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction()) ||
-                "android.intent.action.QUICKBOOT_POWERON".equals(intent.getAction())) {
+        String action = intent.getAction();
+        final boolean boot = Intent.ACTION_BOOT_COMPLETED.equals(action) ||
+                "android.intent.action.QUICKBOOT_POWERON".equals(action);
+        if (!boot && !ACTION_RESUME_RESCHEDULE.equals(action)) {
+            return;
+        }
 
-            // Reprogramar todas las notificaciones activas
-            rescheduleAllNotifications(context);
+        final long receivedAt = SystemClock.elapsedRealtime();
+        final Context appContext = context.getApplicationContext();
+        DbExecutor.write(appContext, new DbExecutor.Work<Void>() {
+            @Override
+            public Void run(DatabaseHelper db) {
+                if (boot) {
+                    NotificationScheduler.onBootCompleted(appContext);
+                    startPass(appContext, db);
+                } else {
+                    Metrics.record(appContext, Metrics.WAKEUP_RESUME, 0);
+                }
+                continuePass(appContext, db, receivedAt);
+                Metrics.record(appContext, Metrics.RECEIVER_BOOT, SystemClock.elapsedRealtime() - receivedAt);
+                return null;
+            }
+        }, goAsync());
+    }
+
+    /**
+     * Avisa de los vencidos y deja el punto de control justo antes del primer
+     * pago por vencer: los vencidos no tienen recordatorios que reprogramar.
+     */
+    private void startPass(Context context, DatabaseHelper db) {
+        PendingPaymentDao pendingPayments = db.getPendingPaymentDao();
+        long currentTime = System.currentTimeMillis();
 
-            // Verificar pagos vencidos y notificar
-            checkOverduePayments(context);
+        int overdueCount = pendingPayments.countOverdue(currentTime);
+        if (overdueCount > 0) {
+            StringBuilder overdueList = new StringBuilder();
+            // Orden por vencimiento: la primera página son los vencidos más antiguos
+            for (PaymentItem item : pendingPayments.getPageAfter(null, Math.min(overdueCount, OVERDUE_LINES))) {
+                long daysOverdue = (currentTime - item.dueDate) / (24 * 60 * 60 * 1000);
+                overdueList.append(item.type.equals("loan") ? "\n💳 " : "\n📺 ").append(item.label)
+                        .append(" - ").append(Formatters.money(item.amount))
+                        .append(" - Vencida hace ").append(daysOverdue).append(" día").append(daysOverdue > 1 ? "s" : "");
+            }
+            if (overdueCount > OVERDUE_LINES) {
+                overdueList.append("\n… y ").append(overdueCount - OVERDUE_LINES).append(" más");
+            }
+            showOverdueNotification(context, overdueCount, overdueList.toString());
         }
+
+        // Clave (currentTime, MIN, expense): la siguiente es la primera que vence desde ahora
+        prefs(context).edit()
+                .putLong(KEY_CHECKPOINT_DUE, currentTime)
+                .putLong(KEY_CHECKPOINT_ID, Long.MIN_VALUE)
+                .putString(KEY_CHECKPOINT_TYPE, "expense")
+                .putLong(KEY_PASS_STARTED_AT, currentTime)
+                .putInt(KEY_PASS_ITEMS, 0)
+                .putLong(KEY_PASS_BUSY_MILLIS, 0)
+                .putInt(KEY_PASS_SLICES, 0)
+                .commit();
     }
 
-    private void rescheduleAllNotifications(Context context) {
-        DatabaseHelper dbHelper = new DatabaseHelper(context);
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        long currentTime = System.currentTimeMillis();
+    /**
+     * Reprograma tandas desde el punto de control hasta terminar o agotar el
+     * presupuesto de tiempo.
+     *
+     * @param receivedAt elapsedRealtime de onReceive: el presupuesto cuenta
+     *                   también la espera en la cola de escrituras y startPass,
+     *                   porque el límite de goAsync corre desde ahí
+     */
+    private void continuePass(Context context, DatabaseHelper db, long receivedAt) {
+        SharedPreferences prefs = prefs(context);
+        if (!prefs.contains(KEY_CHECKPOINT_DUE)) {
+            // Nada pendiente (la alarma de respaldo llegó después de terminar)
+            return;
+        }
 
-        // Reprogramar cuotas pendientes de préstamos
-        Cursor loansCursor = db.rawQuery(
-                "SELECT li." + DatabaseHelper.COLUMN_LI_ID + ", l." +
-                        DatabaseHelper.COLUMN_LOAN_NAME + ", li." +
-                        DatabaseHelper.COLUMN_LI_AMOUNT + ", li." +
-                        DatabaseHelper.COLUMN_LI_DUE_DATE + ", li." +
-                        DatabaseHelper.COLUMN_LI_INSTALLMENT_NUMBER + ", li." +
-                        DatabaseHelper.COLUMN_LI_REMINDER_DAYS + ", li." +
-                        DatabaseHelper.COLUMN_LI_NOTIFICATION_INTERVAL_HOURS + " FROM " +
-                        DatabaseHelper.TABLE_LOAN_INSTALLMENTS + " li JOIN " +
-                        DatabaseHelper.TABLE_LOANS + " l ON li." +
-                        DatabaseHelper.COLUMN_LI_LOAN_ID + " = l." +
-                        DatabaseHelper.COLUMN_LOAN_ID +
-                        " WHERE li." + DatabaseHelper.COLUMN_LI_IS_PAID + " = 0 " +
-                        " AND li." + DatabaseHelper.COLUMN_LI_DUE_DATE + " >= ?",
-                new String[]{String.valueOf(currentTime)});
-
-        while (loansCursor.moveToNext()) {
-            int id = loansCursor.getInt(0);
-            String name = loansCursor.getString(1);
-            double amount = loansCursor.getDouble(2);
-            long dueDate = loansCursor.getLong(3);
-            int installmentNumber = loansCursor.getInt(4);
-            int reminderDays = loansCursor.getInt(5);
-            int intervalHours = loansCursor.getInt(6);
-
-            String title = name + " - Cuota " + installmentNumber;
-            NotificationScheduler.scheduleMultipleNotifications(context, id, title, amount,
-                    dueDate, reminderDays, "loan", intervalHours);
+        long sliceStart = SystemClock.elapsedRealtime();
+        setResumeAlarm(context, true);
+
+        PendingPaymentDao pendingPayments = db.getPendingPaymentDao();
+        long checkpointDue = prefs.getLong(KEY_CHECKPOINT_DUE, 0);
+        long checkpointId = prefs.getLong(KEY_CHECKPOINT_ID, Long.MIN_VALUE);
+        String checkpointType = prefs.getString(KEY_CHECKPOINT_TYPE, "expense");
+        int items = prefs.getInt(KEY_PASS_ITEMS, 0);
+        boolean finished = false;
+
+        while (SystemClock.elapsedRealtime() - receivedAt < TIME_BUDGET_MILLIS) {
+            List<PaymentItem> page = pendingPayments.getPageAfter(checkpointDue, checkpointId, checkpointType,
+                    PAGE_SIZE);
+            // Una transacción por página, no una por pago
+            NotificationScheduler.enqueueReminders(context, page);
+            // Los más próximos van primero: si la pasada se corta, ya tienen alarma
+            NotificationScheduler.armNext(context);
+
+            if (!page.isEmpty()) {
+                PaymentItem last = page.get(page.size() - 1);
+                checkpointDue = last.dueDate;
+                checkpointId = last.id;
+                checkpointType = last.type;
+                items += page.size();
+                prefs.edit()
+                        .putLong(KEY_CHECKPOINT_DUE, checkpointDue)
+                        .putLong(KEY_CHECKPOINT_ID, checkpointId)
+                        .putString(KEY_CHECKPOINT_TYPE, checkpointType)
+                        .putInt(KEY_PASS_ITEMS, items)
+                        .commit();
+            }
+            if (page.size() < PAGE_SIZE) {
+                finished = true;
+                break;
+            }
         }
-        loansCursor.close();
-
-        // Reprogramar suscripciones activas
-        Cursor subscriptionsCursor = db.rawQuery(
-                "SELECT " + DatabaseHelper.COLUMN_RE_ID + ", " +
-                        DatabaseHelper.COLUMN_RE_NAME + ", " +
-                        DatabaseHelper.COLUMN_RE_AMOUNT + ", " +
-                        DatabaseHelper.COLUMN_RE_DUE_DATE + ", " +
-                        DatabaseHelper.COLUMN_RE_REMINDER_DAYS + ", " +
-                        DatabaseHelper.COLUMN_RE_NOTIFICATION_INTERVAL_HOURS + " FROM " +
-                        DatabaseHelper.TABLE_RECURRING_EXPENSES +
-                        " WHERE " + DatabaseHelper.COLUMN_RE_IS_ACTIVE + " = 1 " +
-                        " AND " + DatabaseHelper.COLUMN_RE_DUE_DATE + " >= ?",
-                new String[]{String.valueOf(currentTime)});
-
-        while (subscriptionsCursor.moveToNext()) {
-            int id = subscriptionsCursor.getInt(0);
-            String name = subscriptionsCursor.getString(1);
-            double amount = subscriptionsCursor.getDouble(2);
-            long dueDate = subscriptionsCursor.getLong(3);
-            int reminderDays = subscriptionsCursor.getInt(4);
-            int intervalHours = subscriptionsCursor.getInt(5);
-
-            NotificationScheduler.scheduleMultipleNotifications(context, id, name, amount,
-                    dueDate, reminderDays, "expense", intervalHours);
+
+        long busyMillis = prefs.getLong(KEY_PASS_BUSY_MILLIS, 0) + SystemClock.elapsedRealtime() - sliceStart;
+        int slices = prefs.getInt(KEY_PASS_SLICES, 0) + 1;
+
+        if (!finished) {
+            // La alarma de respaldo queda armada y retoma desde el punto de control
+            prefs.edit().putLong(KEY_PASS_BUSY_MILLIS, busyMillis).putInt(KEY_PASS_SLICES, slices).commit();
+            Log.w(TAG, "Presupuesto agotado tras " + items + " pagos; se retoma en "
+                    + RESUME_DELAY_MILLIS / 1000 + " s");
+            return;
         }
-        subscriptionsCursor.close();
-        db.close();
 
-        Log.d("BootReceiver", "Notificaciones reprogramadas al encender dispositivo");
+        // Una sola alarma para toda la cola, no una por pago; de paso se limpian
+        // los recordatorios de pagos que ya no están pendientes
+        NotificationScheduler.reconcile(context);
+        setResumeAlarm(context, false);
+
+        long wallMillis = System.currentTimeMillis() - prefs.getLong(KEY_PASS_STARTED_AT, 0);
+        prefs.edit()
+                .remove(KEY_CHECKPOINT_DUE)
+                .remove(KEY_CHECKPOINT_ID)
+                .remove(KEY_CHECKPOINT_TYPE)
+                .remove(KEY_PASS_STARTED_AT)
+                .remove(KEY_PASS_ITEMS)
+                .remove(KEY_PASS_BUSY_MILLIS)
+                .remove(KEY_PASS_SLICES)
+                .putLong(KEY_LAST_PASS_AT, System.currentTimeMillis())
+                .putInt(KEY_LAST_PASS_ITEMS, items)
+                .putLong(KEY_LAST_PASS_BUSY_MILLIS, busyMillis)
+                .putLong(KEY_LAST_PASS_WALL_MILLIS, wallMillis)
+                .putInt(KEY_LAST_PASS_SLICES, slices)
+                .commit();
+
+        Metrics.record(context, Metrics.BOOT_PASS_ITEMS, items);
+        Log.i(TAG, items + " pagos reprogramados en " + busyMillis + " ms (" + slices + " tanda"
+                + (slices > 1 ? "s" : "") + ", " + wallMillis + " ms desde el encendido)");
     }
 
-    private void checkOverduePayments(Context context) {
-        DatabaseHelper dbHelper = new DatabaseHelper(context);
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        long currentTime = System.currentTimeMillis();
-        NumberFormat formatter = NumberFormat.getCurrencyInstance(new Locale("es", "PE"));
-
-        int overdueCount = 0;
-        StringBuilder overdueList = new StringBuilder();
-
-        // Verificar cuotas de préstamos vencidas
-        Cursor loansCursor = db.rawQuery(
-                "SELECT l." + DatabaseHelper.COLUMN_LOAN_NAME + ", li." +
-                        DatabaseHelper.COLUMN_LI_AMOUNT + ", li." +
-                        DatabaseHelper.COLUMN_LI_DUE_DATE + ", li." +
-                        DatabaseHelper.COLUMN_LI_INSTALLMENT_NUMBER + " FROM " +
-                        DatabaseHelper.TABLE_LOAN_INSTALLMENTS + " li JOIN " +
-                        DatabaseHelper.TABLE_LOANS + " l ON li." +
-                        DatabaseHelper.COLUMN_LI_LOAN_ID + " = l." +
-                        DatabaseHelper.COLUMN_LOAN_ID +
-                        " WHERE li." + DatabaseHelper.COLUMN_LI_IS_PAID + " = 0 " +
-                        " AND li." + DatabaseHelper.COLUMN_LI_DUE_DATE + " < ?",
-                new String[]{String.valueOf(currentTime)});
-
-        while (loansCursor.moveToNext()) {
-            String name = loansCursor.getString(0);
-            double amount = loansCursor.getDouble(1);
-            long dueDate = loansCursor.getLong(2);
-            int installmentNumber = loansCursor.getInt(3);
-
-            long daysOverdue = (currentTime - dueDate) / (24 * 60 * 60 * 1000);
-            overdueCount++;
-            overdueList.append("\n💳 ").append(name).append(" (Cuota ").append(installmentNumber)
-                    .append(") - ").append(formatter.format(amount))
-                    .append(" - Vencida hace ").append(daysOverdue).append(" día").append(daysOverdue > 1 ? "s" : "");
+    /** Estado de la reprogramación para {@link DiagnosticsActivity}. Lee preferencias: fuera del hilo principal. */
+    static String describeLastPass(Context context) {
+        SharedPreferences prefs = prefs(context);
+        if (prefs.contains(KEY_CHECKPOINT_DUE)) {
+            return "en curso, " + prefs.getInt(KEY_PASS_ITEMS, 0) + " pagos hasta ahora";
         }
-        loansCursor.close();
-
-        // Verificar suscripciones vencidas
-        Cursor subscriptionsCursor = db.rawQuery(
-                "SELECT " + DatabaseHelper.COLUMN_RE_NAME + ", " +
-                        DatabaseHelper.COLUMN_RE_AMOUNT + ", " +
-                        DatabaseHelper.COLUMN_RE_DUE_DATE + " FROM " +
-                        DatabaseHelper.TABLE_RECURRING_EXPENSES +
-                        " WHERE " + DatabaseHelper.COLUMN_RE_IS_ACTIVE + " = 1 " +
-                        " AND " + DatabaseHelper.COLUMN_RE_DUE_DATE + " < ?",
-                new String[]{String.valueOf(currentTime)});
-
-        while (subscriptionsCursor.moveToNext()) {
-            String name = subscriptionsCursor.getString(0);
-            double amount = subscriptionsCursor.getDouble(1);
-            long dueDate = subscriptionsCursor.getLong(2);
-
-            long daysOverdue = (currentTime - dueDate) / (24 * 60 * 60 * 1000);
-            overdueCount++;
-            overdueList.append("\n📺 ").append(name).append(" - ").append(formatter.format(amount))
-                    .append(" - Vencida hace ").append(daysOverdue).append(" día").append(daysOverdue > 1 ? "s" : "");
+        if (!prefs.contains(KEY_LAST_PASS_AT)) {
+            return "sin datos";
         }
-        subscriptionsCursor.close();
-        db.close();
+        int slices = prefs.getInt(KEY_LAST_PASS_SLICES, 0);
+        return prefs.getInt(KEY_LAST_PASS_ITEMS, 0) + " pagos en "
+                + prefs.getLong(KEY_LAST_PASS_BUSY_MILLIS, 0) + " ms (" + slices + " tanda"
+                + (slices > 1 ? "s" : "") + ", " + prefs.getLong(KEY_LAST_PASS_WALL_MILLIS, 0)
+                + " ms desde el encendido)";
+    }
 
-        // Si hay pagos vencidos, mostrar notificación
-        if (overdueCount > 0) {
-            showOverdueNotification(context, overdueCount, overdueList.toString());
+    /** Arma o cancela la alarma que retoma la pasada si esta no llega a terminar. */
+    private static void setResumeAlarm(Context context, boolean armed) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            return;
         }
+
+        Intent intent = new Intent(context, BootReceiver.class);
+        intent.setAction(ACTION_RESUME_RESCHEDULE);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                0,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        if (armed) {
+            // No necesita exactitud: solo que la pasada termine en algún momento
+            alarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP,
+                    SystemClock.elapsedRealtime() + RESUME_DELAY_MILLIS, pendingIntent);
+            Metrics.record(context, Metrics.ALARM_SET, RESUME_DELAY_MILLIS);
+        } else {
+            alarmManager.cancel(pendingIntent);
+            Metrics.record(context, Metrics.ALARM_CANCEL, 0);
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
     }
 
     private void showOverdueNotification(Context context, int count, String details) {
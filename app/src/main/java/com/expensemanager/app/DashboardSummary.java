@@ -0,0 +1,19 @@
+package com.expensemanager.app;
+
+import com.expensemanager.core.Money;
+
+/**
+ * Fila única de dashboard_summary.
+ */
+public class DashboardSummary {
+
+    public final Money totalBalance;
+    public final Money activeRecurringTotal;
+    public final Money pendingInstallmentTotal;
+
+    public DashboardSummary(Money totalBalance, Money activeRecurringTotal, Money pendingInstallmentTotal) {
+        this.totalBalance = totalBalance;
+        this.activeRecurringTotal = activeRecurringTotal;
+        this.pendingInstallmentTotal = pendingInstallmentTotal;
+    }
+}
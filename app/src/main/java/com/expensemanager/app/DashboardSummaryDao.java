@@ -0,0 +1,50 @@
+package com.expensemanager.app;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.expensemanager.core.Money;
+
+/**
+ * Lectura de la fila única de dashboard_summary (la escriben los triggers).
+ */
+public class DashboardSummaryDao {
+
+    private static final String WHERE_ROW = " FROM " + DatabaseHelper.TABLE_DASHBOARD_SUMMARY +
+            " WHERE " + DatabaseHelper.COLUMN_DS_ID + " = " + DatabaseHelper.DASHBOARD_SUMMARY_ROW_ID;
+
+    private static final String SQL_SUMMARY = "SELECT " +
+            DatabaseHelper.COLUMN_DS_TOTAL_BALANCE + ", " +
+            DatabaseHelper.COLUMN_DS_ACTIVE_RECURRING_TOTAL + ", " +
+            DatabaseHelper.COLUMN_DS_PENDING_INSTALLMENT_TOTAL + WHERE_ROW;
+
+    private final SQLiteDatabase db;
+    private final SQLiteStatement totalBalanceStatement;
+
+    DashboardSummaryDao(SQLiteDatabase db) {
+        this.db = db;
+        this.totalBalanceStatement = db.compileStatement(
+                "SELECT " + DatabaseHelper.COLUMN_DS_TOTAL_BALANCE + WHERE_ROW);
+    }
+
+    public Money getTotalBalance() {
+        synchronized (totalBalanceStatement) {
+            return Money.ofCents(totalBalanceStatement.simpleQueryForLong());
+        }
+    }
+
+    public DashboardSummary get() {
+        Cursor cursor = db.rawQuery(SQL_SUMMARY, null);
+        try {
+            if (cursor.moveToFirst()) {
+                return new DashboardSummary(
+                        Money.ofCents(cursor.getLong(0)),
+                        Money.ofCents(cursor.getLong(1)),
+                        Money.ofCents(cursor.getLong(2)));
+            }
+            return new DashboardSummary(Money.ZERO, Money.ZERO, Money.ZERO);
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -6,8 +6,10 @@ import android.database.sqlite.SQLiteOpenHelper;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
 
-    private static final String DATABASE_NAME = "ExpenseManager.db";
-    private static final int DATABASE_VERSION = 4;
+    static final String DATABASE_NAME = "ExpenseManager.db";
+    static final int DATABASE_VERSION = 13;
+
+    // Los montos se guardan en céntimos (INTEGER), ver Money
 
     // Tabla de fuentes de saldo
     public static final String TABLE_BALANCE_SOURCES = "balance_sources";
@@ -39,6 +41,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_LOAN_START_DATE = "start_date";
     public static final String COLUMN_LOAN_PAYMENT_FREQUENCY = "payment_frequency";
     public static final String COLUMN_LOAN_PAYMENT_INTERVAL_DAYS = "payment_interval_days";
+    public static final String COLUMN_LOAN_AMORTIZATION_METHOD = "amortization_method"; // ver Amortization
 
     // Tabla de cuotas de préstamos
     public static final String TABLE_LOAN_INSTALLMENTS = "loan_installments";
@@ -51,6 +54,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_LI_PAID_DATE = "paid_date";
     public static final String COLUMN_LI_REMINDER_DAYS = "reminder_days";
     public static final String COLUMN_LI_NOTIFICATION_INTERVAL_HOURS = "notification_interval_hours"; // NUEVO
+    // Desglose de amount: capital + interés, y capital pendiente después de pagarla
+    public static final String COLUMN_LI_PRINCIPAL = "principal";
+    public static final String COLUMN_LI_INTEREST = "interest";
+    public static final String COLUMN_LI_BALANCE = "balance";
 
     // Tabla de gastos diversos
     public static final String TABLE_OTHER_EXPENSES = "other_expenses";
@@ -61,8 +68,183 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_OE_CATEGORY = "category";
     public static final String COLUMN_OE_SOURCE_ID = "source_id";
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    // Archivo: cuotas pagadas y gastos desactivados salen de las tablas activas
+    // con el mismo id. Mismas columnas que la tabla activa correspondiente.
+    public static final String TABLE_LOAN_INSTALLMENTS_ARCHIVE = "loan_installments_archive";
+    public static final String TABLE_RECURRING_EXPENSES_ARCHIVE = "recurring_expenses_archive";
+
+    // Vistas activas + archivo, para historial y reportes
+    public static final String VIEW_LOAN_INSTALLMENTS_HISTORY = "loan_installments_history";
+    public static final String VIEW_RECURRING_EXPENSES_HISTORY = "recurring_expenses_history";
+
+    // Índice de búsqueda FTS4 sobre nombres y categorías. docid = id * SEARCH_KIND_COUNT + tipo,
+    // así cada tabla origen tiene su propio rango de docids.
+    public static final String TABLE_SEARCH_INDEX = "search_index";
+    public static final String COLUMN_SI_NAME = "name";
+    public static final String COLUMN_SI_DETAIL = "detail";
+    public static final String COLUMN_SI_AMOUNT = "amount";
+    public static final String COLUMN_SI_DATE = "date";
+    public static final int SEARCH_KIND_RECURRING_EXPENSE = 0;
+    public static final int SEARCH_KIND_OTHER_EXPENSE = 1;
+    public static final int SEARCH_KIND_LOAN = 2;
+    public static final int SEARCH_KIND_BALANCE_SOURCE = 3;
+    public static final int SEARCH_KIND_COUNT = 4;
+
+    // Totales mensuales por categoría y fuente de saldo, mantenidos por triggers.
+    // month = 'YYYY-MM' en hora local; source_id = 0 cuando el gasto no tiene fuente.
+    public static final String TABLE_MONTHLY_ROLLUPS = "monthly_rollups";
+    public static final String COLUMN_MR_MONTH = "month";
+    public static final String COLUMN_MR_CATEGORY = "category";
+    public static final String COLUMN_MR_SOURCE_ID = "source_id";
+    public static final String COLUMN_MR_TOTAL = "total";
+    public static final String COLUMN_MR_ITEM_COUNT = "item_count";
+    public static final String ROLLUP_CATEGORY_LOAN = "PRÉSTAMO";
+    public static final String ROLLUP_CATEGORY_OTHER = "OTROS";
+
+    // Cola de recordatorios: una fila por aviso futuro. Solo el más próximo está
+    // armado en AlarmManager (ver NotificationScheduler). El id (AUTOINCREMENT,
+    // nunca se reutiliza) es también el id de la notificación que muestra.
+    public static final String TABLE_REMINDER_QUEUE = "reminder_queue";
+    public static final String COLUMN_RQ_ID = "id";
+    public static final String COLUMN_RQ_ITEM_TYPE = "item_type";
+    public static final String COLUMN_RQ_ITEM_ID = "item_id";
+    public static final String COLUMN_RQ_TITLE = "title";
+    public static final String COLUMN_RQ_AMOUNT = "amount";
+    public static final String COLUMN_RQ_DAYS_REMAINING = "days_remaining";
+    public static final String COLUMN_RQ_TRIGGER_AT = "trigger_at";
+
+    // Métricas de alarmas y entregas: buffer circular con las últimas
+    // MetricsDao.CAPACITY filas (ver DiagnosticsActivity)
+    public static final String TABLE_METRIC_EVENTS = "metric_events";
+    public static final String COLUMN_ME_ID = "id";
+    public static final String COLUMN_ME_KIND = "kind";
+    public static final String COLUMN_ME_AT = "at";
+    public static final String COLUMN_ME_VALUE = "value";
+
+    // Tabla resumen del dashboard (una sola fila, mantenida por triggers)
+    public static final String TABLE_DASHBOARD_SUMMARY = "dashboard_summary";
+    public static final String COLUMN_DS_ID = "id";
+    public static final String COLUMN_DS_TOTAL_BALANCE = "total_balance";
+    public static final String COLUMN_DS_ACTIVE_RECURRING_TOTAL = "active_recurring_total";
+    public static final String COLUMN_DS_PENDING_INSTALLMENT_TOTAL = "pending_installment_total";
+    public static final int DASHBOARD_SUMMARY_ROW_ID = 1;
+
+    // Índices de las consultas por fecha de vencimiento
+    public static final String INDEX_LI_PENDING_DUE = "idx_loan_installments_pending_due";
+    public static final String INDEX_LI_LOAN_ID = "idx_loan_installments_loan_id";
+    public static final String INDEX_RE_ACTIVE_DUE = "idx_recurring_expenses_active_due";
+    public static final String INDEX_LI_ARCHIVE_LOAN_ID = "idx_loan_installments_archive_loan_id";
+    public static final String INDEX_RQ_TRIGGER_AT = "idx_reminder_queue_trigger_at";
+    public static final String INDEX_RQ_ITEM = "idx_reminder_queue_item";
+
+    private static DatabaseHelper instance;
+
+    /**
+     * Instancia única para todo el proceso. Actividades y receivers comparten la
+     * misma conexión y nunca deben cerrarla.
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext(), DATABASE_NAME);
+        }
+        return instance;
+    }
+
+    /**
+     * Conexión propia sobre {@code name}, o en memoria si es null. Solo para
+     * tests; la app usa {@link #getInstance}.
+     */
+    DatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+        // WAL: las lecturas no bloquean a la escritura ni al revés
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    // DAOs compartidos: sus sentencias compiladas viven mientras la conexión siga abierta
+    private BalanceSourceDao balanceSourceDao;
+    private RecurringExpenseDao recurringExpenseDao;
+    private LoanDao loanDao;
+    private LoanInstallmentDao loanInstallmentDao;
+    private DashboardSummaryDao dashboardSummaryDao;
+    private SearchDao searchDao;
+    private MonthlyRollupDao monthlyRollupDao;
+    private PendingPaymentDao pendingPaymentDao;
+    private ReminderQueueDao reminderQueueDao;
+    private MetricsDao metricsDao;
+    private final PaymentStatusCache paymentStatusCache = new PaymentStatusCache();
+
+    public synchronized BalanceSourceDao getBalanceSourceDao() {
+        if (balanceSourceDao == null) {
+            balanceSourceDao = new BalanceSourceDao(getWritableDatabase());
+        }
+        return balanceSourceDao;
+    }
+
+    public synchronized RecurringExpenseDao getRecurringExpenseDao() {
+        if (recurringExpenseDao == null) {
+            recurringExpenseDao = new RecurringExpenseDao(getWritableDatabase(), paymentStatusCache);
+        }
+        return recurringExpenseDao;
+    }
+
+    public synchronized LoanDao getLoanDao() {
+        if (loanDao == null) {
+            loanDao = new LoanDao(getWritableDatabase(), getLoanInstallmentDao());
+        }
+        return loanDao;
+    }
+
+    public synchronized LoanInstallmentDao getLoanInstallmentDao() {
+        if (loanInstallmentDao == null) {
+            loanInstallmentDao = new LoanInstallmentDao(getWritableDatabase(), paymentStatusCache);
+        }
+        return loanInstallmentDao;
+    }
+
+    public synchronized DashboardSummaryDao getDashboardSummaryDao() {
+        if (dashboardSummaryDao == null) {
+            dashboardSummaryDao = new DashboardSummaryDao(getWritableDatabase());
+        }
+        return dashboardSummaryDao;
+    }
+
+    public synchronized SearchDao getSearchDao() {
+        if (searchDao == null) {
+            searchDao = new SearchDao(getWritableDatabase());
+        }
+        return searchDao;
+    }
+
+    public synchronized MonthlyRollupDao getMonthlyRollupDao() {
+        if (monthlyRollupDao == null) {
+            monthlyRollupDao = new MonthlyRollupDao(getWritableDatabase());
+        }
+        return monthlyRollupDao;
+    }
+
+    public synchronized PendingPaymentDao getPendingPaymentDao() {
+        if (pendingPaymentDao == null) {
+            pendingPaymentDao = new PendingPaymentDao(getWritableDatabase(), paymentStatusCache);
+        }
+        return pendingPaymentDao;
+    }
+
+    public PaymentStatusCache getPaymentStatusCache() {
+        return paymentStatusCache;
+    }
+
+    public synchronized ReminderQueueDao getReminderQueueDao() {
+        if (reminderQueueDao == null) {
+            reminderQueueDao = new ReminderQueueDao(getWritableDatabase());
+        }
+        return reminderQueueDao;
+    }
+
+    public synchronized MetricsDao getMetricsDao() {
+        if (metricsDao == null) {
+            metricsDao = new MetricsDao(getWritableDatabase());
+        }
+        return metricsDao;
     }
 
     @Override
@@ -72,7 +254,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + COLUMN_BS_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + COLUMN_BS_NAME + " TEXT NOT NULL,"
                 + COLUMN_BS_TYPE + " TEXT NOT NULL,"
-                + COLUMN_BS_BALANCE + " REAL DEFAULT 0"
+                + COLUMN_BS_BALANCE + " INTEGER DEFAULT 0"
                 + ")";
         db.execSQL(createBalanceSourcesTable);
 
@@ -80,7 +262,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String createRecurringExpensesTable = "CREATE TABLE " + TABLE_RECURRING_EXPENSES + "("
                 + COLUMN_RE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + COLUMN_RE_NAME + " TEXT NOT NULL,"
-                + COLUMN_RE_AMOUNT + " REAL NOT NULL,"
+                + COLUMN_RE_AMOUNT + " INTEGER NOT NULL,"
                 + COLUMN_RE_TYPE + " TEXT NOT NULL,"
                 + COLUMN_RE_DUE_DATE + " INTEGER NOT NULL,"
                 + COLUMN_RE_REMINDER_DAYS + " INTEGER DEFAULT 3,"
@@ -93,14 +275,15 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String createLoansTable = "CREATE TABLE " + TABLE_LOANS + "("
                 + COLUMN_LOAN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + COLUMN_LOAN_NAME + " TEXT NOT NULL,"
-                + COLUMN_LOAN_CAPITAL + " REAL NOT NULL,"
+                + COLUMN_LOAN_CAPITAL + " INTEGER NOT NULL,"
                 + COLUMN_LOAN_INTEREST_RATE + " REAL NOT NULL,"
-                + COLUMN_LOAN_TOTAL_AMOUNT + " REAL NOT NULL,"
+                + COLUMN_LOAN_TOTAL_AMOUNT + " INTEGER NOT NULL,"
                 + COLUMN_LOAN_INSTALLMENTS + " INTEGER NOT NULL,"
-                + COLUMN_LOAN_INSTALLMENT_AMOUNT + " REAL NOT NULL,"
+                + COLUMN_LOAN_INSTALLMENT_AMOUNT + " INTEGER NOT NULL,"
                 + COLUMN_LOAN_START_DATE + " INTEGER NOT NULL,"
                 + COLUMN_LOAN_PAYMENT_FREQUENCY + " TEXT DEFAULT 'MENSUAL',"
-                + COLUMN_LOAN_PAYMENT_INTERVAL_DAYS + " INTEGER DEFAULT 30"
+                + COLUMN_LOAN_PAYMENT_INTERVAL_DAYS + " INTEGER DEFAULT 30,"
+                + COLUMN_LOAN_AMORTIZATION_METHOD + " TEXT NOT NULL DEFAULT 'PLANO'"
                 + ")";
         db.execSQL(createLoansTable);
 
@@ -109,12 +292,15 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + COLUMN_LI_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + COLUMN_LI_LOAN_ID + " INTEGER NOT NULL,"
                 + COLUMN_LI_INSTALLMENT_NUMBER + " INTEGER NOT NULL,"
-                + COLUMN_LI_AMOUNT + " REAL NOT NULL,"
+                + COLUMN_LI_AMOUNT + " INTEGER NOT NULL,"
                 + COLUMN_LI_DUE_DATE + " INTEGER NOT NULL,"
                 + COLUMN_LI_IS_PAID + " INTEGER DEFAULT 0,"
                 + COLUMN_LI_PAID_DATE + " INTEGER DEFAULT 0,"
                 + COLUMN_LI_REMINDER_DAYS + " INTEGER DEFAULT 3,"
                 + COLUMN_LI_NOTIFICATION_INTERVAL_HOURS + " INTEGER DEFAULT 2,"
+                + COLUMN_LI_PRINCIPAL + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_LI_INTEREST + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_LI_BALANCE + " INTEGER NOT NULL DEFAULT 0,"
                 + "FOREIGN KEY(" + COLUMN_LI_LOAN_ID + ") REFERENCES " + TABLE_LOANS + "(" + COLUMN_LOAN_ID + ")"
                 + ")";
         db.execSQL(createLoanInstallmentsTable);
@@ -123,43 +309,339 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String createOtherExpensesTable = "CREATE TABLE " + TABLE_OTHER_EXPENSES + "("
                 + COLUMN_OE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + COLUMN_OE_NAME + " TEXT NOT NULL,"
-                + COLUMN_OE_AMOUNT + " REAL NOT NULL,"
+                + COLUMN_OE_AMOUNT + " INTEGER NOT NULL,"
                 + COLUMN_OE_DATE + " INTEGER NOT NULL,"
                 + COLUMN_OE_CATEGORY + " TEXT,"
                 + COLUMN_OE_SOURCE_ID + " INTEGER,"
                 + "FOREIGN KEY(" + COLUMN_OE_SOURCE_ID + ") REFERENCES " + TABLE_BALANCE_SOURCES + "(" + COLUMN_BS_ID + ")"
                 + ")";
         db.execSQL(createOtherExpensesTable);
+
+        createIndexes(db);
+        createDashboardSummary(db);
+        createArchive(db);
+        createSearchIndex(db);
+        createMonthlyRollups(db);
+        createReminderQueue(db);
+        createMetricEvents(db);
     }
 
-    @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        if (oldVersion < 2) {
-            try {
-                db.execSQL("ALTER TABLE " + TABLE_LOANS + " ADD COLUMN " + COLUMN_LOAN_CAPITAL + " REAL DEFAULT 0");
-                db.execSQL("ALTER TABLE " + TABLE_LOANS + " ADD COLUMN " + COLUMN_LOAN_INTEREST_RATE + " REAL DEFAULT 0");
-            } catch (Exception e) {
-                // Columnas ya existen
-            }
-        }
+    /**
+     * Índices para las consultas de pagos pendientes: todas filtran por estado
+     * (is_paid / is_active) y ordenan o acotan por due_date.
+     */
+    private void createIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_LI_PENDING_DUE + " ON "
+                + TABLE_LOAN_INSTALLMENTS + "(" + COLUMN_LI_IS_PAID + ", " + COLUMN_LI_DUE_DATE + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_LI_LOAN_ID + " ON "
+                + TABLE_LOAN_INSTALLMENTS + "(" + COLUMN_LI_LOAN_ID + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_RE_ACTIVE_DUE + " ON "
+                + TABLE_RECURRING_EXPENSES + "(" + COLUMN_RE_IS_ACTIVE + ", " + COLUMN_RE_DUE_DATE + ")");
+    }
 
-        if (oldVersion < 3) {
-            try {
-                db.execSQL("ALTER TABLE " + TABLE_LOANS + " ADD COLUMN " + COLUMN_LOAN_PAYMENT_FREQUENCY + " TEXT DEFAULT 'MENSUAL'");
-                db.execSQL("ALTER TABLE " + TABLE_LOANS + " ADD COLUMN " + COLUMN_LOAN_PAYMENT_INTERVAL_DAYS + " INTEGER DEFAULT 30");
-                db.execSQL("ALTER TABLE " + TABLE_LOAN_INSTALLMENTS + " ADD COLUMN " + COLUMN_LI_PAID_DATE + " INTEGER DEFAULT 0");
-            } catch (Exception e) {
-                // Columnas ya existen
-            }
-        }
+    /**
+     * Tablas de archivo y vistas de historial. Las consultas de recordatorios y
+     * del dashboard solo leen las tablas activas; lo ya pagado vive aquí.
+     */
+    private void createArchive(SQLiteDatabase db) {
+        String installmentColumns = COLUMN_LI_ID + ", " + COLUMN_LI_LOAN_ID + ", "
+                + COLUMN_LI_INSTALLMENT_NUMBER + ", " + COLUMN_LI_AMOUNT + ", " + COLUMN_LI_DUE_DATE + ", "
+                + COLUMN_LI_IS_PAID + ", " + COLUMN_LI_PAID_DATE + ", " + COLUMN_LI_REMINDER_DAYS + ", "
+                + COLUMN_LI_NOTIFICATION_INTERVAL_HOURS + ", " + COLUMN_LI_PRINCIPAL + ", " + COLUMN_LI_INTEREST + ", "
+                + COLUMN_LI_BALANCE;
+        String expenseColumns = COLUMN_RE_ID + ", " + COLUMN_RE_NAME + ", " + COLUMN_RE_AMOUNT + ", "
+                + COLUMN_RE_TYPE + ", " + COLUMN_RE_DUE_DATE + ", " + COLUMN_RE_REMINDER_DAYS + ", "
+                + COLUMN_RE_NOTIFICATION_INTERVAL_HOURS + ", " + COLUMN_RE_IS_ACTIVE;
+
+        db.execSQL("CREATE TABLE " + TABLE_LOAN_INSTALLMENTS_ARCHIVE + "("
+                + COLUMN_LI_ID + " INTEGER PRIMARY KEY,"
+                + COLUMN_LI_LOAN_ID + " INTEGER NOT NULL,"
+                + COLUMN_LI_INSTALLMENT_NUMBER + " INTEGER NOT NULL,"
+                + COLUMN_LI_AMOUNT + " INTEGER NOT NULL,"
+                + COLUMN_LI_DUE_DATE + " INTEGER NOT NULL,"
+                + COLUMN_LI_IS_PAID + " INTEGER DEFAULT 0,"
+                + COLUMN_LI_PAID_DATE + " INTEGER DEFAULT 0,"
+                + COLUMN_LI_REMINDER_DAYS + " INTEGER DEFAULT 3,"
+                + COLUMN_LI_NOTIFICATION_INTERVAL_HOURS + " INTEGER DEFAULT 2,"
+                + COLUMN_LI_PRINCIPAL + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_LI_INTEREST + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_LI_BALANCE + " INTEGER NOT NULL DEFAULT 0"
+                + ")");
+        db.execSQL("CREATE INDEX " + INDEX_LI_ARCHIVE_LOAN_ID + " ON "
+                + TABLE_LOAN_INSTALLMENTS_ARCHIVE + "(" + COLUMN_LI_LOAN_ID + ")");
+
+        db.execSQL("CREATE TABLE " + TABLE_RECURRING_EXPENSES_ARCHIVE + "("
+                + COLUMN_RE_ID + " INTEGER PRIMARY KEY,"
+                + COLUMN_RE_NAME + " TEXT NOT NULL,"
+                + COLUMN_RE_AMOUNT + " INTEGER NOT NULL,"
+                + COLUMN_RE_TYPE + " TEXT NOT NULL,"
+                + COLUMN_RE_DUE_DATE + " INTEGER NOT NULL,"
+                + COLUMN_RE_REMINDER_DAYS + " INTEGER DEFAULT 3,"
+                + COLUMN_RE_NOTIFICATION_INTERVAL_HOURS + " INTEGER DEFAULT 2,"
+                + COLUMN_RE_IS_ACTIVE + " INTEGER DEFAULT 1"
+                + ")");
+
+        db.execSQL("CREATE VIEW " + VIEW_LOAN_INSTALLMENTS_HISTORY + " AS"
+                + " SELECT " + installmentColumns + " FROM " + TABLE_LOAN_INSTALLMENTS
+                + " UNION ALL SELECT " + installmentColumns + " FROM " + TABLE_LOAN_INSTALLMENTS_ARCHIVE);
+        db.execSQL("CREATE VIEW " + VIEW_RECURRING_EXPENSES_HISTORY + " AS"
+                + " SELECT " + expenseColumns + " FROM " + TABLE_RECURRING_EXPENSES
+                + " UNION ALL SELECT " + expenseColumns + " FROM " + TABLE_RECURRING_EXPENSES_ARCHIVE);
+    }
+
+    /**
+     * Índice FTS4 de búsqueda y los triggers que lo sincronizan con las tablas
+     * origen. unicode61 quita tildes al indexar y al buscar ("suscripcion"
+     * encuentra "Suscripción"); el índice de prefijos acelera "sus*".
+     * Monto y fecha se guardan sin indexar para mostrar resultados sin joins.
+     */
+    private void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_SEARCH_INDEX + " USING fts4("
+                + COLUMN_SI_NAME + ", " + COLUMN_SI_DETAIL + ", " + COLUMN_SI_AMOUNT + ", " + COLUMN_SI_DATE + ", "
+                + "notindexed=" + COLUMN_SI_AMOUNT + ", notindexed=" + COLUMN_SI_DATE + ", "
+                + "prefix=\"2,3\", tokenize=unicode61)");
+
+        // Un gasto archivado sigue siendo buscable: al moverlo al archivo se
+        // borra de la tabla activa, pero su entrada se conserva
+        createSearchTriggers(db, TABLE_RECURRING_EXPENSES, SEARCH_KIND_RECURRING_EXPENSE,
+                COLUMN_RE_NAME, COLUMN_RE_TYPE, COLUMN_RE_AMOUNT, COLUMN_RE_DUE_DATE,
+                "NOT EXISTS (SELECT 1 FROM " + TABLE_RECURRING_EXPENSES_ARCHIVE
+                        + " WHERE " + COLUMN_RE_ID + " = OLD." + COLUMN_RE_ID + ")");
+        createSearchDeleteTrigger(db, TABLE_RECURRING_EXPENSES_ARCHIVE, SEARCH_KIND_RECURRING_EXPENSE, null);
+        createSearchTriggers(db, TABLE_OTHER_EXPENSES, SEARCH_KIND_OTHER_EXPENSE,
+                COLUMN_OE_NAME, COLUMN_OE_CATEGORY, COLUMN_OE_AMOUNT, COLUMN_OE_DATE, null);
+        createSearchTriggers(db, TABLE_LOANS, SEARCH_KIND_LOAN,
+                COLUMN_LOAN_NAME, COLUMN_LOAN_PAYMENT_FREQUENCY, COLUMN_LOAN_TOTAL_AMOUNT, COLUMN_LOAN_START_DATE, null);
+        createSearchTriggers(db, TABLE_BALANCE_SOURCES, SEARCH_KIND_BALANCE_SOURCE,
+                COLUMN_BS_NAME, COLUMN_BS_TYPE, COLUMN_BS_BALANCE, null, null);
+    }
+
+    /**
+     * Triggers de INSERT/UPDATE/DELETE de {@code table} hacia el índice de
+     * búsqueda. {@code dateColumn} puede ser null (se guarda 0) y
+     * {@code deleteCondition}, si no es null, restringe el borrado.
+     */
+    private void createSearchTriggers(SQLiteDatabase db, String table, int kind, String nameColumn,
+                                      String detailColumn, String amountColumn, String dateColumn,
+                                      String deleteCondition) {
+        String date = dateColumn != null ? "NEW." + dateColumn : "0";
+        String updatedColumns = nameColumn + ", " + detailColumn + ", " + amountColumn
+                + (dateColumn != null ? ", " + dateColumn : "");
+
+        db.execSQL("CREATE TRIGGER trg_" + table + "_search_insert AFTER INSERT ON " + table + " BEGIN "
+                + "INSERT INTO " + TABLE_SEARCH_INDEX + " (docid, " + COLUMN_SI_NAME + ", " + COLUMN_SI_DETAIL + ", "
+                + COLUMN_SI_AMOUNT + ", " + COLUMN_SI_DATE + ") VALUES (" + searchDocId("NEW", kind) + ", "
+                + "NEW." + nameColumn + ", IFNULL(NEW." + detailColumn + ", ''), NEW." + amountColumn + ", " + date
+                + "); END");
+        db.execSQL("CREATE TRIGGER trg_" + table + "_search_update AFTER UPDATE OF " + updatedColumns
+                + " ON " + table + " BEGIN "
+                + "UPDATE " + TABLE_SEARCH_INDEX + " SET " + COLUMN_SI_NAME + " = NEW." + nameColumn + ", "
+                + COLUMN_SI_DETAIL + " = IFNULL(NEW." + detailColumn + ", ''), "
+                + COLUMN_SI_AMOUNT + " = NEW." + amountColumn + ", " + COLUMN_SI_DATE + " = " + date
+                + " WHERE docid = " + searchDocId("NEW", kind) + "; END");
+        createSearchDeleteTrigger(db, table, kind, deleteCondition);
+    }
+
+    private void createSearchDeleteTrigger(SQLiteDatabase db, String table, int kind, String condition) {
+        db.execSQL("CREATE TRIGGER trg_" + table + "_search_delete AFTER DELETE ON " + table
+                + (condition != null ? " WHEN " + condition : "") + " BEGIN "
+                + "DELETE FROM " + TABLE_SEARCH_INDEX + " WHERE docid = " + searchDocId("OLD", kind) + "; END");
+    }
+
+    private static String searchDocId(String row, int kind) {
+        return row + ".id * " + SEARCH_KIND_COUNT + " + " + kind;
+    }
+
+    /**
+     * Tabla de totales mensuales y sus triggers. Gastos recurrentes y cuotas se
+     * cuentan sobre activas + archivo: moverlas al archivo no cambia los totales.
+     * SQLite de minSdk 24 no tiene UPSERT, así que cada suma es un INSERT OR
+     * IGNORE de la fila en cero seguido de un UPDATE.
+     */
+    private void createMonthlyRollups(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_MONTHLY_ROLLUPS + "("
+                + COLUMN_MR_MONTH + " TEXT NOT NULL,"
+                + COLUMN_MR_CATEGORY + " TEXT NOT NULL,"
+                + COLUMN_MR_SOURCE_ID + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_MR_TOTAL + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_MR_ITEM_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+                + "PRIMARY KEY (" + COLUMN_MR_MONTH + ", " + COLUMN_MR_CATEGORY + ", " + COLUMN_MR_SOURCE_ID + ")"
+                + ") WITHOUT ROWID");
 
-        if (oldVersion < 4) {
-            try {
-                db.execSQL("ALTER TABLE " + TABLE_RECURRING_EXPENSES + " ADD COLUMN " + COLUMN_RE_NOTIFICATION_INTERVAL_HOURS + " INTEGER DEFAULT 2");
-                db.execSQL("ALTER TABLE " + TABLE_LOAN_INSTALLMENTS + " ADD COLUMN " + COLUMN_LI_NOTIFICATION_INTERVAL_HOURS + " INTEGER DEFAULT 2");
-            } catch (Exception e) {
-                // Columnas ya existen
-            }
+        String notArchivedExpense = "NOT EXISTS (SELECT 1 FROM " + TABLE_RECURRING_EXPENSES_ARCHIVE
+                + " WHERE " + COLUMN_RE_ID + " = OLD." + COLUMN_RE_ID + ")";
+        String notArchivedInstallment = "NOT EXISTS (SELECT 1 FROM " + TABLE_LOAN_INSTALLMENTS_ARCHIVE
+                + " WHERE " + COLUMN_LI_ID + " = OLD." + COLUMN_LI_ID + ")";
+
+        createRollupTriggers(db, TABLE_RECURRING_EXPENSES, COLUMN_RE_DUE_DATE, "ROW." + COLUMN_RE_TYPE, "0",
+                COLUMN_RE_AMOUNT, COLUMN_RE_TYPE, notArchivedExpense);
+        createRollupDeleteTrigger(db, TABLE_RECURRING_EXPENSES_ARCHIVE, COLUMN_RE_DUE_DATE,
+                "ROW." + COLUMN_RE_TYPE, "0", COLUMN_RE_AMOUNT, null);
+        createRollupTriggers(db, TABLE_LOAN_INSTALLMENTS, COLUMN_LI_DUE_DATE, "'" + ROLLUP_CATEGORY_LOAN + "'", "0",
+                COLUMN_LI_AMOUNT, null, notArchivedInstallment);
+        createRollupDeleteTrigger(db, TABLE_LOAN_INSTALLMENTS_ARCHIVE, COLUMN_LI_DUE_DATE,
+                "'" + ROLLUP_CATEGORY_LOAN + "'", "0", COLUMN_LI_AMOUNT, null);
+        createRollupTriggers(db, TABLE_OTHER_EXPENSES, COLUMN_OE_DATE,
+                "IFNULL(ROW." + COLUMN_OE_CATEGORY + ", '" + ROLLUP_CATEGORY_OTHER + "')",
+                "IFNULL(ROW." + COLUMN_OE_SOURCE_ID + ", 0)", COLUMN_OE_AMOUNT,
+                COLUMN_OE_CATEGORY + ", " + COLUMN_OE_SOURCE_ID, null);
+    }
+
+    /**
+     * Recordatorios pendientes de entregar. El índice por trigger_at da el próximo
+     * a armar y los ya vencidos; el de (item_type, item_id) sirve para
+     * reemplazarlos o cancelarlos por pago.
+     */
+    private void createReminderQueue(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_REMINDER_QUEUE + "("
+                + COLUMN_RQ_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COLUMN_RQ_ITEM_TYPE + " TEXT NOT NULL,"
+                + COLUMN_RQ_ITEM_ID + " INTEGER NOT NULL,"
+                + COLUMN_RQ_TITLE + " TEXT NOT NULL,"
+                + COLUMN_RQ_AMOUNT + " INTEGER NOT NULL,"
+                + COLUMN_RQ_DAYS_REMAINING + " INTEGER NOT NULL,"
+                + COLUMN_RQ_TRIGGER_AT + " INTEGER NOT NULL"
+                + ")");
+        db.execSQL("CREATE INDEX " + INDEX_RQ_TRIGGER_AT + " ON "
+                + TABLE_REMINDER_QUEUE + "(" + COLUMN_RQ_TRIGGER_AT + ")");
+        db.execSQL("CREATE INDEX " + INDEX_RQ_ITEM + " ON "
+                + TABLE_REMINDER_QUEUE + "(" + COLUMN_RQ_ITEM_TYPE + ", " + COLUMN_RQ_ITEM_ID + ")");
+    }
+
+    /**
+     * Eventos de métricas. Sin índices aparte: se recortan por id y se leen
+     * enteros (son pocas filas).
+     */
+    private void createMetricEvents(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_METRIC_EVENTS + "("
+                + COLUMN_ME_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COLUMN_ME_KIND + " TEXT NOT NULL,"
+                + COLUMN_ME_AT + " INTEGER NOT NULL,"
+                + COLUMN_ME_VALUE + " INTEGER NOT NULL DEFAULT 0"
+                + ")");
+    }
+
+    /**
+     * Triggers de INSERT/UPDATE/DELETE de {@code table} hacia monthly_rollups.
+     * En {@code category} y {@code sourceId}, "ROW" se reemplaza por NEW u OLD.
+     * {@code extraUpdateColumns} son las columnas de la clave además de fecha y
+     * monto (puede ser null).
+     */
+    private void createRollupTriggers(SQLiteDatabase db, String table, String dateColumn, String category,
+                                      String sourceId, String amountColumn, String extraUpdateColumns,
+                                      String deleteCondition) {
+        db.execSQL("CREATE TRIGGER trg_" + table + "_rollup_insert AFTER INSERT ON " + table + " BEGIN "
+                + rollupChange("NEW", dateColumn, category, sourceId, amountColumn, "+") + " END");
+        db.execSQL("CREATE TRIGGER trg_" + table + "_rollup_update AFTER UPDATE OF "
+                + dateColumn + ", " + amountColumn + (extraUpdateColumns != null ? ", " + extraUpdateColumns : "")
+                + " ON " + table + " BEGIN "
+                + rollupChange("OLD", dateColumn, category, sourceId, amountColumn, "-")
+                + rollupChange("NEW", dateColumn, category, sourceId, amountColumn, "+") + " END");
+        createRollupDeleteTrigger(db, table, dateColumn, category, sourceId, amountColumn, deleteCondition);
+    }
+
+    private void createRollupDeleteTrigger(SQLiteDatabase db, String table, String dateColumn, String category,
+                                           String sourceId, String amountColumn, String condition) {
+        db.execSQL("CREATE TRIGGER trg_" + table + "_rollup_delete AFTER DELETE ON " + table
+                + (condition != null ? " WHEN " + condition : "") + " BEGIN "
+                + rollupChange("OLD", dateColumn, category, sourceId, amountColumn, "-") + " END");
+    }
+
+    /**
+     * Sentencias que suman ({@code sign} "+") o restan ("-") la fila {@code row}
+     * en su mes. Al restar se borra la fila del mes si queda sin elementos.
+     */
+    private static String rollupChange(String row, String dateColumn, String category, String sourceId,
+                                       String amountColumn, String sign) {
+        String month = rollupMonth(row + "." + dateColumn);
+        String key = " WHERE " + COLUMN_MR_MONTH + " = " + month
+                + " AND " + COLUMN_MR_CATEGORY + " = " + category.replace("ROW", row)
+                + " AND " + COLUMN_MR_SOURCE_ID + " = " + sourceId.replace("ROW", row);
+        String update = "UPDATE " + TABLE_MONTHLY_ROLLUPS + " SET "
+                + COLUMN_MR_TOTAL + " = " + COLUMN_MR_TOTAL + " " + sign + " " + row + "." + amountColumn + ", "
+                + COLUMN_MR_ITEM_COUNT + " = " + COLUMN_MR_ITEM_COUNT + " " + sign + " 1" + key + "; ";
+
+        if (sign.equals("+")) {
+            return "INSERT OR IGNORE INTO " + TABLE_MONTHLY_ROLLUPS + " (" + COLUMN_MR_MONTH + ", "
+                    + COLUMN_MR_CATEGORY + ", " + COLUMN_MR_SOURCE_ID + ") VALUES (" + month + ", "
+                    + category.replace("ROW", row) + ", " + sourceId.replace("ROW", row) + "); " + update;
         }
+        return update + "DELETE FROM " + TABLE_MONTHLY_ROLLUPS + key + " AND " + COLUMN_MR_ITEM_COUNT + " = 0; ";
+    }
+
+    /** 'YYYY-MM' en hora local de una fecha en milisegundos. */
+    static String rollupMonth(String millisExpression) {
+        return "strftime('%Y-%m', " + millisExpression + " / 1000, 'unixepoch', 'localtime')";
+    }
+
+    /**
+     * Crea la fila de totales del dashboard, la inicializa con los datos actuales
+     * y agrega los triggers que la mantienen al día en cada INSERT/UPDATE/DELETE.
+     */
+    private void createDashboardSummary(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_DASHBOARD_SUMMARY + "("
+                + COLUMN_DS_ID + " INTEGER PRIMARY KEY CHECK (" + COLUMN_DS_ID + " = " + DASHBOARD_SUMMARY_ROW_ID + "),"
+                + COLUMN_DS_TOTAL_BALANCE + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_DS_ACTIVE_RECURRING_TOTAL + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_DS_PENDING_INSTALLMENT_TOTAL + " INTEGER NOT NULL DEFAULT 0"
+                + ")");
+
+        db.execSQL("INSERT INTO " + TABLE_DASHBOARD_SUMMARY + " ("
+                + COLUMN_DS_ID + ", "
+                + COLUMN_DS_TOTAL_BALANCE + ", "
+                + COLUMN_DS_ACTIVE_RECURRING_TOTAL + ", "
+                + COLUMN_DS_PENDING_INSTALLMENT_TOTAL + ") SELECT " + DASHBOARD_SUMMARY_ROW_ID + ", "
+                + "(SELECT IFNULL(SUM(" + COLUMN_BS_BALANCE + "), 0) FROM " + TABLE_BALANCE_SOURCES + "), "
+                + "(SELECT IFNULL(SUM(" + COLUMN_RE_AMOUNT + "), 0) FROM " + TABLE_RECURRING_EXPENSES
+                + " WHERE " + COLUMN_RE_IS_ACTIVE + " = 1), "
+                + "(SELECT IFNULL(SUM(" + COLUMN_LI_AMOUNT + "), 0) FROM " + TABLE_LOAN_INSTALLMENTS
+                + " WHERE " + COLUMN_LI_IS_PAID + " = 0)");
+
+        // Saldo total
+        String balanceNew = "IFNULL(NEW." + COLUMN_BS_BALANCE + ", 0)";
+        String balanceOld = "IFNULL(OLD." + COLUMN_BS_BALANCE + ", 0)";
+        createSummaryTrigger(db, "trg_balance_sources_summary_insert", "INSERT", TABLE_BALANCE_SOURCES,
+                COLUMN_DS_TOTAL_BALANCE, balanceNew);
+        createSummaryTrigger(db, "trg_balance_sources_summary_update", "UPDATE OF " + COLUMN_BS_BALANCE,
+                TABLE_BALANCE_SOURCES, COLUMN_DS_TOTAL_BALANCE, balanceNew + " - " + balanceOld);
+        createSummaryTrigger(db, "trg_balance_sources_summary_delete", "DELETE", TABLE_BALANCE_SOURCES,
+                COLUMN_DS_TOTAL_BALANCE, "-" + balanceOld);
+
+        // Gastos recurrentes activos
+        String activeNew = "(CASE WHEN NEW." + COLUMN_RE_IS_ACTIVE + " = 1 THEN NEW." + COLUMN_RE_AMOUNT + " ELSE 0 END)";
+        String activeOld = "(CASE WHEN OLD." + COLUMN_RE_IS_ACTIVE + " = 1 THEN OLD." + COLUMN_RE_AMOUNT + " ELSE 0 END)";
+        createSummaryTrigger(db, "trg_recurring_expenses_summary_insert", "INSERT", TABLE_RECURRING_EXPENSES,
+                COLUMN_DS_ACTIVE_RECURRING_TOTAL, activeNew);
+        createSummaryTrigger(db, "trg_recurring_expenses_summary_update",
+                "UPDATE OF " + COLUMN_RE_AMOUNT + ", " + COLUMN_RE_IS_ACTIVE, TABLE_RECURRING_EXPENSES,
+                COLUMN_DS_ACTIVE_RECURRING_TOTAL, activeNew + " - " + activeOld);
+        createSummaryTrigger(db, "trg_recurring_expenses_summary_delete", "DELETE", TABLE_RECURRING_EXPENSES,
+                COLUMN_DS_ACTIVE_RECURRING_TOTAL, "-" + activeOld);
+
+        // Cuotas pendientes
+        String pendingNew = "(CASE WHEN NEW." + COLUMN_LI_IS_PAID + " = 0 THEN NEW." + COLUMN_LI_AMOUNT + " ELSE 0 END)";
+        String pendingOld = "(CASE WHEN OLD." + COLUMN_LI_IS_PAID + " = 0 THEN OLD." + COLUMN_LI_AMOUNT + " ELSE 0 END)";
+        createSummaryTrigger(db, "trg_loan_installments_summary_insert", "INSERT", TABLE_LOAN_INSTALLMENTS,
+                COLUMN_DS_PENDING_INSTALLMENT_TOTAL, pendingNew);
+        createSummaryTrigger(db, "trg_loan_installments_summary_update",
+                "UPDATE OF " + COLUMN_LI_AMOUNT + ", " + COLUMN_LI_IS_PAID, TABLE_LOAN_INSTALLMENTS,
+                COLUMN_DS_PENDING_INSTALLMENT_TOTAL, pendingNew + " - " + pendingOld);
+        createSummaryTrigger(db, "trg_loan_installments_summary_delete", "DELETE", TABLE_LOAN_INSTALLMENTS,
+                COLUMN_DS_PENDING_INSTALLMENT_TOTAL, "-" + pendingOld);
+    }
+
+    private void createSummaryTrigger(SQLiteDatabase db, String name, String event, String table,
+                                      String summaryColumn, String delta) {
+        db.execSQL("CREATE TRIGGER " + name + " AFTER " + event + " ON " + table + " BEGIN "
+                + "UPDATE " + TABLE_DASHBOARD_SUMMARY + " SET " + summaryColumn + " = " + summaryColumn
+                + " + " + delta + " WHERE " + COLUMN_DS_ID + " = " + DASHBOARD_SUMMARY_ROW_ID + "; END");
+    }
+
+    /**
+     * Cada versión tiene su clase de migración; ver {@link SchemaMigrator}.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        new SchemaMigrator(this).migrate(db, oldVersion, newVersion);
     }
-}
\ No newline at end of file
+}
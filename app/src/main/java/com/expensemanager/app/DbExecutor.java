@@ -0,0 +1,190 @@
+package com.expensemanager.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta el acceso a la base fuera del hilo principal y entrega el resultado
+ * en el hilo principal.
+ *
+ * Las lecturas usan un pool pequeño (WAL permite leer en paralelo); las
+ * escrituras van a un único hilo, en el orden en que se piden. El callback solo
+ * se entrega si la pantalla dueña no fue destruida. Al destruirla se cancelan
+ * sus lecturas pendientes, pero nunca una escritura: "Guardar" seguido de
+ * finish() tiene que guardar igual.
+ */
+public final class DbExecutor {
+
+    /** Trabajo con la base; corre en un hilo de fondo. */
+    public interface Work<T> {
+        T run(DatabaseHelper db);
+    }
+
+    /** Recibe el resultado en el hilo principal. */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    /** Permite descartar una tarea en curso (por ejemplo, una búsqueda ya obsoleta). */
+    public interface Task {
+        void cancel();
+    }
+
+    private static final int READ_THREADS = 2;
+
+    private static final ExecutorService READS = Executors.newFixedThreadPool(READ_THREADS, threadFactory("db-read"));
+    private static final ExecutorService WRITES = Executors.newSingleThreadExecutor(threadFactory("db-write"));
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private DbExecutor() {
+    }
+
+    public static <T> Task read(AppCompatActivity activity, Work<T> work, Callback<T> callback) {
+        return submit(READS, true, activity, work, callback);
+    }
+
+    /**
+     * Escritura serializada. Si la pantalla ya no existe al terminar, o si se
+     * cancela la tarea, solo se descarta el resultado: la escritura se completa.
+     */
+    public static <T> Task write(AppCompatActivity activity, Work<T> work, Callback<T> callback) {
+        return submit(WRITES, false, activity, work, callback);
+    }
+
+    /**
+     * Escritura desde un receiver que llamó a goAsync(): corre en el hilo de
+     * escrituras y termina el broadcast al acabar, con o sin error.
+     */
+    public static void write(Context context, final Work<?> work, final BroadcastReceiver.PendingResult result) {
+        final DatabaseHelper db = DatabaseHelper.getInstance(context);
+        WRITES.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    work.run(db);
+                } finally {
+                    result.finish();
+                }
+            }
+        });
+    }
+
+    private static <T> Task submit(ExecutorService executor, final boolean isRead, AppCompatActivity activity,
+                                   final Work<T> work, final Callback<T> callback) {
+        final DatabaseHelper db = DatabaseHelper.getInstance(activity);
+        final PendingTask<T> task = new PendingTask<>(activity, callback, isRead);
+
+        task.future = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (isRead && task.cancelled) {
+                    return;
+                }
+                try {
+                    task.deliver(work.run(db));
+                } catch (final RuntimeException e) {
+                    // Mismo efecto que antes, cuando la consulta corría en el hilo principal
+                    MAIN.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            throw e;
+                        }
+                    });
+                }
+            }
+        });
+
+        if (isRead) {
+            task.cancelOnDestroy();
+        }
+        return task;
+    }
+
+    private static ThreadFactory threadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        };
+    }
+
+    private static final class PendingTask<T> implements Task {
+
+        private final LifecycleOwner owner;
+        private final Callback<T> callback;
+        private final boolean isRead;
+        private LifecycleEventObserver observer;
+        volatile Future<?> future;
+        volatile boolean cancelled;
+
+        PendingTask(LifecycleOwner owner, Callback<T> callback, boolean isRead) {
+            this.owner = owner;
+            this.callback = callback;
+            this.isRead = isRead;
+        }
+
+        /** Se llama en el hilo principal, al enviar la tarea. */
+        void cancelOnDestroy() {
+            observer = new LifecycleEventObserver() {
+                @Override
+                public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+                    if (event == Lifecycle.Event.ON_DESTROY) {
+                        cancel();
+                    }
+                }
+            };
+            owner.getLifecycle().addObserver(observer);
+        }
+
+        void deliver(final T result) {
+            MAIN.post(new Runnable() {
+                @Override
+                public void run() {
+                    removeObserver();
+                    if (!cancelled && owner.getLifecycle().getCurrentState() != Lifecycle.State.DESTROYED) {
+                        callback.onResult(result);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Future<?> pending = future;
+            if (isRead && pending != null) {
+                // Sin interrumpir: una consulta ya iniciada termina y su resultado se descarta
+                pending.cancel(false);
+            }
+            MAIN.post(new Runnable() {
+                @Override
+                public void run() {
+                    removeObserver();
+                }
+            });
+        }
+
+        private void removeObserver() {
+            if (observer != null) {
+                owner.getLifecycle().removeObserver(observer);
+                observer = null;
+            }
+        }
+    }
+}
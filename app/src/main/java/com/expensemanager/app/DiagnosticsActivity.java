@@ -0,0 +1,156 @@
+package com.expensemanager.app;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.Button;
+import android.widget.TextView;
+import androidx.appcompat.app.AppCompatActivity;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Métricas de alarmas y recordatorios (ver {@link Metrics}): cuántas alarmas
+ * tiene armadas la app, cuántas veces despierta el equipo, cuánto tardan los
+ * receivers y con cuánto atraso llegan los avisos; y cuánto tarda en abrir la
+ * pantalla principal. "Exportar" comparte el
+ * resumen y los eventos del buffer en CSV.
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+
+    private static final String[] DURATION_KINDS = {
+            Metrics.RECEIVER_DELIVER,
+            Metrics.RECEIVER_MARK_PAID,
+            Metrics.RECEIVER_BOOT,
+            Metrics.RECEIVER_LEGACY,
+    };
+
+    private static final String[] STARTUP_KINDS = {
+            Metrics.STARTUP_COLD,
+            Metrics.STARTUP_FIRST_DRAW,
+            Metrics.STARTUP_FULLY_DRAWN,
+    };
+
+    private TextView diagnosticsText;
+    private Button exportBtn, backBtn;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+
+        diagnosticsText = findViewById(R.id.diagnosticsText);
+        exportBtn = findViewById(R.id.exportBtn);
+        backBtn = findViewById(R.id.backBtn);
+
+        setupClickListeners();
+        loadReport();
+    }
+
+    private void setupClickListeners() {
+        exportBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                export();
+            }
+        });
+
+        backBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                finish();
+            }
+        });
+    }
+
+    private void loadReport() {
+        final Context appContext = getApplicationContext();
+        DbExecutor.read(this, new DbExecutor.Work<String>() {
+            @Override
+            public String run(DatabaseHelper db) {
+                return buildReport(appContext, db);
+            }
+        }, new DbExecutor.Callback<String>() {
+            @Override
+            public void onResult(String report) {
+                diagnosticsText.setText(report);
+            }
+        });
+    }
+
+    private void export() {
+        final Context appContext = getApplicationContext();
+        DbExecutor.read(this, new DbExecutor.Work<String>() {
+            @Override
+            public String run(DatabaseHelper db) {
+                return buildReport(appContext, db) + "\n" + db.getMetricsDao().dumpCsv();
+            }
+        }, new DbExecutor.Callback<String>() {
+            @Override
+            public void onResult(String dump) {
+                Intent send = new Intent(Intent.ACTION_SEND);
+                send.setType("text/plain");
+                send.putExtra(Intent.EXTRA_SUBJECT, "Diagnóstico de alarmas");
+                send.putExtra(Intent.EXTRA_TEXT, dump);
+                startActivity(Intent.createChooser(send, "Exportar diagnóstico"));
+            }
+        });
+    }
+
+    // En segundo plano: base y preferencias
+    private static String buildReport(Context context, DatabaseHelper db) {
+        SimpleDateFormat time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        MetricsDao metrics = db.getMetricsDao();
+        StringBuilder report = new StringBuilder();
+
+        report.append("ESTADO\n");
+        long armedAt = NotificationScheduler.getArmedAt(context);
+        report.append("Alarma de la cola:    ")
+                .append(armedAt == ReminderQueueDao.NONE ? "ninguna" : time.format(new Date(armedAt)))
+                .append('\n');
+        report.append("Recordatorios en cola: ").append(db.getReminderQueueDao().count()).append('\n');
+        report.append("Ventana de agrupación: ")
+                .append(NotificationScheduler.getDigestWindowMinutes(context)).append(" min\n");
+        PaymentStatusCache cache = db.getPaymentStatusCache();
+        report.append("Caché de estados:     ").append(cache.hitCount()).append(" aciertos, ")
+                .append(cache.missCount()).append(" fallos, ").append(cache.size()).append(" pagos\n");
+        report.append("Última reprogramación: ").append(BootReceiver.describeLastPass(context)).append('\n');
+
+        long oldest = metrics.getOldestAt();
+        report.append("\nEVENTOS (últimos ").append(MetricsDao.CAPACITY).append(", desde ")
+                .append(oldest == 0 ? "-" : time.format(new Date(oldest))).append(")\n");
+        report.append("Alarmas armadas:       ").append(metrics.count(Metrics.ALARM_SET)).append('\n');
+        report.append("Alarmas canceladas:    ").append(metrics.count(Metrics.ALARM_CANCEL)).append('\n');
+        report.append("Despertares (avisos):  ").append(metrics.count(Metrics.WAKEUP_DELIVER)).append('\n');
+        report.append("Despertares (retomar): ").append(metrics.count(Metrics.WAKEUP_RESUME)).append('\n');
+        long[] shown = metrics.getSortedValues(Metrics.WAKEUP_DELIVER);
+        long total = 0;
+        for (long count : shown) {
+            total += count;
+        }
+        report.append("Avisos mostrados:      ").append(total);
+        if (shown.length > 0) {
+            report.append(String.format(Locale.US, " (%.1f por despertar)", (double) total / shown.length));
+        }
+        report.append('\n');
+
+        report.append("\nATRASO DE ENTREGA\n");
+        report.append(MetricsSummary.histogram(Metrics.DELIVERY_LATENESS,
+                metrics.getSortedValues(Metrics.DELIVERY_LATENESS), MetricsSummary.LATENESS_BOUNDS));
+
+        report.append("\nDURACIÓN DE RECEIVERS\n");
+        for (String kind : DURATION_KINDS) {
+            report.append(MetricsSummary.histogram(kind, metrics.getSortedValues(kind),
+                    MetricsSummary.DURATION_BOUNDS));
+        }
+
+        report.append("\nARRANQUE\n");
+        for (String kind : STARTUP_KINDS) {
+            report.append(MetricsSummary.histogram(kind, metrics.getSortedValues(kind),
+                    MetricsSummary.DURATION_BOUNDS));
+        }
+        return report.toString();
+    }
+}
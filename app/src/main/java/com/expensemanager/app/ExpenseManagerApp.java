@@ -0,0 +1,28 @@
+package com.expensemanager.app;
+
+import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.os.StrictMode;
+
+public class ExpenseManagerApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // En builds de depuración, registrar en logcat todo acceso a disco desde
+        // el hilo principal; la base se usa siempre a través de DbExecutor
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .build());
+            StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                    .detectLeakedSqlLiteObjects()
+                    .detectLeakedClosableObjects()
+                    .penaltyLog()
+                    .build());
+        }
+    }
+}
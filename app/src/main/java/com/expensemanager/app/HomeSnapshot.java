@@ -0,0 +1,186 @@
+package com.expensemanager.app;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+import com.expensemanager.core.Money;
+import com.expensemanager.core.PaymentItem;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lo que muestra MainActivity (saldo total, próximos pagos y cantidad de
+ * vencidos), guardado en un archivo binario pequeño para pintar el primer frame
+ * sin abrir SQLite. Los textos que dependen de la hora ("Vence en 2 horas") se
+ * calculan al mostrar, a partir de las fechas guardadas.
+ */
+public final class HomeSnapshot {
+
+    private static final String TAG = "HomeSnapshot";
+    private static final String FILE_NAME = "home_snapshot.bin";
+    private static final int MAGIC = 0x48534E50; // "HSNP"
+    // Subir al cambiar el formato: un archivo de otra versión se ignora
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte TYPE_EXPENSE = 0;
+    private static final byte TYPE_LOAN = 1;
+
+    private static final Object FILE_LOCK = new Object();
+
+    public final long createdAt;
+    public final Money totalBalance;
+    public final int overdueCount;
+    public final List<PaymentItem> items;
+
+    public HomeSnapshot(long createdAt, Money totalBalance, int overdueCount, List<PaymentItem> items) {
+        this.createdAt = createdAt;
+        this.totalBalance = totalBalance;
+        this.overdueCount = overdueCount;
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Muestra lo mismo que {@code other}: al abrir la app, si la base no cambió
+     * desde el último snapshot no hace falta volver a pintar. No compara
+     * createdAt.
+     */
+    public boolean sameContentAs(HomeSnapshot other) {
+        if (!totalBalance.equals(other.totalBalance) || overdueCount != other.overdueCount
+                || items.size() != other.items.size()) {
+            return false;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            if (!items.get(i).sameContentAs(other.items.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lee el estado actual de la base; los pagos son la primera página de
+     * {@link PendingPaymentDao}.
+     */
+    public static HomeSnapshot query(DatabaseHelper dbHelper, long now) {
+        PendingPaymentDao pendingPayments = dbHelper.getPendingPaymentDao();
+        List<PaymentItem> items = pendingPayments.getPageAfter(null, PaymentPager.PAGE_SIZE);
+        int overdueCount = pendingPayments.countOverdue(now);
+
+        return new HomeSnapshot(now, dbHelper.getDashboardSummaryDao().getTotalBalance(), overdueCount, items);
+    }
+
+    /**
+     * Vuelve a leer la base y reescribe el archivo. Para caminos que cambian datos
+     * sin pasar por MainActivity (por ejemplo "YA PAGUÉ" desde la notificación).
+     */
+    public static void refresh(Context context) {
+        query(DatabaseHelper.getInstance(context), System.currentTimeMillis()).save(context);
+    }
+
+    /**
+     * @return el último snapshot guardado, o null si no hay o no se puede leer
+     */
+    public static HomeSnapshot load(Context context) {
+        synchronized (FILE_LOCK) {
+            AtomicFile file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(file.openRead()));
+                return read(in);
+            } catch (FileNotFoundException e) {
+                return null;
+            } catch (IOException e) {
+                Log.w(TAG, "Snapshot ilegible, se ignora", e);
+                return null;
+            } finally {
+                closeQuietly(in);
+            }
+        }
+    }
+
+    /**
+     * Escribe el snapshot de forma atómica: un fallo a mitad deja el anterior.
+     */
+    public void save(Context context) {
+        synchronized (FILE_LOCK) {
+            AtomicFile file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+            FileOutputStream stream = null;
+            try {
+                stream = file.startWrite();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+                write(out);
+                out.flush();
+                file.finishWrite(stream);
+            } catch (IOException e) {
+                Log.w(TAG, "No se pudo guardar el snapshot", e);
+                if (stream != null) {
+                    file.failWrite(stream);
+                }
+            }
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(createdAt);
+        out.writeLong(totalBalance.getCents());
+        out.writeInt(overdueCount);
+        out.writeInt(items.size());
+        for (PaymentItem item : items) {
+            out.writeByte(item.type.equals("loan") ? TYPE_LOAN : TYPE_EXPENSE);
+            out.writeLong(item.id);
+            out.writeUTF(item.name);
+            out.writeUTF(item.label);
+            out.writeLong(item.amount.getCents());
+            out.writeLong(item.dueDate);
+            out.writeInt(item.reminderDays);
+            out.writeInt(item.notificationIntervalHours);
+        }
+    }
+
+    private static HomeSnapshot read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+        long createdAt = in.readLong();
+        Money totalBalance = Money.ofCents(in.readLong());
+        int overdueCount = in.readInt();
+        int count = in.readInt();
+        if (count < 0 || count > PaymentPager.PAGE_SIZE) {
+            return null;
+        }
+
+        List<PaymentItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String type = in.readByte() == TYPE_LOAN ? "loan" : "expense";
+            long id = in.readLong();
+            String name = in.readUTF();
+            String label = in.readUTF();
+            Money amount = Money.ofCents(in.readLong());
+            long dueDate = in.readLong();
+            int reminderDays = in.readInt();
+            int intervalHours = in.readInt();
+            items.add(new PaymentItem(id, type, name, label, amount, dueDate, reminderDays, intervalHours));
+        }
+        return new HomeSnapshot(createdAt, totalBalance, overdueCount, items);
+    }
+
+    private static void closeQuietly(DataInputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
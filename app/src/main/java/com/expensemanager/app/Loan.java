@@ -0,0 +1,38 @@
+package com.expensemanager.app;
+
+import com.expensemanager.core.Money;
+
+/**
+ * Fila de loans.
+ */
+public class Loan {
+
+    public final long id;
+    public final String name;
+    public final Money capital;
+    public final double interestRate;
+    public final Money totalAmount;
+    public final int installments;
+    public final Money installmentAmount;
+    public final long startDate;
+    public final String paymentFrequency;
+    public final int paymentIntervalDays;
+    /** Ver {@link com.expensemanager.core.Amortization}; interestRate depende del método. */
+    public final String amortizationMethod;
+
+    public Loan(long id, String name, Money capital, double interestRate, Money totalAmount,
+                int installments, Money installmentAmount, long startDate,
+                String paymentFrequency, int paymentIntervalDays, String amortizationMethod) {
+        this.id = id;
+        this.name = name;
+        this.capital = capital;
+        this.interestRate = interestRate;
+        this.totalAmount = totalAmount;
+        this.installments = installments;
+        this.installmentAmount = installmentAmount;
+        this.startDate = startDate;
+        this.paymentFrequency = paymentFrequency;
+        this.paymentIntervalDays = paymentIntervalDays;
+        this.amortizationMethod = amortizationMethod;
+    }
+}
@@ -0,0 +1,85 @@
+package com.expensemanager.app;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.expensemanager.core.InstallmentSchedule;
+
+/**
+ * Acceso a loans. Obtener con {@link DatabaseHelper#getLoanDao()}.
+ */
+public class LoanDao {
+
+    private final SQLiteDatabase db;
+    private final LoanInstallmentDao installmentDao;
+    private final SQLiteStatement insertStatement;
+
+    LoanDao(SQLiteDatabase db, LoanInstallmentDao installmentDao) {
+        this.db = db;
+        this.installmentDao = installmentDao;
+        this.insertStatement = db.compileStatement(
+                "INSERT INTO " + DatabaseHelper.TABLE_LOANS + " (" +
+                        DatabaseHelper.COLUMN_LOAN_NAME + ", " +
+                        DatabaseHelper.COLUMN_LOAN_CAPITAL + ", " +
+                        DatabaseHelper.COLUMN_LOAN_INTEREST_RATE + ", " +
+                        DatabaseHelper.COLUMN_LOAN_TOTAL_AMOUNT + ", " +
+                        DatabaseHelper.COLUMN_LOAN_INSTALLMENTS + ", " +
+                        DatabaseHelper.COLUMN_LOAN_INSTALLMENT_AMOUNT + ", " +
+                        DatabaseHelper.COLUMN_LOAN_START_DATE + ", " +
+                        DatabaseHelper.COLUMN_LOAN_PAYMENT_FREQUENCY + ", " +
+                        DatabaseHelper.COLUMN_LOAN_PAYMENT_INTERVAL_DAYS + ", " +
+                        DatabaseHelper.COLUMN_LOAN_AMORTIZATION_METHOD +
+                        ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    }
+
+    /**
+     * Inserta el préstamo y todas sus cuotas en una sola transacción: o se guarda
+     * todo o nada.
+     *
+     * @return ids de las cuotas en el orden de {@code schedule}, o null si falla
+     */
+    public long[] insertWithInstallments(Loan loan, InstallmentSchedule schedule,
+                                         int reminderDays, int notificationIntervalHours) {
+        long[] installmentIds = new long[schedule.size()];
+
+        db.beginTransaction();
+        try {
+            long loanId = insert(loan);
+            if (loanId == -1) {
+                return null;
+            }
+
+            for (int i = 0; i < installmentIds.length; i++) {
+                installmentIds[i] = installmentDao.insert(loanId, i + 1, schedule.amounts[i],
+                        schedule.principals[i], schedule.interests[i], schedule.balances[i],
+                        schedule.dueDates[i], reminderDays, notificationIntervalHours);
+                if (installmentIds[i] == -1) {
+                    return null;
+                }
+            }
+
+            db.setTransactionSuccessful();
+            return installmentIds;
+        } catch (SQLException e) {
+            return null;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private long insert(Loan loan) {
+        synchronized (insertStatement) {
+            insertStatement.bindString(1, loan.name);
+            insertStatement.bindLong(2, loan.capital.getCents());
+            insertStatement.bindDouble(3, loan.interestRate);
+            insertStatement.bindLong(4, loan.totalAmount.getCents());
+            insertStatement.bindLong(5, loan.installments);
+            insertStatement.bindLong(6, loan.installmentAmount.getCents());
+            insertStatement.bindLong(7, loan.startDate);
+            insertStatement.bindString(8, loan.paymentFrequency);
+            insertStatement.bindLong(9, loan.paymentIntervalDays);
+            insertStatement.bindString(10, loan.amortizationMethod);
+            return insertStatement.executeInsert();
+        }
+    }
+}
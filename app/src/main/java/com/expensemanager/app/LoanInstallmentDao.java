@@ -0,0 +1,161 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import com.expensemanager.core.Money;
+
+/**
+ * Acceso a loan_installments. Obtener con {@link DatabaseHelper#getLoanInstallmentDao()}.
+ *
+ * Las escrituras y consultas escalares usan sentencias compiladas una sola vez.
+ * Las filas pendientes se leen con {@link PendingPaymentDao}.
+ */
+public class LoanInstallmentDao {
+
+    // Todas las columnas, en el orden de la tabla de archivo
+    private static final String ARCHIVE_COLUMNS =
+            DatabaseHelper.COLUMN_LI_ID + ", " +
+            DatabaseHelper.COLUMN_LI_LOAN_ID + ", " +
+            DatabaseHelper.COLUMN_LI_INSTALLMENT_NUMBER + ", " +
+            DatabaseHelper.COLUMN_LI_AMOUNT + ", " +
+            DatabaseHelper.COLUMN_LI_DUE_DATE + ", " +
+            DatabaseHelper.COLUMN_LI_IS_PAID + ", " +
+            DatabaseHelper.COLUMN_LI_PAID_DATE + ", " +
+            DatabaseHelper.COLUMN_LI_REMINDER_DAYS + ", " +
+            DatabaseHelper.COLUMN_LI_NOTIFICATION_INTERVAL_HOURS + ", " +
+            DatabaseHelper.COLUMN_LI_PRINCIPAL + ", " +
+            DatabaseHelper.COLUMN_LI_INTEREST + ", " +
+            DatabaseHelper.COLUMN_LI_BALANCE;
+
+    private final SQLiteDatabase db;
+    private final PaymentStatusCache statusCache;
+    private final SQLiteStatement insertStatement;
+    private final SQLiteStatement markPaidStatement;
+    private final SQLiteStatement archiveStatement;
+    private final SQLiteStatement deleteStatement;
+    private final SQLiteStatement isPaidStatement;
+
+    private final PaymentStatusCache.Loader pendingLoader = new PaymentStatusCache.Loader() {
+        @Override
+        public boolean isPending(long id) {
+            synchronized (isPaidStatement) {
+                isPaidStatement.bindLong(1, id);
+                try {
+                    return isPaidStatement.simpleQueryForLong() == 0;
+                } catch (SQLiteDoneException e) {
+                    // Archivada o eliminada
+                    return false;
+                }
+            }
+        }
+    };
+
+    LoanInstallmentDao(SQLiteDatabase db, PaymentStatusCache statusCache) {
+        this.db = db;
+        this.statusCache = statusCache;
+        this.insertStatement = db.compileStatement(
+                "INSERT INTO " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS + " (" +
+                        DatabaseHelper.COLUMN_LI_LOAN_ID + ", " +
+                        DatabaseHelper.COLUMN_LI_INSTALLMENT_NUMBER + ", " +
+                        DatabaseHelper.COLUMN_LI_AMOUNT + ", " +
+                        DatabaseHelper.COLUMN_LI_DUE_DATE + ", " +
+                        DatabaseHelper.COLUMN_LI_IS_PAID + ", " +
+                        DatabaseHelper.COLUMN_LI_REMINDER_DAYS + ", " +
+                        DatabaseHelper.COLUMN_LI_NOTIFICATION_INTERVAL_HOURS + ", " +
+                        DatabaseHelper.COLUMN_LI_PRINCIPAL + ", " +
+                        DatabaseHelper.COLUMN_LI_INTEREST + ", " +
+                        DatabaseHelper.COLUMN_LI_BALANCE +
+                        ") VALUES (?, ?, ?, ?, 0, ?, ?, ?, ?, ?)");
+        this.markPaidStatement = db.compileStatement(
+                "UPDATE " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS +
+                        " SET " + DatabaseHelper.COLUMN_LI_IS_PAID + " = 1, " +
+                        DatabaseHelper.COLUMN_LI_PAID_DATE + " = ?" +
+                        " WHERE " + DatabaseHelper.COLUMN_LI_ID + " = ?");
+        this.archiveStatement = db.compileStatement(
+                "INSERT INTO " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS_ARCHIVE + " (" + ARCHIVE_COLUMNS +
+                        ") SELECT " + ARCHIVE_COLUMNS + " FROM " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS +
+                        " WHERE " + DatabaseHelper.COLUMN_LI_ID + " = ?");
+        this.deleteStatement = db.compileStatement(
+                "DELETE FROM " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS +
+                        " WHERE " + DatabaseHelper.COLUMN_LI_ID + " = ?");
+        this.isPaidStatement = db.compileStatement(
+                "SELECT " + DatabaseHelper.COLUMN_LI_IS_PAID + " FROM " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS +
+                        " WHERE " + DatabaseHelper.COLUMN_LI_ID + " = ?");
+    }
+
+    /**
+     * Inserta una cuota pendiente. Para un préstamo completo usar
+     * {@link LoanDao#insertWithInstallments}, que agrupa todo en una transacción.
+     *
+     * @param amount  {@code principal + interest}
+     * @param balance capital pendiente del préstamo después de pagar esta cuota
+     * @return id de la nueva cuota o -1 si falla
+     */
+    public long insert(long loanId, int installmentNumber, Money amount, Money principal, Money interest,
+                       Money balance, long dueDate, int reminderDays, int notificationIntervalHours) {
+        synchronized (insertStatement) {
+            insertStatement.bindLong(1, loanId);
+            insertStatement.bindLong(2, installmentNumber);
+            insertStatement.bindLong(3, amount.getCents());
+            insertStatement.bindLong(4, dueDate);
+            insertStatement.bindLong(5, reminderDays);
+            insertStatement.bindLong(6, notificationIntervalHours);
+            insertStatement.bindLong(7, principal.getCents());
+            insertStatement.bindLong(8, interest.getCents());
+            insertStatement.bindLong(9, balance.getCents());
+            return insertStatement.executeInsert();
+        }
+    }
+
+    /**
+     * Marca la cuota como pagada y la mueve al archivo en la misma transacción.
+     */
+    public boolean markPaid(long id, long paidDate) {
+        boolean updated;
+        db.beginTransaction();
+        try {
+            synchronized (markPaidStatement) {
+                markPaidStatement.bindLong(1, paidDate);
+                markPaidStatement.bindLong(2, id);
+                updated = markPaidStatement.executeUpdateDelete() > 0;
+            }
+            if (updated) {
+                synchronized (archiveStatement) {
+                    archiveStatement.bindLong(1, id);
+                    archiveStatement.executeInsert();
+                }
+                delete(id);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (updated) {
+            statusCache.markNotPending("loan", id);
+        }
+        return updated;
+    }
+
+    public boolean delete(long id) {
+        boolean deleted;
+        synchronized (deleteStatement) {
+            deleteStatement.bindLong(1, id);
+            deleted = deleteStatement.executeUpdateDelete() > 0;
+        }
+        // Dentro de una transacción (markPaid) la caché se actualiza al confirmarla
+        if (deleted && !db.inTransaction()) {
+            statusCache.markNotPending("loan", id);
+        }
+        return deleted;
+    }
+
+    /**
+     * Si la cuota sigue sin pagar, normalmente sin leer disco (ver
+     * {@link PaymentStatusCache}). Una cuota pagada ya está archivada y una
+     * eliminada no existe: en ambos casos no está pendiente.
+     */
+    public boolean isPending(long id) {
+        return statusCache.isPending("loan", id, pendingLoader);
+    }
+}
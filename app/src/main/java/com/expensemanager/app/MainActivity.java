@@ -2,51 +2,215 @@ package com.expensemanager.app;
 
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
+import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.StrictMode;
+import android.os.Trace;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
-import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
-import java.text.NumberFormat;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import com.expensemanager.core.Formatters;
+import com.expensemanager.core.PaymentItem;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
 
-    private DatabaseHelper dbHelper;
-    private TextView totalBalanceText;
-    private ListView expensesListView;
-    private Button addBalanceBtn, addExpenseBtn, addLoanBtn, settingsBtn;
+    private TextView totalBalanceText, emptyListText;
+    private RecyclerView expensesRecyclerView;
+    private PaymentAdapter paymentAdapter;
+    private PaymentPager paymentPager;
+    private Button addBalanceBtn, addExpenseBtn, addLoanBtn, searchBtn, settingsBtn;
+    private boolean reportedFullyDrawn;
+
+    /**
+     * Más que esto entre el inicio del proceso y onCreate: el proceso ya existía
+     * (lo creó un receiver), no es un arranque en frío.
+     */
+    private static final long COLD_START_MAX_PROCESS_MS = 2000;
+    // La primera MainActivity del proceso
+    private static boolean launchedInProcess;
+
+    // Solo durante el arranque: null después de escribir el informe
+    private StartupTrace startupTrace = new StartupTrace();
+    private boolean firstDrawDone, databaseLoaded;
+    private boolean coldStart;
+    private long firstDrawMillis = -1, fullyDrawnMillis = -1;
+    // Snapshot pintado en onCreate: la primera lectura de la base no repinta si coincide
+    private HomeSnapshot shownSnapshot;
+    // Aviso de vencidos que espera al primer frame; -1 = ninguno
+    private int pendingOverdueWarning = -1;
+    // Cantidad del último aviso: volver a la pantalla no lo repite
+    private int warnedOverdueCount = -1;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
+        coldStart = !launchedInProcess && startupTrace.processToCreate() <= COLD_START_MAX_PROCESS_MS;
+        launchedInProcess = true;
+        startupTrace.begin("MainActivity.onCreate");
 
-        dbHelper = new DatabaseHelper(this);
-        createNotificationChannel();
+        startupTrace.begin("setContentView");
+        setContentView(R.layout.activity_main);
+        startupTrace.end();
 
+        startupTrace.begin("initializeViews");
         initializeViews();
         setupClickListeners();
-        updateUI();
+        startupTrace.end();
+
+        // Primer frame desde el snapshot; onResume lo reconcilia con la base.
+        // Es el único acceso a disco permitido en el hilo principal: un archivo de
+        // pocos KB (getFilesDir puede crear la carpeta la primera vez), a cambio
+        // de no esperar a SQLite para pintar.
+        startupTrace.begin("HomeSnapshot.load");
+        StrictMode.ThreadPolicy policy = StrictMode.allowThreadDiskWrites();
+        HomeSnapshot snapshot;
+        try {
+            snapshot = HomeSnapshot.load(this);
+        } finally {
+            StrictMode.setThreadPolicy(policy);
+        }
+        startupTrace.end();
+        if (snapshot != null) {
+            startupTrace.begin("render");
+            render(snapshot);
+            startupTrace.end();
+            shownSnapshot = snapshot;
+        }
+
+        final boolean restored = savedInstanceState != null;
+        runAfterFirstDraw(new Runnable() {
+            @Override
+            public void run() {
+                firstDrawDone = true;
+                firstDrawMillis = startupTrace.mark("first_draw");
+
+                // Nada de esto hace falta para pintar: que no compita con el primer frame
+                createNotificationChannel();
+                if (!restored) {
+                    reconcileReminders();
+                }
+                if (pendingOverdueWarning >= 0) {
+                    showOverdueWarning(pendingOverdueWarning);
+                    pendingOverdueWarning = -1;
+                }
+                reportStartupIfDone();
+            }
+        });
+
+        startupTrace.end();
+    }
+
+    /**
+     * Ejecuta {@code work} en el hilo principal justo después de dibujar el
+     * próximo frame (el primero, si se llama desde onCreate).
+     */
+    private void runAfterFirstDraw(final Runnable work) {
+        final View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                // Encolado detrás del recorrido en curso: corre con el frame ya dibujado
+                decorView.post(work);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Con el primer frame dibujado y la base leída, escribe el informe del
+     * arranque y registra sus tiempos en {@link Metrics}.
+     */
+    private void reportStartupIfDone() {
+        if (startupTrace != null && firstDrawDone && databaseLoaded) {
+            startupTrace.report();
+            recordStartup(coldStart ? startupTrace.processToCreate() + fullyDrawnMillis : -1);
+            startupTrace = null;
+        }
+    }
+
+    /** @param coldMillis ms desde el inicio del proceso, o -1 si no fue un arranque en frío */
+    private void recordStartup(final long coldMillis) {
+        final Context appContext = getApplicationContext();
+        final long firstDraw = firstDrawMillis;
+        final long fullyDrawn = fullyDrawnMillis;
+        DbExecutor.write(this, new DbExecutor.Work<Void>() {
+            @Override
+            public Void run(DatabaseHelper db) {
+                Metrics.record(appContext, Metrics.STARTUP_FIRST_DRAW, firstDraw);
+                Metrics.record(appContext, Metrics.STARTUP_FULLY_DRAWN, fullyDrawn);
+                if (coldMillis >= 0) {
+                    Metrics.record(appContext, Metrics.STARTUP_COLD, coldMillis);
+                }
+                return null;
+            }
+        }, new DbExecutor.Callback<Void>() {
+            @Override
+            public void onResult(Void result) {
+                // Solo se consultan en DiagnosticsActivity
+            }
+        });
+    }
 
-        // Verificar pagos vencidos al abrir la app
-        checkOverduePayments();
+    /** Repara la alarma de recordatorios si se perdió (por ejemplo, tras forzar la detención). */
+    private void reconcileReminders() {
+        final Context appContext = getApplicationContext();
+        DbExecutor.write(this, new DbExecutor.Work<Boolean>() {
+            @Override
+            public Boolean run(DatabaseHelper db) {
+                return NotificationScheduler.reconcile(appContext);
+            }
+        }, new DbExecutor.Callback<Boolean>() {
+            @Override
+            public void onResult(Boolean repaired) {
+                // Nada que mostrar: reconcile ya lo registra
+            }
+        });
     }
 
     private void initializeViews() {
         totalBalanceText = findViewById(R.id.totalBalanceText);
-        expensesListView = findViewById(R.id.expensesListView);
+        emptyListText = findViewById(R.id.emptyListText);
+        expensesRecyclerView = findViewById(R.id.expensesRecyclerView);
+
+        paymentAdapter = new PaymentAdapter(new PaymentAdapter.OnPaymentLongClickListener() {
+            @Override
+            public void onPaymentLongClick(PaymentItem item) {
+                showEditDeleteDialog(item);
+            }
+        });
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        expensesRecyclerView.setLayoutManager(layoutManager);
+        expensesRecyclerView.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+        expensesRecyclerView.setAdapter(paymentAdapter);
+
+        paymentPager = new PaymentPager(this, new PaymentPager.Listener() {
+            @Override
+            public void onWindowChanged(List<PaymentItem> items) {
+                showPayments(items);
+            }
+        });
+        expensesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                paymentPager.onVisibleRange(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition());
+            }
+        });
         addBalanceBtn = findViewById(R.id.addBalanceBtn);
         addExpenseBtn = findViewById(R.id.addExpenseBtn);
         addLoanBtn = findViewById(R.id.addLoanBtn);
+        searchBtn = findViewById(R.id.searchBtn);
         settingsBtn = findViewById(R.id.settingsBtn);
     }
 
@@ -72,6 +236,13 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        searchBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                startActivity(new Intent(MainActivity.this, SearchActivity.class));
+            }
+        });
+
         settingsBtn.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -80,104 +251,74 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private void updateUI() {
-        updateTotalBalance();
-        updateExpensesList();
+    /**
+     * Lee la base en segundo plano, guarda el snapshot y después actualiza la
+     * pantalla y avisa de pagos vencidos (tras el primer frame).
+     */
+    private void refreshFromDatabase() {
+        final Context appContext = getApplicationContext();
+        DbExecutor.read(this, new DbExecutor.Work<HomeSnapshot>() {
+            @Override
+            public HomeSnapshot run(DatabaseHelper db) {
+                // Hilo de lecturas: la sección aparece en la traza, no en el informe de StartupTrace
+                Trace.beginSection("HomeSnapshot.query");
+                try {
+                    HomeSnapshot snapshot = HomeSnapshot.query(db, System.currentTimeMillis());
+                    snapshot.save(appContext);
+                    return snapshot;
+                } finally {
+                    Trace.endSection();
+                }
+            }
+        }, new DbExecutor.Callback<HomeSnapshot>() {
+            @Override
+            public void onResult(HomeSnapshot snapshot) {
+                if (startupTrace != null) {
+                    startupTrace.mark("database");
+                }
+                // Al abrir, lo más común es que la base no haya cambiado desde el snapshot
+                if (shownSnapshot == null || !snapshot.sameContentAs(shownSnapshot)) {
+                    render(snapshot);
+                }
+                shownSnapshot = null;
+                databaseLoaded = true;
+
+                if (firstDrawDone) {
+                    showOverdueWarning(snapshot.overdueCount);
+                } else {
+                    pendingOverdueWarning = snapshot.overdueCount;
+                }
+                reportStartupIfDone();
+            }
+        });
     }
 
-    private void updateTotalBalance() {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT SUM(" + DatabaseHelper.COLUMN_BS_BALANCE + ") as total FROM " +
-                DatabaseHelper.TABLE_BALANCE_SOURCES, null);
+    private void render(HomeSnapshot snapshot) {
+        totalBalanceText.setText("Saldo Total: " + Formatters.money(snapshot.totalBalance));
 
-        double totalBalance = 0;
-        if (cursor.moveToFirst()) {
-            totalBalance = cursor.getDouble(cursor.getColumnIndex("total"));
-        }
-        cursor.close();
+        paymentPager.setFirstPage(snapshot.items);
 
-        NumberFormat formatter = NumberFormat.getCurrencyInstance(new Locale("es", "PE"));
-        totalBalanceText.setText("Saldo Total: " + formatter.format(totalBalance));
+        if (!reportedFullyDrawn) {
+            // Marca "Fully drawn" en logcat: tiempo hasta el primer frame con datos
+            reportedFullyDrawn = true;
+            reportFullyDrawn();
+            if (startupTrace != null) {
+                fullyDrawnMillis = startupTrace.mark("fully_drawn");
+            }
+        }
     }
 
-    private void updateExpensesList() {
-        final List<String> expenses = new ArrayList<>();
-        final List<PaymentItem> paymentItems = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+    private void showPayments(List<PaymentItem> items) {
+        List<PaymentRow> rows = new ArrayList<>(items.size());
         long currentTime = System.currentTimeMillis();
 
-        // Gastos recurrentes próximos a vencer
-        Cursor recurringCursor = db.rawQuery(
-                "SELECT " + DatabaseHelper.COLUMN_RE_ID + ", " +
-                        DatabaseHelper.COLUMN_RE_NAME + ", " +
-                        DatabaseHelper.COLUMN_RE_AMOUNT + ", " +
-                        DatabaseHelper.COLUMN_RE_DUE_DATE + " FROM " +
-                        DatabaseHelper.TABLE_RECURRING_EXPENSES +
-                        " WHERE " + DatabaseHelper.COLUMN_RE_IS_ACTIVE + " = 1 " +
-                        " ORDER BY " + DatabaseHelper.COLUMN_RE_DUE_DATE + " ASC LIMIT 10", null);
-
-        while (recurringCursor.moveToNext()) {
-            int id = recurringCursor.getInt(0);
-            String name = recurringCursor.getString(1);
-            double amount = recurringCursor.getDouble(2);
-            long dueDate = recurringCursor.getLong(3);
-
-            NumberFormat formatter = NumberFormat.getCurrencyInstance(new Locale("es", "PE"));
-            String timeInfo = getTimeUntilDue(dueDate, currentTime);
-
-            expenses.add("📺 " + name + " - " + formatter.format(amount) + "\n   " + timeInfo);
-            paymentItems.add(new PaymentItem(id, "expense", name, amount, dueDate));
-        }
-        recurringCursor.close();
-
-        // Cuotas de préstamos próximas
-        Cursor loansCursor = db.rawQuery(
-                "SELECT li." + DatabaseHelper.COLUMN_LI_ID + ", l." +
-                        DatabaseHelper.COLUMN_LOAN_NAME + ", li." +
-                        DatabaseHelper.COLUMN_LI_AMOUNT + ", li." +
-                        DatabaseHelper.COLUMN_LI_DUE_DATE + ", li." +
-                        DatabaseHelper.COLUMN_LI_INSTALLMENT_NUMBER + ", li." +
-                        DatabaseHelper.COLUMN_LI_IS_PAID + " FROM " +
-                        DatabaseHelper.TABLE_LOAN_INSTALLMENTS + " li JOIN " +
-                        DatabaseHelper.TABLE_LOANS + " l ON li." +
-                        DatabaseHelper.COLUMN_LI_LOAN_ID + " = l." +
-                        DatabaseHelper.COLUMN_LOAN_ID +
-                        " WHERE li." + DatabaseHelper.COLUMN_LI_IS_PAID + " = 0 " +
-                        " ORDER BY li." + DatabaseHelper.COLUMN_LI_DUE_DATE + " ASC LIMIT 10", null);
-
-        while (loansCursor.moveToNext()) {
-            int id = loansCursor.getInt(0);
-            String name = loansCursor.getString(1);
-            double amount = loansCursor.getDouble(2);
-            long dueDate = loansCursor.getLong(3);
-            int installmentNumber = loansCursor.getInt(4);
-
-            NumberFormat formatter = NumberFormat.getCurrencyInstance(new Locale("es", "PE"));
-            String timeInfo = getTimeUntilDue(dueDate, currentTime);
-
-            expenses.add("💳 " + name + " (Cuota " + installmentNumber + ") - " +
-                    formatter.format(amount) + "\n   " + timeInfo);
-            paymentItems.add(new PaymentItem(id, "loan", name + " - Cuota " + installmentNumber, amount, dueDate));
-        }
-        loansCursor.close();
-
-        if (expenses.isEmpty()) {
-            expenses.add("No hay gastos programados");
+        for (PaymentItem item : items) {
+            rows.add(new PaymentRow(item, Formatters.paymentRow(item, currentTime)));
         }
 
-        ExpenseAdapter adapter = new ExpenseAdapter(this, expenses);
-        expensesListView.setAdapter(adapter);
-
-        // Configurar clic largo para editar/eliminar
-        expensesListView.setOnItemLongClickListener(new android.widget.AdapterView.OnItemLongClickListener() {
-            @Override
-            public boolean onItemLongClick(android.widget.AdapterView<?> parent, View view, int position, long id) {
-                if (position < paymentItems.size()) {
-                    showEditDeleteDialog(paymentItems.get(position));
-                }
-                return true;
-            }
-        });
+        // El adapter compara con la lista anterior y solo toca las filas que cambiaron
+        paymentAdapter.submitList(rows);
+        emptyListText.setVisibility(rows.isEmpty() ? View.VISIBLE : View.GONE);
     }
 
     private void showEditDeleteDialog(final PaymentItem item) {
@@ -203,28 +344,26 @@ public class MainActivity extends AppCompatActivity {
         builder.show();
     }
 
-    private void markAsPaid(PaymentItem item) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-        android.content.ContentValues values = new android.content.ContentValues();
-
-        if (item.type.equals("loan")) {
-            values.put(DatabaseHelper.COLUMN_LI_IS_PAID, 1);
-            values.put(DatabaseHelper.COLUMN_LI_PAID_DATE, System.currentTimeMillis());
-            db.update(DatabaseHelper.TABLE_LOAN_INSTALLMENTS, values,
-                    DatabaseHelper.COLUMN_LI_ID + " = ?", new String[]{String.valueOf(item.id)});
-
-            NotificationScheduler.cancelAllNotifications(this, item.id);
-        } else {
-            values.put(DatabaseHelper.COLUMN_RE_IS_ACTIVE, 0);
-            db.update(DatabaseHelper.TABLE_RECURRING_EXPENSES, values,
-                    DatabaseHelper.COLUMN_RE_ID + " = ?", new String[]{String.valueOf(item.id)});
-
-            NotificationScheduler.cancelAllNotifications(this, item.id);
-        }
-
-        db.close();
-        Toast.makeText(this, "Marcado como pagado", Toast.LENGTH_SHORT).show();
-        updateUI();
+    private void markAsPaid(final PaymentItem item) {
+        final Context appContext = getApplicationContext();
+        DbExecutor.write(this, new DbExecutor.Work<Boolean>() {
+            @Override
+            public Boolean run(DatabaseHelper db) {
+                // Junto con la escritura: la alarma se cancela aunque se cierre la pantalla
+                NotificationScheduler.cancelAllNotifications(appContext, item.type, item.id);
+                if (item.type.equals("loan")) {
+                    return db.getLoanInstallmentDao().markPaid(item.id, System.currentTimeMillis());
+                } else {
+                    return db.getRecurringExpenseDao().deactivate(item.id);
+                }
+            }
+        }, new DbExecutor.Callback<Boolean>() {
+            @Override
+            public void onResult(Boolean updated) {
+                Toast.makeText(MainActivity.this, "Marcado como pagado", Toast.LENGTH_SHORT).show();
+                refreshFromDatabase();
+            }
+        });
     }
 
     private void confirmDelete(final PaymentItem item) {
@@ -243,71 +382,28 @@ public class MainActivity extends AppCompatActivity {
         builder.show();
     }
 
-    private void deletePayment(PaymentItem item) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-
-        if (item.type.equals("loan")) {
-            db.delete(DatabaseHelper.TABLE_LOAN_INSTALLMENTS,
-                    DatabaseHelper.COLUMN_LI_ID + " = ?", new String[]{String.valueOf(item.id)});
-            NotificationScheduler.cancelAllNotifications(this, item.id);
-        } else {
-            db.delete(DatabaseHelper.TABLE_RECURRING_EXPENSES,
-                    DatabaseHelper.COLUMN_RE_ID + " = ?", new String[]{String.valueOf(item.id)});
-            NotificationScheduler.cancelAllNotifications(this, item.id);
-        }
-
-        db.close();
-        Toast.makeText(this, "Eliminado exitosamente", Toast.LENGTH_SHORT).show();
-        updateUI();
-    }
-
-    // Clase auxiliar para guardar info de los items
-    private static class PaymentItem {
-        int id;
-        String type;
-        String name;
-        double amount;
-        long dueDate;
-
-        PaymentItem(int id, String type, String name, double amount, long dueDate) {
-            this.id = id;
-            this.type = type;
-            this.name = name;
-            this.amount = amount;
-            this.dueDate = dueDate;
-        }
-    }
-
-    private String getTimeUntilDue(long dueDate, long currentTime) {
-        long diffMillis = dueDate - currentTime;
-
-        if (diffMillis < 0) {
-            // Ya venció
-            long overdueDays = Math.abs(diffMillis) / (24 * 60 * 60 * 1000);
-            if (overdueDays == 0) {
-                return "🔴 VENCIDO HOY - FALTA PAGAR";
-            } else if (overdueDays == 1) {
-                return "🔴 VENCIDO hace 1 día - FALTA PAGAR";
-            } else {
-                return "🔴 VENCIDO hace " + overdueDays + " días - FALTA PAGAR";
+    private void deletePayment(final PaymentItem item) {
+        final Context appContext = getApplicationContext();
+        DbExecutor.write(this, new DbExecutor.Work<Boolean>() {
+            @Override
+            public Boolean run(DatabaseHelper db) {
+                NotificationScheduler.cancelAllNotifications(appContext, item.type, item.id);
+                if (item.type.equals("loan")) {
+                    return db.getLoanInstallmentDao().delete(item.id);
+                } else {
+                    return db.getRecurringExpenseDao().delete(item.id);
+                }
             }
-        }
-
-        long days = diffMillis / (24 * 60 * 60 * 1000);
-        long hours = (diffMillis % (24 * 60 * 60 * 1000)) / (60 * 60 * 1000);
-        long minutes = (diffMillis % (60 * 60 * 1000)) / (60 * 1000);
-
-        if (days > 0) {
-            java.text.DateFormat dateFormat = java.text.DateFormat.getDateInstance();
-            return "Vence en " + days + " día" + (days > 1 ? "s" : "") + " (" +
-                    dateFormat.format(new java.util.Date(dueDate)) + ")";
-        } else if (hours > 0) {
-            return "⚠️ Vence en " + hours + " hora" + (hours > 1 ? "s" : "");
-        } else {
-            return "🔴 Vence en " + minutes + " minuto" + (minutes > 1 ? "s" : "");
-        }
+        }, new DbExecutor.Callback<Boolean>() {
+            @Override
+            public void onResult(Boolean deleted) {
+                Toast.makeText(MainActivity.this, "Eliminado exitosamente", Toast.LENGTH_SHORT).show();
+                refreshFromDatabase();
+            }
+        });
     }
 
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             CharSequence name = "Recordatorios de Gastos";
@@ -324,43 +420,16 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        updateUI();
-        checkOverduePayments();
+        refreshFromDatabase();
     }
 
-    private void checkOverduePayments() {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        long currentTime = System.currentTimeMillis();
-        int overdueCount = 0;
-
-        // Contar cuotas vencidas
-        Cursor loansCursor = db.rawQuery(
-                "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS +
-                        " WHERE " + DatabaseHelper.COLUMN_LI_IS_PAID + " = 0 " +
-                        " AND " + DatabaseHelper.COLUMN_LI_DUE_DATE + " < ?",
-                new String[]{String.valueOf(currentTime)});
-        if (loansCursor.moveToFirst()) {
-            overdueCount += loansCursor.getInt(0);
-        }
-        loansCursor.close();
-
-        // Contar suscripciones vencidas
-        Cursor subscriptionsCursor = db.rawQuery(
-                "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_RECURRING_EXPENSES +
-                        " WHERE " + DatabaseHelper.COLUMN_RE_IS_ACTIVE + " = 1 " +
-                        " AND " + DatabaseHelper.COLUMN_RE_DUE_DATE + " < ?",
-                new String[]{String.valueOf(currentTime)});
-        if (subscriptionsCursor.moveToFirst()) {
-            overdueCount += subscriptionsCursor.getInt(0);
-        }
-        subscriptionsCursor.close();
-        db.close();
-
-        // Mostrar alerta si hay pagos vencidos
-        if (overdueCount > 0) {
+    private void showOverdueWarning(int overdueCount) {
+        // Mostrar alerta si hay pagos vencidos, una vez por cantidad
+        if (overdueCount > 0 && overdueCount != warnedOverdueCount) {
             String message = "Tienes " + overdueCount + " pago" + (overdueCount > 1 ? "s" : "") +
                     " vencido" + (overdueCount > 1 ? "s" : "") + " sin pagar";
             Toast.makeText(this, "⚠️ " + message, Toast.LENGTH_LONG).show();
         }
+        warnedOverdueCount = overdueCount;
     }
-}
\ No newline at end of file
+}
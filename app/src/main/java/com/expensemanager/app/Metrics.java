@@ -0,0 +1,53 @@
+package com.expensemanager.app;
+
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Registro de métricas de alarmas y recordatorios en metric_events, para
+ * ajustar la política de avisos según lo que cuesta en batería, y de los
+ * tiempos de arranque de {@link MainActivity}. Se consultan en
+ * {@link DiagnosticsActivity}.
+ *
+ * Registrar nunca debe romper una entrega: los errores solo se anotan en el log.
+ */
+public final class Metrics {
+
+    private static final String TAG = "Metrics";
+
+    /** Alarma armada; valor: ms hasta que suene. */
+    public static final String ALARM_SET = "alarm.set";
+    /** Alarma cancelada. */
+    public static final String ALARM_CANCEL = "alarm.cancel";
+    /** El equipo despertó para entregar recordatorios; valor: notificaciones mostradas. */
+    public static final String WAKEUP_DELIVER = "wakeup.deliver";
+    /** El equipo despertó para retomar la reprogramación al encender. */
+    public static final String WAKEUP_RESUME = "wakeup.resume";
+    /** Hora real de la entrega menos la hora armada, en ms. */
+    public static final String DELIVERY_LATENESS = "delivery.lateness";
+    /** Duración de onReceive, incluido el trabajo en segundo plano, en ms. */
+    public static final String RECEIVER_DELIVER = "receiver.deliver";
+    public static final String RECEIVER_MARK_PAID = "receiver.mark_paid";
+    public static final String RECEIVER_LEGACY = "receiver.legacy";
+    public static final String RECEIVER_BOOT = "receiver.boot";
+    /** Pasada de reprogramación terminada; valor: pagos reprogramados. */
+    public static final String BOOT_PASS_ITEMS = "boot.items";
+    /** ms desde MainActivity.onCreate hasta el primer frame. */
+    public static final String STARTUP_FIRST_DRAW = "startup.first_draw";
+    /** ms desde MainActivity.onCreate hasta reportFullyDrawn (primer frame con datos). */
+    public static final String STARTUP_FULLY_DRAWN = "startup.fully_drawn";
+    /** Arranque en frío: ms desde el inicio del proceso hasta reportFullyDrawn. */
+    public static final String STARTUP_COLD = "startup.cold";
+
+    private Metrics() {
+    }
+
+    /** Accede a la base: llamar fuera del hilo principal (o desde un receiver). */
+    public static void record(Context context, String kind, long value) {
+        try {
+            DatabaseHelper.getInstance(context).getMetricsDao().insert(kind, System.currentTimeMillis(), value);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "No se pudo registrar " + kind, e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.expensemanager.app;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Acceso a metric_events. Obtener con {@link DatabaseHelper#getMetricsDao()};
+ * para registrar, usar {@link Metrics}.
+ *
+ * Buffer circular: cada inserción borra, por id, lo que quede más allá de las
+ * últimas {@link #CAPACITY} filas.
+ */
+public class MetricsDao {
+
+    public static final int CAPACITY = 2000;
+
+    private static final String SQL_VALUES = "SELECT " + DatabaseHelper.COLUMN_ME_VALUE +
+            " FROM " + DatabaseHelper.TABLE_METRIC_EVENTS +
+            " WHERE " + DatabaseHelper.COLUMN_ME_KIND + " = ?" +
+            " ORDER BY " + DatabaseHelper.COLUMN_ME_VALUE + " ASC";
+    private static final String SQL_ALL = "SELECT " +
+            DatabaseHelper.COLUMN_ME_AT + ", " +
+            DatabaseHelper.COLUMN_ME_KIND + ", " +
+            DatabaseHelper.COLUMN_ME_VALUE +
+            " FROM " + DatabaseHelper.TABLE_METRIC_EVENTS +
+            " ORDER BY " + DatabaseHelper.COLUMN_ME_ID + " ASC";
+
+    private final SQLiteDatabase db;
+    private final SQLiteStatement insertStatement;
+    private final SQLiteStatement trimStatement;
+    private final SQLiteStatement countStatement;
+    private final SQLiteStatement oldestStatement;
+
+    MetricsDao(SQLiteDatabase db) {
+        this.db = db;
+        this.insertStatement = db.compileStatement(
+                "INSERT INTO " + DatabaseHelper.TABLE_METRIC_EVENTS + " (" +
+                        DatabaseHelper.COLUMN_ME_KIND + ", " +
+                        DatabaseHelper.COLUMN_ME_AT + ", " +
+                        DatabaseHelper.COLUMN_ME_VALUE + ") VALUES (?, ?, ?)");
+        this.trimStatement = db.compileStatement(
+                "DELETE FROM " + DatabaseHelper.TABLE_METRIC_EVENTS +
+                        " WHERE " + DatabaseHelper.COLUMN_ME_ID + " <= ?");
+        this.countStatement = db.compileStatement(
+                "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_METRIC_EVENTS +
+                        " WHERE " + DatabaseHelper.COLUMN_ME_KIND + " = ?");
+        this.oldestStatement = db.compileStatement(
+                "SELECT IFNULL(MIN(" + DatabaseHelper.COLUMN_ME_AT + "), 0) FROM " +
+                        DatabaseHelper.TABLE_METRIC_EVENTS);
+    }
+
+    public void insert(String kind, long at, long value) {
+        db.beginTransaction();
+        try {
+            long id;
+            synchronized (insertStatement) {
+                insertStatement.bindString(1, kind);
+                insertStatement.bindLong(2, at);
+                insertStatement.bindLong(3, value);
+                id = insertStatement.executeInsert();
+            }
+            if (id > CAPACITY) {
+                synchronized (trimStatement) {
+                    trimStatement.bindLong(1, id - CAPACITY);
+                    trimStatement.executeUpdateDelete();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Valores de un tipo de evento, de menor a mayor. */
+    public long[] getSortedValues(String kind) {
+        Cursor cursor = db.rawQuery(SQL_VALUES, new String[]{kind});
+        try {
+            long[] values = new long[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                values[i] = cursor.getLong(0);
+            }
+            return values;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public int count(String kind) {
+        synchronized (countStatement) {
+            countStatement.bindString(1, kind);
+            return (int) countStatement.simpleQueryForLong();
+        }
+    }
+
+    /** @return hora del evento más antiguo que conserva el buffer, o 0 si está vacío */
+    public long getOldestAt() {
+        synchronized (oldestStatement) {
+            return oldestStatement.simpleQueryForLong();
+        }
+    }
+
+    /** Todas las filas como CSV (at,kind,value), de la más antigua a la más nueva. */
+    public String dumpCsv() {
+        StringBuilder csv = new StringBuilder("at,kind,value\n");
+        Cursor cursor = db.rawQuery(SQL_ALL, null);
+        try {
+            while (cursor.moveToNext()) {
+                csv.append(cursor.getLong(0)).append(',')
+                        .append(cursor.getString(1)).append(',')
+                        .append(cursor.getLong(2)).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+        return csv.toString();
+    }
+}
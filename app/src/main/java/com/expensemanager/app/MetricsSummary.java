@@ -0,0 +1,78 @@
+package com.expensemanager.app;
+
+/**
+ * Texto de los histogramas de {@link DiagnosticsActivity}. Sin dependencias de
+ * Android.
+ */
+public final class MetricsSummary {
+
+    /** Límites superiores (exclusivos) de los tramos de duración, en ms. */
+    public static final long[] DURATION_BOUNDS = {10, 50, 100, 250, 500, 1000, 5000};
+    /** Límites de los tramos de atraso de entrega, en ms. */
+    public static final long[] LATENESS_BOUNDS = {1000, 5000, 30 * 1000L, 60 * 1000L, 5 * 60 * 1000L,
+            15 * 60 * 1000L};
+
+    private static final int BAR_WIDTH = 20;
+
+    private MetricsSummary() {
+    }
+
+    /**
+     * "receiver.deliver  n=34  p50=12 ms  p95=80 ms  max=140 ms" y una línea
+     * por tramo con su barra.
+     *
+     * @param sortedValues valores de menor a mayor
+     */
+    public static String histogram(String title, long[] sortedValues, long[] bounds) {
+        StringBuilder out = new StringBuilder(title);
+        int n = sortedValues.length;
+        if (n == 0) {
+            return out.append("  sin datos\n").toString();
+        }
+        out.append("  n=").append(n)
+                .append("  p50=").append(duration(percentile(sortedValues, 50)))
+                .append("  p95=").append(duration(percentile(sortedValues, 95)))
+                .append("  max=").append(duration(sortedValues[n - 1]))
+                .append('\n');
+
+        int[] counts = new int[bounds.length + 1];
+        int bucket = 0;
+        for (long value : sortedValues) {
+            while (bucket < bounds.length && value >= bounds[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+        }
+        int max = 0;
+        for (int count : counts) {
+            max = Math.max(max, count);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            String label = i < bounds.length ? "< " + duration(bounds[i]) : ">= " + duration(bounds[i - 1]);
+            out.append(String.format("  %-10s ", label));
+            int bar = counts[i] == 0 ? 0 : Math.max(1, counts[i] * BAR_WIDTH / max);
+            for (int j = 0; j < bar; j++) {
+                out.append('#');
+            }
+            out.append(' ').append(counts[i]).append('\n');
+        }
+        return out.toString();
+    }
+
+    /** Percentil por rango más cercano sobre valores ordenados (no vacíos). */
+    public static long percentile(long[] sortedValues, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(0, rank - 1)];
+    }
+
+    /** "850 ms", "12 s", "5 min" */
+    public static String duration(long millis) {
+        if (Math.abs(millis) < 1000) {
+            return millis + " ms";
+        }
+        if (Math.abs(millis) < 60 * 1000) {
+            return millis / 1000 + " s";
+        }
+        return millis / (60 * 1000) + " min";
+    }
+}
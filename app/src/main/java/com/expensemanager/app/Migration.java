@@ -0,0 +1,114 @@
+package com.expensemanager.app;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+/**
+ * Un paso del esquema: lleva la base de {@code version - 1} a {@code version}.
+ *
+ * El SQL de cada migración queda congelado tal como era en su versión; no debe
+ * usar las constantes de {@link DatabaseHelper}, que siguen cambiando.
+ */
+abstract class Migration {
+
+    private static final String TAG = "Migration";
+
+    /** Filas copiadas por sentencia en los backfills grandes. */
+    static final int BACKFILL_CHUNK_SIZE = 10000;
+
+    final int version;
+    final String description;
+
+    Migration(int version, String description) {
+        this.version = version;
+        this.description = description;
+    }
+
+    abstract void migrate(SQLiteDatabase db);
+
+    static boolean hasColumn(SQLiteDatabase db, String table, String column) {
+        Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+        try {
+            while (cursor.moveToNext()) {
+                // 1 = name
+                if (column.equalsIgnoreCase(cursor.getString(1))) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * ALTER TABLE ... ADD COLUMN solo si la columna falta. Algunas instalaciones
+     * se crearon con columnas que su versión todavía no declaraba.
+     */
+    static void addColumnIfMissing(SQLiteDatabase db, String table, String column, String definition) {
+        if (!hasColumn(db, table, column)) {
+            db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
+    /**
+     * Recrea {@code table} con la definición dada copiando sus filas por bloques de
+     * id, y conserva el contador AUTOINCREMENT para no reutilizar ids de filas
+     * borradas. Los índices de la tabla original se pierden.
+     */
+    static void rebuildTable(SQLiteDatabase db, String table, String columnDefinitions,
+                             String columns, String selectExpressions) {
+        String newTable = table + "_new";
+        db.execSQL("CREATE TABLE " + newTable + "(" + columnDefinitions + ")");
+        int copied = copyInChunks(db, table, newTable, columns, selectExpressions);
+        db.execSQL("DELETE FROM sqlite_sequence WHERE name = '" + newTable + "'");
+        db.execSQL("INSERT INTO sqlite_sequence (name, seq) SELECT '" + newTable + "', seq FROM sqlite_sequence"
+                + " WHERE name = '" + table + "'");
+        db.execSQL("DROP TABLE " + table);
+        db.execSQL("ALTER TABLE " + newTable + " RENAME TO " + table);
+        Log.d(TAG, table + ": " + copied + " filas copiadas");
+    }
+
+    /**
+     * INSERT ... SELECT en tramos de {@link #BACKFILL_CHUNK_SIZE} ids, para que
+     * ninguna sentencia tenga que recorrer y guardar en el journal la tabla entera.
+     * {@code source} debe tener una columna {@code id} entera.
+     *
+     * @return filas copiadas
+     */
+    static int copyInChunks(SQLiteDatabase db, String source, String target,
+                            String columns, String selectExpressions) {
+        return copyInChunks(db, source, target, columns, selectExpressions, "1");
+    }
+
+    /**
+     * Como {@link #copyInChunks(SQLiteDatabase, String, String, String, String)},
+     * copiando solo las filas que cumplen {@code condition}.
+     */
+    static int copyInChunks(SQLiteDatabase db, String source, String target,
+                            String columns, String selectExpressions, String condition) {
+        SQLiteStatement copy = db.compileStatement("INSERT INTO " + target + " (" + columns + ") SELECT "
+                + selectExpressions + " FROM " + source + " WHERE (" + condition + ") AND id > ? AND id <= ?");
+        SQLiteStatement maxId = db.compileStatement("SELECT IFNULL(MAX(id), 0) FROM " + source);
+        try {
+            long last = maxId.simpleQueryForLong();
+            int copied = 0;
+            for (long from = 0; from < last; from += BACKFILL_CHUNK_SIZE) {
+                copy.bindLong(1, from);
+                copy.bindLong(2, Math.min(from + BACKFILL_CHUNK_SIZE, last));
+                copied += copy.executeUpdateDelete();
+            }
+            return copied;
+        } finally {
+            copy.close();
+            maxId.close();
+        }
+    }
+
+    /** Monto en soles (REAL) a céntimos (INTEGER) dentro de un SELECT. */
+    static String toCents(String column) {
+        return "CAST(ROUND(IFNULL(" + column + ", 0) * 100) AS INTEGER)";
+    }
+}
@@ -0,0 +1,82 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * v10: totales mensuales por categoría y fuente (monthly_rollups), sus triggers
+ * y el cálculo inicial desde el historial.
+ */
+final class MigrationTo10 extends Migration {
+
+    private static final String MONTH = "strftime('%Y-%m', ROW.DATE / 1000, 'unixepoch', 'localtime')";
+
+    MigrationTo10() {
+        super(10, "totales mensuales");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE monthly_rollups(month TEXT NOT NULL,category TEXT NOT NULL,"
+                + "source_id INTEGER NOT NULL DEFAULT 0,total INTEGER NOT NULL DEFAULT 0,"
+                + "item_count INTEGER NOT NULL DEFAULT 0,PRIMARY KEY (month, category, source_id)) WITHOUT ROWID");
+
+        createTriggers(db, "recurring_expenses", "due_date", "ROW.type", "0", "amount", "type",
+                "NOT EXISTS (SELECT 1 FROM recurring_expenses_archive WHERE id = OLD.id)");
+        createDeleteTrigger(db, "recurring_expenses_archive", "due_date", "ROW.type", "0", "amount", null);
+        createTriggers(db, "loan_installments", "due_date", "'PRÉSTAMO'", "0", "amount", null,
+                "NOT EXISTS (SELECT 1 FROM loan_installments_archive WHERE id = OLD.id)");
+        createDeleteTrigger(db, "loan_installments_archive", "due_date", "'PRÉSTAMO'", "0", "amount", null);
+        createTriggers(db, "other_expenses", "date", "IFNULL(ROW.category, 'OTROS')", "IFNULL(ROW.source_id, 0)",
+                "amount", "category, source_id", null);
+
+        // Una sola agregación: el resultado tiene una fila por mes y categoría
+        db.execSQL("INSERT INTO monthly_rollups (month, category, source_id, total, item_count)"
+                + " SELECT m, c, s, SUM(a), COUNT(*) FROM ("
+                + "SELECT " + month("due_date") + " AS m, type AS c, 0 AS s, amount AS a"
+                + " FROM recurring_expenses_history"
+                + " UNION ALL SELECT " + month("due_date") + ", 'PRÉSTAMO', 0, amount"
+                + " FROM loan_installments_history"
+                + " UNION ALL SELECT " + month("date") + ", IFNULL(category, 'OTROS'), IFNULL(source_id, 0), amount"
+                + " FROM other_expenses"
+                + ") GROUP BY m, c, s");
+    }
+
+    private static String month(String column) {
+        return MONTH.replace("ROW.DATE", column);
+    }
+
+    private static void createTriggers(SQLiteDatabase db, String table, String date, String category,
+                                       String sourceId, String amount, String extraUpdateColumns,
+                                       String deleteCondition) {
+        db.execSQL("CREATE TRIGGER trg_" + table + "_rollup_insert AFTER INSERT ON " + table + " BEGIN "
+                + change("NEW", date, category, sourceId, amount, "+") + " END");
+        db.execSQL("CREATE TRIGGER trg_" + table + "_rollup_update AFTER UPDATE OF " + date + ", " + amount
+                + (extraUpdateColumns != null ? ", " + extraUpdateColumns : "") + " ON " + table + " BEGIN "
+                + change("OLD", date, category, sourceId, amount, "-")
+                + change("NEW", date, category, sourceId, amount, "+") + " END");
+        createDeleteTrigger(db, table, date, category, sourceId, amount, deleteCondition);
+    }
+
+    private static void createDeleteTrigger(SQLiteDatabase db, String table, String date, String category,
+                                            String sourceId, String amount, String condition) {
+        db.execSQL("CREATE TRIGGER trg_" + table + "_rollup_delete AFTER DELETE ON " + table
+                + (condition != null ? " WHEN " + condition : "") + " BEGIN "
+                + change("OLD", date, category, sourceId, amount, "-") + " END");
+    }
+
+    private static String change(String row, String date, String category, String sourceId, String amount,
+                                 String sign) {
+        String month = month(row + "." + date);
+        String c = category.replace("ROW", row);
+        String s = sourceId.replace("ROW", row);
+        String key = " WHERE month = " + month + " AND category = " + c + " AND source_id = " + s;
+        String update = "UPDATE monthly_rollups SET total = total " + sign + " " + row + "." + amount
+                + ", item_count = item_count " + sign + " 1" + key + "; ";
+
+        if (sign.equals("+")) {
+            return "INSERT OR IGNORE INTO monthly_rollups (month, category, source_id) VALUES ("
+                    + month + ", " + c + ", " + s + "); " + update;
+        }
+        return update + "DELETE FROM monthly_rollups" + key + " AND item_count = 0; ";
+    }
+}
@@ -0,0 +1,24 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * v11: cola de recordatorios (reminder_queue). Empieza vacía: las alarmas ya
+ * armadas con la versión anterior siguen llegando por su cuenta, y la
+ * reprogramación al encender el equipo llena la cola.
+ */
+final class MigrationTo11 extends Migration {
+
+    MigrationTo11() {
+        super(11, "cola de recordatorios");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE reminder_queue(id INTEGER PRIMARY KEY AUTOINCREMENT,item_type TEXT NOT NULL,"
+                + "item_id INTEGER NOT NULL,title TEXT NOT NULL,amount INTEGER NOT NULL,"
+                + "days_remaining INTEGER NOT NULL,trigger_at INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_reminder_queue_trigger_at ON reminder_queue(trigger_at)");
+        db.execSQL("CREATE INDEX idx_reminder_queue_item ON reminder_queue(item_type, item_id)");
+    }
+}
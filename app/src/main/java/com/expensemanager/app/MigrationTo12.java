@@ -0,0 +1,19 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * v12: métricas de alarmas y entregas de recordatorios (metric_events).
+ */
+final class MigrationTo12 extends Migration {
+
+    MigrationTo12() {
+        super(12, "métricas de recordatorios");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE metric_events(id INTEGER PRIMARY KEY AUTOINCREMENT,kind TEXT NOT NULL,"
+                + "at INTEGER NOT NULL,value INTEGER NOT NULL DEFAULT 0)");
+    }
+}
@@ -0,0 +1,125 @@
+package com.expensemanager.app;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import java.util.Arrays;
+
+/**
+ * v13: método de amortización de cada préstamo y desglose de las cuotas en
+ * capital, interés y saldo. Los préstamos existentes son de cuotas iguales
+ * ('PLANO'); su desglose se calcula aquí, una vez por préstamo, con el reparto
+ * de cuotas iguales que tenía Amortization en esta versión.
+ */
+final class MigrationTo13 extends Migration {
+
+    private static final String INSTALLMENT_COLUMNS = "id, loan_id, installment_number, amount, due_date,"
+            + " is_paid, paid_date, reminder_days, notification_interval_hours, principal, interest, balance";
+
+    MigrationTo13() {
+        super(13, "amortización de préstamos");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE loans ADD COLUMN amortization_method TEXT NOT NULL DEFAULT 'PLANO'");
+        for (String table : new String[] {"loan_installments", "loan_installments_archive"}) {
+            db.execSQL("ALTER TABLE " + table + " ADD COLUMN principal INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + table + " ADD COLUMN interest INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + table + " ADD COLUMN balance INTEGER NOT NULL DEFAULT 0");
+        }
+
+        db.execSQL("DROP VIEW loan_installments_history");
+        db.execSQL("CREATE VIEW loan_installments_history AS SELECT " + INSTALLMENT_COLUMNS
+                + " FROM loan_installments UNION ALL SELECT " + INSTALLMENT_COLUMNS
+                + " FROM loan_installments_archive");
+
+        backfillBreakdown(db);
+    }
+
+    /**
+     * El cronograma tiene loans.installments cuotas aunque se haya eliminado
+     * alguna (MainActivity borra cuotas sueltas). Cada cuota guardada se reparte
+     * con su propio monto: antes de v4 se guardaban como ROUND(total / n) y no
+     * suman loans.total_amount. Una cuota eliminada cuenta con
+     * loans.installment_amount, para que las siguientes tengan el saldo que les
+     * corresponde.
+     */
+    private static void backfillBreakdown(SQLiteDatabase db) {
+        // Los triggers de loan_installments solo miran amount, is_paid y due_date
+        SQLiteStatement[] updates = {
+                db.compileStatement("UPDATE loan_installments SET principal = ?, interest = ?, balance = ?"
+                        + " WHERE loan_id = ? AND installment_number = ?"),
+                db.compileStatement("UPDATE loan_installments_archive SET principal = ?, interest = ?,"
+                        + " balance = ? WHERE loan_id = ? AND installment_number = ?")};
+        Cursor cursor = db.rawQuery("SELECT l.id, l.capital, l.installments, l.installment_amount,"
+                + " h.installment_number, h.amount FROM loans l"
+                + " JOIN loan_installments_history h ON h.loan_id = l.id"
+                + " WHERE h.installment_number BETWEEN 1 AND l.installments"
+                + " ORDER BY l.id, h.installment_number", null);
+        try {
+            // 0 = id, 1 = capital, 2 = cuotas, 3 = cuota regular, 4 = número, 5 = monto
+            boolean more = cursor.moveToFirst();
+            while (more) {
+                long loanId = cursor.getLong(0);
+                long capital = cursor.getLong(1);
+                long[] amounts = new long[cursor.getInt(2)];
+                Arrays.fill(amounts, cursor.getLong(3));
+                do {
+                    amounts[cursor.getInt(4) - 1] = cursor.getLong(5);
+                    more = cursor.moveToNext();
+                } while (more && cursor.getLong(0) == loanId);
+                flat(updates, loanId, capital, amounts);
+            }
+        } finally {
+            cursor.close();
+            for (SQLiteStatement update : updates) {
+                update.close();
+            }
+        }
+    }
+
+    /**
+     * Cuotas iguales como en 'PLANO' al escribir esta migración: el interés
+     * total se reparte igual entre las cuotas y, si una cuota no alcanza para
+     * su parte de capital, el capital pendiente se termina de pagar antes; la
+     * última amortiza el saldo. Copiado aquí para que un cambio posterior en
+     * Amortization no cambie lo que hace esta versión.
+     *
+     * @param amounts monto de cada cuota, de la 1 a la última
+     */
+    private static void flat(SQLiteStatement[] updates, long loanId, long capital, long[] amounts) {
+        long total = 0;
+        for (long amount : amounts) {
+            total += amount;
+        }
+        total = Math.max(0, total);
+        // Sin capital (préstamos de antes de v2, que v2 dejó en 0) todo es interés
+        capital = Math.min(Math.max(0, capital), total);
+
+        int count = amounts.length;
+        long regularInterest = (total - capital) / count;
+        long balance = capital;
+        for (int n = 1; n < count; n++) {
+            long payment = amounts[n - 1];
+            long interest = Math.min(payment, Math.max(regularInterest, payment - balance));
+            long principal = payment - interest;
+            balance -= principal;
+            update(updates, loanId, n, principal, interest, balance);
+        }
+        update(updates, loanId, count, balance, amounts[count - 1] - balance, 0);
+    }
+
+    /** Escribe la cuota en la tabla donde esté, viva o archivada. */
+    private static void update(SQLiteStatement[] updates, long loanId, int number, long principal,
+                               long interest, long balance) {
+        for (SQLiteStatement update : updates) {
+            update.bindLong(1, principal);
+            update.bindLong(2, interest);
+            update.bindLong(3, balance);
+            update.bindLong(4, loanId);
+            update.bindLong(5, number);
+            update.executeUpdateDelete();
+        }
+    }
+}
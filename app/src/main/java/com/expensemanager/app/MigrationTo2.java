@@ -0,0 +1,19 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * v2: capital y tasa de interés de los préstamos.
+ */
+final class MigrationTo2 extends Migration {
+
+    MigrationTo2() {
+        super(2, "capital e interés de préstamos");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        addColumnIfMissing(db, "loans", "capital", "REAL DEFAULT 0");
+        addColumnIfMissing(db, "loans", "interest_rate", "REAL DEFAULT 0");
+    }
+}
@@ -0,0 +1,20 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * v3: frecuencia de pago de los préstamos y fecha de pago de las cuotas.
+ */
+final class MigrationTo3 extends Migration {
+
+    MigrationTo3() {
+        super(3, "frecuencia de pago y fecha de pago");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        addColumnIfMissing(db, "loans", "payment_frequency", "TEXT DEFAULT 'MENSUAL'");
+        addColumnIfMissing(db, "loans", "payment_interval_days", "INTEGER DEFAULT 30");
+        addColumnIfMissing(db, "loan_installments", "paid_date", "INTEGER DEFAULT 0");
+    }
+}
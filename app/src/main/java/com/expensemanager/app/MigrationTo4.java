@@ -0,0 +1,19 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * v4: intervalo entre notificaciones de gastos y cuotas.
+ */
+final class MigrationTo4 extends Migration {
+
+    MigrationTo4() {
+        super(4, "intervalo de notificaciones");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        addColumnIfMissing(db, "recurring_expenses", "notification_interval_hours", "INTEGER DEFAULT 2");
+        addColumnIfMissing(db, "loan_installments", "notification_interval_hours", "INTEGER DEFAULT 2");
+    }
+}
@@ -0,0 +1,28 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * v5: índices de las consultas por estado y fecha de vencimiento.
+ */
+final class MigrationTo5 extends Migration {
+
+    MigrationTo5() {
+        super(5, "índices de vencimiento");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        createIndexes(db);
+    }
+
+    /** Índices de v5; {@link MigrationTo6} los vuelve a crear tras reconstruir las tablas. */
+    static void createIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_loan_installments_pending_due"
+                + " ON loan_installments(is_paid, due_date)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_loan_installments_loan_id"
+                + " ON loan_installments(loan_id)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_recurring_expenses_active_due"
+                + " ON recurring_expenses(is_active, due_date)");
+    }
+}
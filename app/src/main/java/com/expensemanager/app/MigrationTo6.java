@@ -0,0 +1,60 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * v6: montos de REAL (soles) a INTEGER (céntimos). SQLite no cambia el tipo de
+ * una columna, así que cada tabla se reconstruye y se copia.
+ */
+final class MigrationTo6 extends Migration {
+
+    MigrationTo6() {
+        super(6, "montos en céntimos");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        rebuildTable(db, "balance_sources",
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, type TEXT NOT NULL,"
+                        + " balance INTEGER DEFAULT 0",
+                "id, name, type, balance",
+                "id, name, type, " + toCents("balance"));
+        rebuildTable(db, "recurring_expenses",
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, amount INTEGER NOT NULL,"
+                        + " type TEXT NOT NULL, due_date INTEGER NOT NULL, reminder_days INTEGER DEFAULT 3,"
+                        + " notification_interval_hours INTEGER DEFAULT 2, is_active INTEGER DEFAULT 1",
+                "id, name, amount, type, due_date, reminder_days, notification_interval_hours, is_active",
+                "id, name, " + toCents("amount") + ", type, due_date, reminder_days,"
+                        + " notification_interval_hours, is_active");
+        rebuildTable(db, "loans",
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, capital INTEGER NOT NULL,"
+                        + " interest_rate REAL NOT NULL, total_amount INTEGER NOT NULL,"
+                        + " installments INTEGER NOT NULL, installment_amount INTEGER NOT NULL,"
+                        + " start_date INTEGER NOT NULL, payment_frequency TEXT DEFAULT 'MENSUAL',"
+                        + " payment_interval_days INTEGER DEFAULT 30",
+                "id, name, capital, interest_rate, total_amount, installments, installment_amount,"
+                        + " start_date, payment_frequency, payment_interval_days",
+                "id, name, " + toCents("capital") + ", IFNULL(interest_rate, 0), " + toCents("total_amount")
+                        + ", installments, " + toCents("installment_amount")
+                        + ", start_date, payment_frequency, payment_interval_days");
+        rebuildTable(db, "loan_installments",
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, loan_id INTEGER NOT NULL,"
+                        + " installment_number INTEGER NOT NULL, amount INTEGER NOT NULL,"
+                        + " due_date INTEGER NOT NULL, is_paid INTEGER DEFAULT 0, paid_date INTEGER DEFAULT 0,"
+                        + " reminder_days INTEGER DEFAULT 3, notification_interval_hours INTEGER DEFAULT 2,"
+                        + " FOREIGN KEY(loan_id) REFERENCES loans(id)",
+                "id, loan_id, installment_number, amount, due_date, is_paid, paid_date, reminder_days,"
+                        + " notification_interval_hours",
+                "id, loan_id, installment_number, " + toCents("amount") + ", due_date, is_paid, paid_date,"
+                        + " reminder_days, notification_interval_hours");
+        rebuildTable(db, "other_expenses",
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, amount INTEGER NOT NULL,"
+                        + " date INTEGER NOT NULL, category TEXT, source_id INTEGER,"
+                        + " FOREIGN KEY(source_id) REFERENCES balance_sources(id)",
+                "id, name, amount, date, category, source_id",
+                "id, name, " + toCents("amount") + ", date, category, source_id");
+
+        // Los índices se pierden al borrar las tablas originales
+        MigrationTo5.createIndexes(db);
+    }
+}
@@ -0,0 +1,62 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * v7: fila de totales del dashboard y los triggers que la mantienen.
+ */
+final class MigrationTo7 extends Migration {
+
+    MigrationTo7() {
+        super(7, "resumen del dashboard");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE dashboard_summary("
+                + "id INTEGER PRIMARY KEY CHECK (id = 1),"
+                + "total_balance INTEGER NOT NULL DEFAULT 0,"
+                + "active_recurring_total INTEGER NOT NULL DEFAULT 0,"
+                + "pending_installment_total INTEGER NOT NULL DEFAULT 0)");
+
+        db.execSQL("INSERT INTO dashboard_summary"
+                + " (id, total_balance, active_recurring_total, pending_installment_total) SELECT 1, "
+                + "(SELECT IFNULL(SUM(balance), 0) FROM balance_sources), "
+                + "(SELECT IFNULL(SUM(amount), 0) FROM recurring_expenses WHERE is_active = 1), "
+                + "(SELECT IFNULL(SUM(amount), 0) FROM loan_installments WHERE is_paid = 0)");
+
+        String balanceNew = "IFNULL(NEW.balance, 0)";
+        String balanceOld = "IFNULL(OLD.balance, 0)";
+        createTrigger(db, "trg_balance_sources_summary_insert", "INSERT", "balance_sources",
+                "total_balance", balanceNew);
+        createTrigger(db, "trg_balance_sources_summary_update", "UPDATE OF balance", "balance_sources",
+                "total_balance", balanceNew + " - " + balanceOld);
+        createTrigger(db, "trg_balance_sources_summary_delete", "DELETE", "balance_sources",
+                "total_balance", "-" + balanceOld);
+
+        String activeNew = "(CASE WHEN NEW.is_active = 1 THEN NEW.amount ELSE 0 END)";
+        String activeOld = "(CASE WHEN OLD.is_active = 1 THEN OLD.amount ELSE 0 END)";
+        createTrigger(db, "trg_recurring_expenses_summary_insert", "INSERT", "recurring_expenses",
+                "active_recurring_total", activeNew);
+        createTrigger(db, "trg_recurring_expenses_summary_update", "UPDATE OF amount, is_active",
+                "recurring_expenses", "active_recurring_total", activeNew + " - " + activeOld);
+        createTrigger(db, "trg_recurring_expenses_summary_delete", "DELETE", "recurring_expenses",
+                "active_recurring_total", "-" + activeOld);
+
+        String pendingNew = "(CASE WHEN NEW.is_paid = 0 THEN NEW.amount ELSE 0 END)";
+        String pendingOld = "(CASE WHEN OLD.is_paid = 0 THEN OLD.amount ELSE 0 END)";
+        createTrigger(db, "trg_loan_installments_summary_insert", "INSERT", "loan_installments",
+                "pending_installment_total", pendingNew);
+        createTrigger(db, "trg_loan_installments_summary_update", "UPDATE OF amount, is_paid",
+                "loan_installments", "pending_installment_total", pendingNew + " - " + pendingOld);
+        createTrigger(db, "trg_loan_installments_summary_delete", "DELETE", "loan_installments",
+                "pending_installment_total", "-" + pendingOld);
+    }
+
+    private static void createTrigger(SQLiteDatabase db, String name, String event, String table,
+                                      String summaryColumn, String delta) {
+        db.execSQL("CREATE TRIGGER " + name + " AFTER " + event + " ON " + table + " BEGIN "
+                + "UPDATE dashboard_summary SET " + summaryColumn + " = " + summaryColumn
+                + " + " + delta + " WHERE id = 1; END");
+    }
+}
@@ -0,0 +1,52 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+/**
+ * v8: tablas de archivo para cuotas pagadas y gastos desactivados, vistas de
+ * historial, y traslado de lo ya pagado fuera de las tablas activas.
+ */
+final class MigrationTo8 extends Migration {
+
+    private static final String TAG = "MigrationTo8";
+
+    private static final String INSTALLMENT_COLUMNS = "id, loan_id, installment_number, amount, due_date,"
+            + " is_paid, paid_date, reminder_days, notification_interval_hours";
+    private static final String EXPENSE_COLUMNS = "id, name, amount, type, due_date, reminder_days,"
+            + " notification_interval_hours, is_active";
+
+    MigrationTo8() {
+        super(8, "archivo de pagados");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE loan_installments_archive(id INTEGER PRIMARY KEY,"
+                + "loan_id INTEGER NOT NULL,installment_number INTEGER NOT NULL,amount INTEGER NOT NULL,"
+                + "due_date INTEGER NOT NULL,is_paid INTEGER DEFAULT 0,paid_date INTEGER DEFAULT 0,"
+                + "reminder_days INTEGER DEFAULT 3,notification_interval_hours INTEGER DEFAULT 2)");
+        db.execSQL("CREATE INDEX idx_loan_installments_archive_loan_id ON loan_installments_archive(loan_id)");
+        db.execSQL("CREATE TABLE recurring_expenses_archive(id INTEGER PRIMARY KEY,"
+                + "name TEXT NOT NULL,amount INTEGER NOT NULL,type TEXT NOT NULL,due_date INTEGER NOT NULL,"
+                + "reminder_days INTEGER DEFAULT 3,notification_interval_hours INTEGER DEFAULT 2,"
+                + "is_active INTEGER DEFAULT 1)");
+
+        db.execSQL("CREATE VIEW loan_installments_history AS SELECT " + INSTALLMENT_COLUMNS
+                + " FROM loan_installments UNION ALL SELECT " + INSTALLMENT_COLUMNS
+                + " FROM loan_installments_archive");
+        db.execSQL("CREATE VIEW recurring_expenses_history AS SELECT " + EXPENSE_COLUMNS
+                + " FROM recurring_expenses UNION ALL SELECT " + EXPENSE_COLUMNS
+                + " FROM recurring_expenses_archive");
+
+        // Los triggers del resumen no cambian nada al borrar filas pagadas/inactivas
+        int installments = copyInChunks(db, "loan_installments", "loan_installments_archive",
+                INSTALLMENT_COLUMNS, INSTALLMENT_COLUMNS, "is_paid = 1");
+        db.execSQL("DELETE FROM loan_installments WHERE is_paid = 1");
+        int expenses = copyInChunks(db, "recurring_expenses", "recurring_expenses_archive",
+                EXPENSE_COLUMNS, EXPENSE_COLUMNS, "is_active = 0");
+        db.execSQL("DELETE FROM recurring_expenses WHERE is_active = 0");
+
+        Log.d(TAG, "Archivadas " + installments + " cuotas y " + expenses + " gastos");
+    }
+}
@@ -0,0 +1,67 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+/**
+ * v9: índice de búsqueda FTS4 (search_index), sus triggers de sincronización y
+ * la carga inicial desde las tablas existentes.
+ */
+final class MigrationTo9 extends Migration {
+
+    private static final String TAG = "MigrationTo9";
+
+    private static final String INDEX_COLUMNS = "docid, name, detail, amount, date";
+
+    MigrationTo9() {
+        super(9, "búsqueda de texto completo");
+    }
+
+    @Override
+    void migrate(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE search_index USING fts4(name, detail, amount, date,"
+                + " notindexed=amount, notindexed=date, prefix=\"2,3\", tokenize=unicode61)");
+
+        // docid = id * 4 + tipo (0 gasto recurrente, 1 gasto diverso, 2 préstamo, 3 fuente de saldo)
+        createTriggers(db, "recurring_expenses", 0, "name", "type", "amount", "due_date",
+                "NOT EXISTS (SELECT 1 FROM recurring_expenses_archive WHERE id = OLD.id)");
+        createDeleteTrigger(db, "recurring_expenses_archive", 0, null);
+        createTriggers(db, "other_expenses", 1, "name", "category", "amount", "date", null);
+        createTriggers(db, "loans", 2, "name", "payment_frequency", "total_amount", "start_date", null);
+        createTriggers(db, "balance_sources", 3, "name", "type", "balance", null, null);
+
+        int rows = copyInChunks(db, "recurring_expenses", "search_index", INDEX_COLUMNS,
+                "id * 4 + 0, name, IFNULL(type, ''), amount, due_date");
+        rows += copyInChunks(db, "recurring_expenses_archive", "search_index", INDEX_COLUMNS,
+                "id * 4 + 0, name, IFNULL(type, ''), amount, due_date");
+        rows += copyInChunks(db, "other_expenses", "search_index", INDEX_COLUMNS,
+                "id * 4 + 1, name, IFNULL(category, ''), amount, date");
+        rows += copyInChunks(db, "loans", "search_index", INDEX_COLUMNS,
+                "id * 4 + 2, name, IFNULL(payment_frequency, ''), total_amount, start_date");
+        rows += copyInChunks(db, "balance_sources", "search_index", INDEX_COLUMNS,
+                "id * 4 + 3, name, IFNULL(type, ''), balance, 0");
+        Log.d(TAG, rows + " filas indexadas");
+    }
+
+    private static void createTriggers(SQLiteDatabase db, String table, int kind, String name, String detail,
+                                       String amount, String date, String deleteCondition) {
+        String newDate = date != null ? "NEW." + date : "0";
+        String docId = "NEW.id * 4 + " + kind;
+
+        db.execSQL("CREATE TRIGGER trg_" + table + "_search_insert AFTER INSERT ON " + table + " BEGIN "
+                + "INSERT INTO search_index (docid, name, detail, amount, date) VALUES (" + docId + ", "
+                + "NEW." + name + ", IFNULL(NEW." + detail + ", ''), NEW." + amount + ", " + newDate + "); END");
+        db.execSQL("CREATE TRIGGER trg_" + table + "_search_update AFTER UPDATE OF "
+                + name + ", " + detail + ", " + amount + (date != null ? ", " + date : "")
+                + " ON " + table + " BEGIN "
+                + "UPDATE search_index SET name = NEW." + name + ", detail = IFNULL(NEW." + detail + ", ''), "
+                + "amount = NEW." + amount + ", date = " + newDate + " WHERE docid = " + docId + "; END");
+        createDeleteTrigger(db, table, kind, deleteCondition);
+    }
+
+    private static void createDeleteTrigger(SQLiteDatabase db, String table, int kind, String condition) {
+        db.execSQL("CREATE TRIGGER trg_" + table + "_search_delete AFTER DELETE ON " + table
+                + (condition != null ? " WHEN " + condition : "") + " BEGIN "
+                + "DELETE FROM search_index WHERE docid = OLD.id * 4 + " + kind + "; END");
+    }
+}
@@ -0,0 +1,25 @@
+package com.expensemanager.app;
+
+import com.expensemanager.core.Money;
+
+/**
+ * Fila de monthly_rollups, o un total agregado de varias.
+ */
+public class MonthlyRollup {
+
+    /** 'YYYY-MM' */
+    public final String month;
+    public final String category;
+    /** 0 si no corresponde a una fuente de saldo */
+    public final long sourceId;
+    public final Money total;
+    public final int itemCount;
+
+    public MonthlyRollup(String month, String category, long sourceId, Money total, int itemCount) {
+        this.month = month;
+        this.category = category;
+        this.sourceId = sourceId;
+        this.total = total;
+        this.itemCount = itemCount;
+    }
+}
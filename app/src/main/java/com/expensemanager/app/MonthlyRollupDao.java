@@ -0,0 +1,131 @@
+package com.expensemanager.app;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.expensemanager.core.Money;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reportes sobre monthly_rollups. Obtener con {@link DatabaseHelper#getMonthlyRollupDao()}.
+ *
+ * Los triggers mantienen la tabla al día; {@link #rebuild()} la recalcula desde
+ * cero (por ejemplo tras cambiar la zona horaria, que mueve los límites de mes).
+ */
+public class MonthlyRollupDao {
+
+    private static final String COLUMNS =
+            DatabaseHelper.COLUMN_MR_MONTH + ", " +
+            DatabaseHelper.COLUMN_MR_CATEGORY + ", " +
+            DatabaseHelper.COLUMN_MR_SOURCE_ID + ", " +
+            DatabaseHelper.COLUMN_MR_TOTAL + ", " +
+            DatabaseHelper.COLUMN_MR_ITEM_COUNT;
+    private static final int COL_MONTH = 0;
+    private static final int COL_CATEGORY = 1;
+    private static final int COL_SOURCE_ID = 2;
+    private static final int COL_TOTAL = 3;
+    private static final int COL_ITEM_COUNT = 4;
+
+    private static final String SQL_MONTH = "SELECT " + COLUMNS +
+            " FROM " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS +
+            " WHERE " + DatabaseHelper.COLUMN_MR_MONTH + " = ?" +
+            " ORDER BY " + DatabaseHelper.COLUMN_MR_TOTAL + " DESC";
+
+    // Un total por mes del año, sin desglose por categoría ni fuente
+    private static final String SQL_YEAR_BY_MONTH = "SELECT " +
+            DatabaseHelper.COLUMN_MR_MONTH + ", '', 0, " +
+            "SUM(" + DatabaseHelper.COLUMN_MR_TOTAL + "), SUM(" + DatabaseHelper.COLUMN_MR_ITEM_COUNT + ")" +
+            " FROM " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS +
+            " WHERE " + DatabaseHelper.COLUMN_MR_MONTH + " >= ? AND " + DatabaseHelper.COLUMN_MR_MONTH + " <= ?" +
+            " GROUP BY " + DatabaseHelper.COLUMN_MR_MONTH +
+            " ORDER BY " + DatabaseHelper.COLUMN_MR_MONTH;
+
+    private static final String SQL_REBUILD = "INSERT INTO " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS +
+            " (" + COLUMNS + ") SELECT m, c, s, SUM(a), COUNT(*) FROM (" +
+            rollupSource(DatabaseHelper.VIEW_RECURRING_EXPENSES_HISTORY, DatabaseHelper.COLUMN_RE_DUE_DATE,
+                    DatabaseHelper.COLUMN_RE_TYPE, "0", DatabaseHelper.COLUMN_RE_AMOUNT) +
+            " UNION ALL " +
+            rollupSource(DatabaseHelper.VIEW_LOAN_INSTALLMENTS_HISTORY, DatabaseHelper.COLUMN_LI_DUE_DATE,
+                    "'" + DatabaseHelper.ROLLUP_CATEGORY_LOAN + "'", "0", DatabaseHelper.COLUMN_LI_AMOUNT) +
+            " UNION ALL " +
+            rollupSource(DatabaseHelper.TABLE_OTHER_EXPENSES, DatabaseHelper.COLUMN_OE_DATE,
+                    "IFNULL(" + DatabaseHelper.COLUMN_OE_CATEGORY + ", '" + DatabaseHelper.ROLLUP_CATEGORY_OTHER + "')",
+                    "IFNULL(" + DatabaseHelper.COLUMN_OE_SOURCE_ID + ", 0)", DatabaseHelper.COLUMN_OE_AMOUNT) +
+            ") GROUP BY m, c, s";
+
+    private final SQLiteDatabase db;
+    private final SQLiteStatement monthTotalStatement;
+
+    MonthlyRollupDao(SQLiteDatabase db) {
+        this.db = db;
+        this.monthTotalStatement = db.compileStatement(
+                "SELECT IFNULL(SUM(" + DatabaseHelper.COLUMN_MR_TOTAL + "), 0) FROM " +
+                        DatabaseHelper.TABLE_MONTHLY_ROLLUPS + " WHERE " + DatabaseHelper.COLUMN_MR_MONTH + " = ?");
+    }
+
+    private static String rollupSource(String table, String dateColumn, String category, String sourceId,
+                                       String amountColumn) {
+        return "SELECT " + DatabaseHelper.rollupMonth(dateColumn) + " AS m, " + category + " AS c, " +
+                sourceId + " AS s, " + amountColumn + " AS a FROM " + table;
+    }
+
+    /**
+     * @param month 'YYYY-MM'
+     */
+    public Money getMonthTotal(String month) {
+        synchronized (monthTotalStatement) {
+            monthTotalStatement.bindString(1, month);
+            return Money.ofCents(monthTotalStatement.simpleQueryForLong());
+        }
+    }
+
+    /**
+     * Desglose del mes por categoría y fuente, de mayor a menor total.
+     *
+     * @param month 'YYYY-MM'
+     */
+    public List<MonthlyRollup> getMonth(String month) {
+        return query(SQL_MONTH, month);
+    }
+
+    /**
+     * Total de cada mes del año que tenga gastos, en orden.
+     */
+    public List<MonthlyRollup> getYearByMonth(int year) {
+        return query(SQL_YEAR_BY_MONTH, year + "-01", year + "-12");
+    }
+
+    /**
+     * Recalcula toda la tabla desde los datos. Recorre el historial completo, así
+     * que no usar en caminos frecuentes.
+     */
+    public void rebuild() {
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS);
+            db.execSQL(SQL_REBUILD);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private List<MonthlyRollup> query(String sql, String... args) {
+        List<MonthlyRollup> rollups = new ArrayList<>();
+        Cursor cursor = db.rawQuery(sql, args);
+        try {
+            while (cursor.moveToNext()) {
+                rollups.add(new MonthlyRollup(
+                        cursor.getString(COL_MONTH),
+                        cursor.getString(COL_CATEGORY),
+                        cursor.getLong(COL_SOURCE_ID),
+                        Money.ofCents(cursor.getLong(COL_TOTAL)),
+                        cursor.getInt(COL_ITEM_COUNT)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return rollups;
+    }
+}
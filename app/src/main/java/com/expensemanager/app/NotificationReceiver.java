@@ -3,136 +3,249 @@ package com.expensemanager.app;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
-import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.os.SystemClock;
 import androidx.core.app.NotificationCompat;
-import java.text.NumberFormat;
-import java.util.Locale;
+import com.expensemanager.core.Formatters;
+import com.expensemanager.core.Money;
+import com.expensemanager.core.Reminder;
+import java.util.ArrayList;
+import java.util.List;
 
 public class NotificationReceiver extends BroadcastReceiver {
 
+    // Las notificaciones de la cola usan el id de su fila; el tag las separa de
+    // los demás ids de notificación de la app
+    private static final String REMINDER_TAG = "reminder";
+
+    // Recordatorios entregados juntos: hijos del grupo con un único resumen
+    private static final String DIGEST_GROUP = "payment_reminders";
+    private static final String DIGEST_TAG = "reminder_digest";
+    private static final int DIGEST_ID = 1;
+
     @Override
     public void onReceive(Context context, Intent intent) {
+        // Latencia del receiver: desde aquí hasta terminar el trabajo en segundo plano
+        final long receivedAt = SystemClock.elapsedRealtime();
+        final long firedAt = System.currentTimeMillis();
         String action = intent.getAction();
 
         if (action != null && action.equals("MARK_AS_PAID")) {
             // Manejar el botón "YA PAGUÉ"
-            handleMarkAsPaid(context, intent);
+            handleMarkAsPaid(context, intent, receivedAt);
+        } else if (action != null && action.equals(NotificationScheduler.ACTION_DELIVER_REMINDERS)) {
+            final Context appContext = context.getApplicationContext();
+            DbExecutor.write(appContext, new DbExecutor.Work<Void>() {
+                @Override
+                public Void run(DatabaseHelper db) {
+                    // Antes de entregar: la entrega arma la siguiente alarma
+                    long armedAt = NotificationScheduler.getArmedAt(appContext);
+                    if (armedAt != ReminderQueueDao.NONE) {
+                        Metrics.record(appContext, Metrics.DELIVERY_LATENESS, firedAt - armedAt);
+                    }
+                    int shown = deliverDueReminders(appContext, db);
+                    Metrics.record(appContext, Metrics.WAKEUP_DELIVER, shown);
+                    Metrics.record(appContext, Metrics.RECEIVER_DELIVER, SystemClock.elapsedRealtime() - receivedAt);
+                    return null;
+                }
+            }, goAsync());
         } else {
-            // Mostrar notificación normal
+            // Alarma armada antes de la cola de recordatorios: datos en los extras
             int notificationId = intent.getIntExtra("notification_id", 0);
             String title = intent.getStringExtra("title");
-            double amount = intent.getDoubleExtra("amount", 0);
+            Money amount = intent.hasExtra("amount_cents")
+                    ? Money.ofCents(intent.getLongExtra("amount_cents", 0))
+                    // Alarmas programadas antes de guardar montos en céntimos
+                    : Money.ofCents(Math.round(intent.getDoubleExtra("amount", 0) * 100));
             String type = intent.getStringExtra("type");
             int daysRemaining = intent.getIntExtra("days_remaining", 0);
-            int itemId = intent.getIntExtra("item_id", 0);
+            long itemId = itemIdExtra(intent);
 
             // Verificar si ya fue pagado antes de mostrar notificación
-            if (!isAlreadyPaid(context, itemId, type)) {
-                showNotification(context, notificationId, title, amount, type, daysRemaining, itemId);
+            boolean pending = !isAlreadyPaid(context, itemId, type);
+            if (pending) {
+                showNotification(context, null, notificationId, title, amount, type, daysRemaining, itemId, null);
             }
+            Metrics.record(context, Metrics.WAKEUP_DELIVER, pending ? 1 : 0);
+            Metrics.record(context, Metrics.RECEIVER_LEGACY, SystemClock.elapsedRealtime() - receivedAt);
         }
     }
 
-    private boolean isAlreadyPaid(Context context, int itemId, String type) {
-        DatabaseHelper dbHelper = new DatabaseHelper(context);
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-
-        String table = type.equals("loan") ? DatabaseHelper.TABLE_LOAN_INSTALLMENTS
-                : DatabaseHelper.TABLE_RECURRING_EXPENSES;
-        String idColumn = type.equals("loan") ? DatabaseHelper.COLUMN_LI_ID
-                : DatabaseHelper.COLUMN_RE_ID;
-        String isPaidColumn = type.equals("loan") ? DatabaseHelper.COLUMN_LI_IS_PAID
-                : DatabaseHelper.COLUMN_RE_IS_ACTIVE;
-
-        Cursor cursor = db.query(table, new String[]{isPaidColumn},
-                idColumn + " = ?", new String[]{String.valueOf(itemId)},
-                null, null, null);
-
-        boolean isPaid = false;
-        if (cursor.moveToFirst()) {
-            int status = cursor.getInt(0);
-            isPaid = type.equals("loan") ? (status == 1) : (status == 0);
+    /**
+     * Muestra los recordatorios de la cola que tocan ahora o dentro de la ventana
+     * de agrupación, y arma la alarma del siguiente. Varios pagos a la vez se
+     * muestran como grupo: un resumen que suena una vez y cada pago con su
+     * "YA PAGUÉ"; de un mismo pago solo se muestra su último aviso.
+     *
+     * @return notificaciones de pago mostradas
+     */
+    private int deliverDueReminders(Context context, DatabaseHelper db) {
+        long window = ReminderDigest.windowMillis(NotificationScheduler.getDigestWindowMinutes(context));
+        // Se sacan de la cola todos los que tocan, pero de cada pago se muestra uno
+        List<Reminder> due = ReminderDigest.latestPerItem(db.getReminderQueueDao()
+                .takeDue(ReminderDigest.cutoff(System.currentTimeMillis(), window)));
+
+        List<Reminder> pending = new ArrayList<>(due.size());
+        for (Reminder reminder : due) {
+            if (!isAlreadyPaid(context, reminder.itemId, reminder.itemType)) {
+                pending.add(reminder);
+            }
         }
-        cursor.close();
-        db.close();
 
-        return isPaid;
+        String group = pending.size() > 1 ? DIGEST_GROUP : null;
+        for (Reminder reminder : pending) {
+            showNotification(context, REMINDER_TAG, (int) reminder.id, reminder.title, reminder.amount,
+                    reminder.itemType, reminder.daysRemaining, reminder.itemId, group);
+        }
+        if (group != null) {
+            showDigest(context, pending);
+        }
+        NotificationScheduler.armNext(context);
+        return pending.size();
     }
 
-    private void handleMarkAsPaid(Context context, Intent intent) {
-        int itemId = intent.getIntExtra("item_id", 0);
-        String type = intent.getStringExtra("type");
-        int baseNotificationId = intent.getIntExtra("base_notification_id", 0);
+    private void showDigest(Context context, List<Reminder> reminders) {
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle()
+                .setBigContentTitle("🔔 " + ReminderDigest.title(reminders));
+        boolean urgent = false;
+        for (Reminder reminder : reminders) {
+            style.addLine(ReminderDigest.line(reminder));
+            urgent |= reminder.daysRemaining <= 1;
+        }
 
-        DatabaseHelper dbHelper = new DatabaseHelper(context);
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        Intent activityIntent = new Intent(context, MainActivity.class);
+        activityIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                context,
+                DIGEST_ID,
+                activityIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
 
-        ContentValues values = new ContentValues();
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, "EXPENSE_REMINDERS")
+                .setSmallIcon(android.R.drawable.ic_dialog_info)
+                .setContentTitle("🔔 " + ReminderDigest.title(reminders))
+                .setContentText("Toca 'YA PAGUÉ' en cada pago al completarlo")
+                .setPriority(urgent ? NotificationCompat.PRIORITY_MAX : NotificationCompat.PRIORITY_HIGH)
+                .setAutoCancel(true)
+                .setContentIntent(pendingIntent)
+                .setVibrate(new long[]{0, 500, 200, 500})
+                .setStyle(style)
+                .setNumber(reminders.size())
+                .setGroup(DIGEST_GROUP)
+                .setGroupSummary(true)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
 
-        if (type.equals("loan")) {
-            // Marcar cuota como pagada
-            values.put(DatabaseHelper.COLUMN_LI_IS_PAID, 1);
-            values.put(DatabaseHelper.COLUMN_LI_PAID_DATE, System.currentTimeMillis());
-            db.update(DatabaseHelper.TABLE_LOAN_INSTALLMENTS, values,
-                    DatabaseHelper.COLUMN_LI_ID + " = ?", new String[]{String.valueOf(itemId)});
-        } else {
-            // Desactivar gasto recurrente (marcarlo como pagado este mes)
-            values.put(DatabaseHelper.COLUMN_RE_IS_ACTIVE, 0);
-            db.update(DatabaseHelper.TABLE_RECURRING_EXPENSES, values,
-                    DatabaseHelper.COLUMN_RE_ID + " = ?", new String[]{String.valueOf(itemId)});
+        if (urgent) {
+            builder.setDefaults(NotificationCompat.DEFAULT_ALL);
+            builder.setCategory(NotificationCompat.CATEGORY_ALARM);
         }
 
-        db.close();
-
-        // Cancelar todas las notificaciones futuras de este item
-        NotificationScheduler.cancelAllNotifications(context, baseNotificationId);
-
-        // Cancelar la notificación actual
         NotificationManager notificationManager =
                 (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         if (notificationManager != null) {
-            notificationManager.cancel(baseNotificationId);
+            notificationManager.notify(DIGEST_TAG, DIGEST_ID, builder.build());
         }
+    }
 
-        // Mostrar confirmación
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, "EXPENSE_REMINDERS")
-                .setSmallIcon(android.R.drawable.ic_dialog_info)
-                .setContentTitle("✅ Pago registrado")
-                .setContentText("El pago ha sido marcado como completado")
-                .setPriority(NotificationCompat.PRIORITY_LOW)
-                .setAutoCancel(true);
+    private boolean isAlreadyPaid(Context context, long itemId, String type) {
+        DatabaseHelper dbHelper = DatabaseHelper.getInstance(context);
 
+        // Pagado (archivo) o eliminado: en ambos casos no hay nada que recordar.
+        // Suele responder la caché de estados, sin leer disco
+        if (type.equals("loan")) {
+            return !dbHelper.getLoanInstallmentDao().isPending(itemId);
+        } else {
+            return !dbHelper.getRecurringExpenseDao().isPending(itemId);
+        }
+    }
+
+    /**
+     * Quita la notificación enseguida y registra el pago en el hilo de
+     * escrituras; la confirmación se muestra cuando el pago ya está guardado.
+     */
+    private void handleMarkAsPaid(Context context, Intent intent, final long receivedAt) {
+        final long itemId = itemIdExtra(intent);
+        final String type = intent.getStringExtra("type");
+        // Sin tag: notificación mostrada antes de la cola, con su id en base_notification_id
+        final String notificationTag = intent.getStringExtra("notification_tag");
+        final int notificationId = intent.hasExtra("notification_id")
+                ? intent.getIntExtra("notification_id", 0)
+                : intent.getIntExtra("base_notification_id", 0);
+
+        final NotificationManager notificationManager =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         if (notificationManager != null) {
-            notificationManager.notify(baseNotificationId + 10000, builder.build());
+            notificationManager.cancel(notificationTag, notificationId);
         }
+
+        final Context appContext = context.getApplicationContext();
+        DbExecutor.write(appContext, new DbExecutor.Work<Void>() {
+            @Override
+            public Void run(DatabaseHelper db) {
+                if (type.equals("loan")) {
+                    // Marcar cuota como pagada
+                    db.getLoanInstallmentDao().markPaid(itemId, System.currentTimeMillis());
+                } else {
+                    // Desactivar gasto recurrente (marcarlo como pagado este mes)
+                    db.getRecurringExpenseDao().deactivate(itemId);
+                }
+
+                // La pantalla principal se pinta desde el snapshot: dejarlo al día
+                HomeSnapshot.refresh(appContext);
+
+                // Cancelar todas las notificaciones futuras de este item
+                NotificationScheduler.cancelAllNotifications(appContext, type, itemId);
+
+                // Mostrar confirmación en el lugar de la notificación
+                NotificationCompat.Builder builder = new NotificationCompat.Builder(appContext, "EXPENSE_REMINDERS")
+                        .setSmallIcon(android.R.drawable.ic_dialog_info)
+                        .setContentTitle("✅ Pago registrado")
+                        .setContentText("El pago ha sido marcado como completado")
+                        .setPriority(NotificationCompat.PRIORITY_LOW)
+                        .setAutoCancel(true);
+                if (notificationManager != null) {
+                    notificationManager.notify(notificationTag, notificationId, builder.build());
+                }
+
+                Metrics.record(appContext, Metrics.RECEIVER_MARK_PAID, SystemClock.elapsedRealtime() - receivedAt);
+                return null;
+            }
+        }, goAsync());
     }
 
-    private void showNotification(Context context, int notificationId, String title,
-                                  double amount, String type, int daysRemaining, int itemId) {
+    /** item_id llega como long; las alarmas e intents anteriores lo guardaban como int. */
+    private static long itemIdExtra(Intent intent) {
+        Object itemId = intent.getExtras() != null ? intent.getExtras().get("item_id") : null;
+        return itemId instanceof Number ? ((Number) itemId).longValue() : 0;
+    }
+
+    /**
+     * @param group grupo del resumen, o null si se muestra sola; dentro de un
+     *              grupo solo suena el resumen
+     */
+    private void showNotification(Context context, String tag, int notificationId, String title,
+                                  Money amount, String type, int daysRemaining, long itemId, String group) {
         NotificationManager notificationManager =
                 (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
 
-        NumberFormat formatter = NumberFormat.getCurrencyInstance(new Locale("es", "PE"));
-
         // Mensaje personalizado según días restantes
         String contentText;
         String priorityPrefix = "";
         int priority;
 
         if (daysRemaining == 0) {
-            contentText = "¡VENCE HOY! Monto: " + formatter.format(amount);
+            contentText = "¡VENCE HOY! Monto: " + Formatters.money(amount);
             priorityPrefix = "🔴 URGENTE: ";
             priority = NotificationCompat.PRIORITY_MAX;
         } else if (daysRemaining == 1) {
-            contentText = "¡Vence mañana! Monto: " + formatter.format(amount);
+            contentText = "¡Vence mañana! Monto: " + Formatters.money(amount);
             priorityPrefix = "⚠️ ";
             priority = NotificationCompat.PRIORITY_HIGH;
         } else {
-            contentText = "Vence en " + daysRemaining + " días. Monto: " + formatter.format(amount);
+            contentText = "Vence en " + daysRemaining + " días. Monto: " + Formatters.money(amount);
             priorityPrefix = "📅 ";
             priority = NotificationCompat.PRIORITY_HIGH;
         }
@@ -153,13 +266,24 @@ public class NotificationReceiver extends BroadcastReceiver {
         // Intent para el botón "YA PAGUÉ"
         Intent paidIntent = new Intent(context, NotificationReceiver.class);
         paidIntent.setAction("MARK_AS_PAID");
+        // El request code solo no basta: el id de fila de la cola puede coincidir con un
+        // itemId * 1000 + n de antes de la cola y FLAG_UPDATE_CURRENT pisaría sus extras.
+        // Los datos entran en la identidad del PendingIntent.
+        paidIntent.setData(new Uri.Builder()
+                .scheme("expensemanager")
+                .authority("mark_as_paid")
+                .appendPath(tag != null ? tag : "legacy")
+                .appendPath(type)
+                .appendPath(String.valueOf(itemId))
+                .build());
         paidIntent.putExtra("item_id", itemId);
         paidIntent.putExtra("type", type);
-        paidIntent.putExtra("base_notification_id", notificationId);
+        paidIntent.putExtra("notification_tag", tag);
+        paidIntent.putExtra("notification_id", notificationId);
 
         PendingIntent paidPendingIntent = PendingIntent.getBroadcast(
                 context,
-                notificationId + 5000, // ID diferente para evitar conflictos
+                notificationId, // Broadcast: no choca con el PendingIntent de actividad del mismo id
                 paidIntent,
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
@@ -182,8 +306,12 @@ public class NotificationReceiver extends BroadcastReceiver {
             builder.setCategory(NotificationCompat.CATEGORY_ALARM);
         }
 
+        if (group != null) {
+            builder.setGroup(group).setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY);
+        }
+
         if (notificationManager != null) {
-            notificationManager.notify(notificationId, builder.build());
+            notificationManager.notify(tag, notificationId, builder.build());
         }
     }
 }
\ No newline at end of file
@@ -4,173 +4,265 @@ import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Build;
 import android.util.Log;
-import java.util.Calendar;
-
+import com.expensemanager.core.Money;
+import com.expensemanager.core.PaymentItem;
+import com.expensemanager.core.Reminder;
+import com.expensemanager.core.ReminderSchedule;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Programa los recordatorios de pago.
+ *
+ * Los recordatorios se guardan en reminder_queue y en AlarmManager hay una sola
+ * alarma, la del más próximo: al sonar, {@link NotificationReceiver} muestra los
+ * que ya tocan y vuelve a llamar a {@link #armNext}. Así el número de alarmas
+ * del sistema no crece con la cantidad de pagos ni de cuotas.
+ *
+ * La cola es el registro de lo programado: cancelar un pago borra sus filas
+ * por (tipo, id) y {@link #reconcile} corrige lo que se haya desviado entre la
+ * cola y la alarma realmente armada.
+ *
+ * Acceden a la base: llamar fuera del hilo principal (o desde un receiver).
+ */
 public class NotificationScheduler {
 
     private static final String TAG = "NotificationScheduler";
-    // CAMBIAR A 1 MINUTO PARA PRUEBAS (normalmente sería 4 * 60 * 60 * 1000L)
-    private static final long ONE_HOUR_IN_MILLIS = 60 * 1000L; // 1 MINUTO para pruebas
+
+    /** Acción de la única alarma: entregar los recordatorios vencidos de la cola. */
+    public static final String ACTION_DELIVER_REMINDERS = "DELIVER_REMINDERS";
+
+    // Fuera del rango de los ids de alarmas anteriores (id * 1000 + n)
+    private static final int DELIVER_REQUEST_CODE = -1;
+
+    // Hora de la alarma armada; AlarmManager no permite consultarla
+    private static final String PREFS_NAME = "reminder_alarm";
+    private static final String KEY_ARMED_AT = "armed_at";
+    // Al encender el equipo se borran todas las alarmas, también las anteriores a la cola
+    private static final String KEY_LEGACY_ALARMS_CLEARED = "legacy_alarms_cleared";
+    private static final String KEY_DIGEST_WINDOW_MINUTES = "digest_window_minutes";
+
+    // Ids de las alarmas que se armaban una por recordatorio: id * 1000 + [0, 19) y + 999
+    private static final int LEGACY_ALARMS_PER_ITEM = 19;
+    private static final int SAME_DAY_OFFSET = 999;
 
     /**
-     * Programa notificaciones múltiples con intervalo personalizable
+     * Programa notificaciones múltiples con intervalo personalizable y arma la
+     * alarma de la cola.
      */
-    public static void scheduleMultipleNotifications(Context context, int notificationId, String title,
-                                                     double amount, long dueDate, int reminderDays,
+    public static void scheduleMultipleNotifications(Context context, long itemId, String title,
+                                                     Money amount, long dueDate, int reminderDays,
                                                      String type, int intervalHours) {
+        enqueueReminders(context, itemId, title, amount, dueDate, reminderDays, type, intervalHours);
+        armNext(context);
+    }
 
-        Calendar dueDateCalendar = Calendar.getInstance();
-        dueDateCalendar.setTimeInMillis(dueDate);
+    /**
+     * Como {@link #scheduleMultipleNotifications} pero sin tocar la alarma: para
+     * programar muchos pagos seguidos y llamar a {@link #armNext} una vez al final.
+     */
+    public static void enqueueReminders(Context context, long itemId, String title,
+                                        Money amount, long dueDate, int reminderDays,
+                                        String type, int intervalHours) {
 
-        Calendar reminderStartDate = (Calendar) dueDateCalendar.clone();
-        // CAMBIO PARA PRUEBAS: usar MINUTOS en vez de DÍAS
-        reminderStartDate.add(Calendar.MINUTE, -reminderDays); // Ahora son MINUTOS
-        reminderStartDate.set(Calendar.SECOND, 0);
+        List<Reminder> reminders = ReminderSchedule.expand(type, itemId, title, amount, dueDate, reminderDays,
+                intervalHours, System.currentTimeMillis(), TimeZone.getDefault());
 
-        long currentTime = System.currentTimeMillis();
-        int notificationCount = 0;
+        DatabaseHelper.getInstance(context).getReminderQueueDao().replaceForItem(type, itemId, reminders);
 
-        // Para pruebas: cada "hora" es en realidad 1 minuto
-        int notificationsPerPeriod = reminderDays; // Total de notificaciones en el período
+        Log.d(TAG, String.format("🔔 MODO PRUEBA: %d notificaciones en cola (cada %d minuto) para: %s",
+                reminders.size(), intervalHours, title));
+    }
 
-        for (int notification = 0; notification < notificationsPerPeriod; notification++) {
-            Calendar notificationTime = (Calendar) reminderStartDate.clone();
-            // CAMBIO: intervalHours ahora representa MINUTOS
-            notificationTime.add(Calendar.MINUTE, notification * intervalHours);
+    /**
+     * Como {@link #enqueueReminders(Context, long, String, Money, long, int, String, int)}
+     * para varios pagos, en una sola transacción. Tampoco toca la alarma.
+     */
+    public static void enqueueReminders(Context context, List<PaymentItem> items) {
+        long now = System.currentTimeMillis();
+        TimeZone zone = TimeZone.getDefault();
+        List<Reminder> reminders = new ArrayList<>();
+        for (PaymentItem item : items) {
+            reminders.addAll(ReminderSchedule.expand(item.type, item.id, item.name, item.amount, item.dueDate,
+                    item.reminderDays, item.notificationIntervalHours, now, zone));
+        }
 
-            long triggerTime = notificationTime.getTimeInMillis();
+        DatabaseHelper.getInstance(context).getReminderQueueDao().replaceForItems(items, reminders);
 
-            if (triggerTime > currentTime) {
-                int uniqueId = notificationId * 1000 + notification;
+        Log.d(TAG, String.format("🔔 %d notificaciones en cola para %d pagos", reminders.size(), items.size()));
+    }
 
-                scheduleSingleNotification(context, uniqueId, title, amount, triggerTime, type,
-                        notification, notificationsPerPeriod, notificationId);
-                notificationCount++;
+    /**
+     * Arma la alarma del recordatorio más próximo de la cola, reemplazando la
+     * anterior, o la cancela si la cola está vacía. Si ya está armada para esa
+     * hora no hace nada.
+     */
+    public static void armNext(Context context) {
+        arm(context, false);
+    }
 
-                Log.d(TAG, String.format("✅ Notificación #%d programada para: %s (en %d minutos)",
-                        notificationCount, notificationTime.getTime().toString(),
-                        (triggerTime - currentTime) / 60000));
-            }
+    /**
+     * Cancela todos los recordatorios de un pago. Solo toca lo que está en la
+     * cola; la alarma se rearma únicamente si se quitó algo.
+     */
+    public static void cancelAllNotifications(Context context, String type, long itemId) {
+        int removed = DatabaseHelper.getInstance(context).getReminderQueueDao().deleteForItem(type, itemId);
+        cancelLegacyAlarms(context, itemId);
+        if (removed > 0) {
+            armNext(context);
         }
 
-        Calendar sameDayNotification = (Calendar) dueDateCalendar.clone();
-        sameDayNotification.set(Calendar.SECOND, 0);
+        Log.d(TAG, removed + " notificaciones canceladas para " + type + " " + itemId);
+    }
 
-        if (sameDayNotification.getTimeInMillis() > currentTime) {
-            int sameDayId = notificationId * 1000 + 999;
-            scheduleSingleNotification(context, sameDayId, "¡HOY VENCE! " + title, amount,
-                    sameDayNotification.getTimeInMillis(), type, 0, notificationsPerPeriod, notificationId);
-            notificationCount++;
-        }
+    /** Ventana de agrupación de recordatorios, en minutos (ver {@link ReminderDigest}). */
+    public static int getDigestWindowMinutes(Context context) {
+        return prefs(context).getInt(KEY_DIGEST_WINDOW_MINUTES, ReminderDigest.DEFAULT_WINDOW_MINUTES);
+    }
 
-        Log.d(TAG, String.format("🔔 MODO PRUEBA: %d notificaciones programadas (cada %d minuto) para: %s",
-                notificationCount, intervalHours, title));
+    /** Se aplica desde la próxima entrega; la alarma armada no cambia. */
+    public static void setDigestWindowMinutes(Context context, int minutes) {
+        prefs(context).edit().putInt(KEY_DIGEST_WINDOW_MINUTES, minutes).apply();
     }
 
     /**
-     * Programa una notificación única (método privado auxiliar)
+     * Hora para la que está armada la alarma de la cola, o
+     * {@link ReminderQueueDao#NONE} si no hay ninguna.
      */
-    private static void scheduleSingleNotification(Context context, int notificationId, String title,
-                                                   double amount, long triggerTime, String type,
-                                                   int daysRemaining, int totalReminderDays, int itemId) {
+    public static long getArmedAt(Context context) {
+        return prefs(context).getLong(KEY_ARMED_AT, ReminderQueueDao.NONE);
+    }
 
+    /**
+     * Corrige desvíos entre la cola y AlarmManager: quita recordatorios de pagos
+     * que ya no están pendientes y vuelve a armar la alarma si falta (force stop,
+     * actualización de la app), sobra (cola vacía), apunta a otra hora o ya
+     * debió sonar.
+     *
+     * El PendingIntent sigue existiendo después de que la alarma suena, así que
+     * que exista no prueba que haya una alarma por sonar: si el primero de la
+     * cola ya venció, la entrega se perdió y se vuelve a armar (una hora pasada
+     * suena enseguida; si la alarma estaba por sonar, la reemplaza).
+     *
+     * @return true si hubo algo que reparar
+     */
+    public static boolean reconcile(Context context) {
+        ReminderQueueDao queue = DatabaseHelper.getInstance(context).getReminderQueueDao();
+        int orphans = queue.deleteOrphans();
+
+        long next = queue.getNextTriggerAt();
+        long armedAt = getArmedAt(context);
+        // Sin PendingIntent seguro no hay alarma (force stop, reinstalación)
+        boolean pendingIntentExists = PendingIntent.getBroadcast(context, DELIVER_REQUEST_CODE,
+                deliverIntentFor(context), PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE) != null;
+        boolean drift = next == ReminderQueueDao.NONE
+                ? pendingIntentExists || armedAt != ReminderQueueDao.NONE
+                : !pendingIntentExists || armedAt != next || next <= System.currentTimeMillis();
+
+        if (drift) {
+            arm(context, true);
+        }
+        if (orphans > 0 || drift) {
+            Log.w(TAG, "Reconciliación: " + orphans + " recordatorios huérfanos, alarma "
+                    + (drift ? "rearmada" : "correcta"));
+        }
+        return orphans > 0 || drift;
+    }
+
+    /**
+     * Llamar al encender el equipo, antes de volver a llenar la cola: ya no
+     * queda ninguna alarma de las que se armaban una por recordatorio, y la
+     * alarma de la cola tampoco.
+     */
+    public static void onBootCompleted(Context context) {
+        prefs(context).edit()
+                .putBoolean(KEY_LEGACY_ALARMS_CLEARED, true)
+                .remove(KEY_ARMED_AT)
+                .apply();
+    }
+
+    private static void arm(Context context, boolean force) {
         AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            return;
+        }
 
-        Intent intent = new Intent(context, NotificationReceiver.class);
-        intent.putExtra("notification_id", notificationId);
-        intent.putExtra("title", title);
-        intent.putExtra("amount", amount);
-        intent.putExtra("type", type);
-        intent.putExtra("days_remaining", totalReminderDays - daysRemaining);
-        intent.putExtra("item_id", itemId);
+        long triggerTime = DatabaseHelper.getInstance(context).getReminderQueueDao().getNextTriggerAt();
+        if (!force && triggerTime == getArmedAt(context)) {
+            return;
+        }
 
         PendingIntent pendingIntent = PendingIntent.getBroadcast(
                 context,
-                notificationId,
-                intent,
+                DELIVER_REQUEST_CODE,
+                deliverIntentFor(context),
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
 
-        if (alarmManager != null) {
+        if (triggerTime == ReminderQueueDao.NONE) {
+            alarmManager.cancel(pendingIntent);
+            pendingIntent.cancel();
+            Metrics.record(context, Metrics.ALARM_CANCEL, 0);
+            Log.d(TAG, "Cola de recordatorios vacía");
+        } else {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
                 alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
             } else {
                 alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
             }
+            Metrics.record(context, Metrics.ALARM_SET, triggerTime - System.currentTimeMillis());
+            Log.d(TAG, "⏰ Próximo recordatorio: " + new Date(triggerTime));
         }
+        prefs(context).edit().putLong(KEY_ARMED_AT, triggerTime).apply();
     }
 
-    /**
-     * Cancela todas las notificaciones relacionadas con un ID base
-     */
-    public static void cancelAllNotifications(Context context, int baseNotificationId) {
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-
-        for (int i = 0; i < 19; i++) {
-            int notificationId = baseNotificationId * 1000 + i;
-
-            Intent intent = new Intent(context, NotificationReceiver.class);
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    context,
-                    notificationId,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-
-            if (alarmManager != null) {
-                alarmManager.cancel(pendingIntent);
-            }
-        }
-
-        int sameDayId = baseNotificationId * 1000 + 999;
+    private static Intent deliverIntentFor(Context context) {
         Intent intent = new Intent(context, NotificationReceiver.class);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                sameDayId,
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        if (alarmManager != null) {
-            alarmManager.cancel(pendingIntent);
-        }
+        intent.setAction(ACTION_DELIVER_REMINDERS);
+        return intent;
+    }
 
-        Log.d(TAG, "Todas las notificaciones canceladas para ID base: " + baseNotificationId);
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
     }
 
     /**
-     * Método SIMPLE para pruebas y suscripciones - programa UNA notificación en el tiempo exacto
+     * Alarmas armadas una por recordatorio antes de la cola (v11). Sus ids
+     * (id * 1000 + n) no distinguían el tipo de pago. Solo se cancelan las que
+     * siguen existiendo, y nada tras el primer encendido con la cola.
      */
-    public static void scheduleNotification(Context context, int notificationId, String title,
-                                            double amount, long triggerTime, String type,
-                                            int daysRemaining, int totalReminderDays) {
+    private static void cancelLegacyAlarms(Context context, long itemId) {
+        if (prefs(context).getBoolean(KEY_LEGACY_ALARMS_CLEARED, false)) {
+            return;
+        }
         AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            return;
+        }
 
-        Intent intent = new Intent(context, NotificationReceiver.class);
-        intent.putExtra("notification_id", notificationId);
-        intent.putExtra("title", title);
-        intent.putExtra("amount", amount);
-        intent.putExtra("type", type);
-        intent.putExtra("days_remaining", daysRemaining);
-        intent.putExtra("item_id", notificationId);
+        int base = (int) itemId * 1000;
+        for (int i = 0; i < LEGACY_ALARMS_PER_ITEM; i++) {
+            cancelLegacyAlarm(context, alarmManager, base + i);
+        }
+        cancelLegacyAlarm(context, alarmManager, base + SAME_DAY_OFFSET);
+    }
 
+    private static void cancelLegacyAlarm(Context context, AlarmManager alarmManager, int requestCode) {
         PendingIntent pendingIntent = PendingIntent.getBroadcast(
                 context,
-                notificationId,
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+                requestCode,
+                new Intent(context, NotificationReceiver.class),
+                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
         );
-
-        if (alarmManager != null) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
-            } else {
-                alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
-            }
-            Log.d(TAG, "✅ Notificación programada para: " + new java.util.Date(triggerTime) + " (en " +
-                    (triggerTime - System.currentTimeMillis())/1000 + " segundos)");
+        if (pendingIntent != null) {
+            alarmManager.cancel(pendingIntent);
+            pendingIntent.cancel();
+            Metrics.record(context, Metrics.ALARM_CANCEL, 0);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package com.expensemanager.app;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+import com.expensemanager.core.PaymentItem;
+
+/**
+ * Lista de próximos pagos. {@link #submitList} calcula la diferencia con la
+ * lista anterior en un hilo de fondo y solo vuelve a enlazar, animar o quitar
+ * las filas que cambiaron; la posición del scroll se conserva.
+ */
+public class PaymentAdapter extends ListAdapter<PaymentRow, PaymentAdapter.ViewHolder> {
+
+    /** Clic largo sobre una fila: editar o eliminar el pago. */
+    public interface OnPaymentLongClickListener {
+        void onPaymentLongClick(PaymentItem item);
+    }
+
+    private static final DiffUtil.ItemCallback<PaymentRow> DIFF = new DiffUtil.ItemCallback<PaymentRow>() {
+        @Override
+        public boolean areItemsTheSame(PaymentRow oldRow, PaymentRow newRow) {
+            return oldRow.stableId == newRow.stableId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(PaymentRow oldRow, PaymentRow newRow) {
+            return oldRow.equals(newRow);
+        }
+    };
+
+    private final OnPaymentLongClickListener listener;
+
+    public PaymentAdapter(OnPaymentLongClickListener listener) {
+        super(DIFF);
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).stableId;
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.expense_list_item, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
+
+    class ViewHolder extends RecyclerView.ViewHolder {
+
+        private final TextView expenseTextView;
+        private PaymentRow row;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            expenseTextView = itemView.findViewById(R.id.expenseTextView);
+            itemView.setOnLongClickListener(new View.OnLongClickListener() {
+                @Override
+                public boolean onLongClick(View v) {
+                    if (row != null) {
+                        listener.onPaymentLongClick(row.item);
+                    }
+                    return true;
+                }
+            });
+        }
+
+        void bind(PaymentRow row) {
+            this.row = row;
+            expenseTextView.setText(row.text);
+        }
+    }
+}
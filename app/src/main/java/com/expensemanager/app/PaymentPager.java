@@ -0,0 +1,168 @@
+package com.expensemanager.app;
+
+import androidx.appcompat.app.AppCompatActivity;
+import com.expensemanager.core.PaymentItem;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ventana de la lista de próximos pagos. Carga páginas de
+ * {@link PendingPaymentDao} al acercarse el scroll a un borde, siempre en
+ * segundo plano, y guarda como máximo {@link #MAX_WINDOW} filas: al pasar el
+ * límite suelta las del extremo opuesto, que se vuelven a leer si el usuario
+ * regresa. Se usa solo desde el hilo principal.
+ */
+final class PaymentPager {
+
+    /** Recibe la ventana completa cada vez que cambia. */
+    interface Listener {
+        void onWindowChanged(List<PaymentItem> items);
+    }
+
+    static final int PAGE_SIZE = 30;
+    private static final int MAX_WINDOW = 4 * PAGE_SIZE;
+    // Filas antes del borde a las que ya se pide la página siguiente
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE / 2;
+
+    private final AppCompatActivity activity;
+    private final Listener listener;
+    private final List<PaymentItem> window = new ArrayList<>();
+    private boolean hasMoreBefore;
+    private boolean hasMoreAfter;
+    private DbExecutor.Task loadingBefore;
+    private DbExecutor.Task loadingAfter;
+    private DbExecutor.Task reloading;
+
+    PaymentPager(AppCompatActivity activity, Listener listener) {
+        this.activity = activity;
+        this.listener = listener;
+    }
+
+    /**
+     * Primera página ya leída (del snapshot o de la base). Si la ventana sigue
+     * en el inicio y no pasa de una página, basta con reemplazarla; si no, se
+     * recarga la ventana actual.
+     */
+    void setFirstPage(List<PaymentItem> firstPage) {
+        if (hasMoreBefore || window.size() > PAGE_SIZE) {
+            reload();
+            return;
+        }
+        cancelLoads();
+        window.clear();
+        window.addAll(firstPage);
+        hasMoreAfter = firstPage.size() == PAGE_SIZE;
+        publish();
+    }
+
+    /** Vuelve a leer la ventana actual desde su primera fila, tras un cambio en la base. */
+    void reload() {
+        cancelLoads();
+        final PaymentItem first = hasMoreBefore && !window.isEmpty() ? window.get(0) : null;
+        final int limit = Math.max(window.size(), PAGE_SIZE);
+
+        reloading = DbExecutor.read(activity, new DbExecutor.Work<List<PaymentItem>>() {
+            @Override
+            public List<PaymentItem> run(DatabaseHelper db) {
+                return first != null
+                        ? db.getPendingPaymentDao().getPageStartingAt(first, limit)
+                        : db.getPendingPaymentDao().getPageAfter(null, limit);
+            }
+        }, new DbExecutor.Callback<List<PaymentItem>>() {
+            @Override
+            public void onResult(List<PaymentItem> items) {
+                reloading = null;
+                window.clear();
+                window.addAll(items);
+                hasMoreBefore = first != null;
+                hasMoreAfter = items.size() == limit;
+                publish();
+            }
+        });
+    }
+
+    /**
+     * Avisar en cada scroll con las posiciones visibles (índices de la ventana).
+     */
+    void onVisibleRange(int firstVisible, int lastVisible) {
+        if (reloading != null || window.isEmpty()) {
+            return;
+        }
+        if (hasMoreAfter && loadingAfter == null && lastVisible >= window.size() - PREFETCH_DISTANCE) {
+            loadAfter();
+        }
+        if (hasMoreBefore && loadingBefore == null && firstVisible >= 0 && firstVisible < PREFETCH_DISTANCE) {
+            loadBefore();
+        }
+    }
+
+    private void loadAfter() {
+        final PaymentItem last = window.get(window.size() - 1);
+        loadingAfter = DbExecutor.read(activity, new DbExecutor.Work<List<PaymentItem>>() {
+            @Override
+            public List<PaymentItem> run(DatabaseHelper db) {
+                return db.getPendingPaymentDao().getPageAfter(last, PAGE_SIZE);
+            }
+        }, new DbExecutor.Callback<List<PaymentItem>>() {
+            @Override
+            public void onResult(List<PaymentItem> page) {
+                loadingAfter = null;
+                window.addAll(page);
+                hasMoreAfter = page.size() == PAGE_SIZE;
+                int excess = window.size() - MAX_WINDOW;
+                if (excess > 0) {
+                    window.subList(0, excess).clear();
+                    hasMoreBefore = true;
+                    // Lo que estaba en vuelo hacia arriba ya no empalma con la ventana
+                    cancel(loadingBefore);
+                    loadingBefore = null;
+                }
+                publish();
+            }
+        });
+    }
+
+    private void loadBefore() {
+        final PaymentItem first = window.get(0);
+        loadingBefore = DbExecutor.read(activity, new DbExecutor.Work<List<PaymentItem>>() {
+            @Override
+            public List<PaymentItem> run(DatabaseHelper db) {
+                return db.getPendingPaymentDao().getPageBefore(first, PAGE_SIZE);
+            }
+        }, new DbExecutor.Callback<List<PaymentItem>>() {
+            @Override
+            public void onResult(List<PaymentItem> page) {
+                loadingBefore = null;
+                window.addAll(0, page);
+                hasMoreBefore = page.size() == PAGE_SIZE;
+                int excess = window.size() - MAX_WINDOW;
+                if (excess > 0) {
+                    window.subList(window.size() - excess, window.size()).clear();
+                    hasMoreAfter = true;
+                    cancel(loadingAfter);
+                    loadingAfter = null;
+                }
+                publish();
+            }
+        });
+    }
+
+    private void cancelLoads() {
+        cancel(loadingBefore);
+        cancel(loadingAfter);
+        cancel(reloading);
+        loadingBefore = null;
+        loadingAfter = null;
+        reloading = null;
+    }
+
+    private static void cancel(DbExecutor.Task task) {
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    private void publish() {
+        listener.onWindowChanged(new ArrayList<>(window));
+    }
+}
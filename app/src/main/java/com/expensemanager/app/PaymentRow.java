@@ -0,0 +1,44 @@
+package com.expensemanager.app;
+
+import com.expensemanager.core.PaymentItem;
+
+/**
+ * Fila de la lista de próximos pagos: el pago y el texto ya formateado.
+ *
+ * Dos filas son el mismo elemento si tienen el mismo {@link #stableId} (tipo e
+ * id), y tienen el mismo contenido si además muestran el mismo texto.
+ */
+public final class PaymentRow {
+
+    public final PaymentItem item;
+    public final long stableId;
+    public final String text;
+
+    public PaymentRow(PaymentItem item, String text) {
+        this.item = item;
+        this.stableId = stableId(item);
+        this.text = text;
+    }
+
+    /** Los ids de gastos y de cuotas se repiten entre tablas; el tipo va en el bit bajo. */
+    static long stableId(PaymentItem item) {
+        return item.id * 2 + (item.type.equals("loan") ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PaymentRow)) {
+            return false;
+        }
+        PaymentRow other = (PaymentRow) o;
+        return stableId == other.stableId && text.equals(other.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.valueOf(stableId).hashCode() + text.hashCode();
+    }
+}
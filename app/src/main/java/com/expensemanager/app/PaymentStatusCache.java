@@ -0,0 +1,95 @@
+package com.expensemanager.app;
+
+import android.util.LruCache;
+import com.expensemanager.core.PaymentItem;
+import java.util.List;
+
+/**
+ * Caché del proceso con el estado de cada pago: pendiente (cuota sin pagar,
+ * gasto activo) o no (pagado, archivado o eliminado). La comparten pantallas y
+ * receivers a través de {@link DatabaseHelper#getPaymentStatusCache()}; con ella
+ * la entrega de recordatorios suele saber si un pago ya se pagó sin leer disco.
+ *
+ * Las escrituras de los DAO la actualizan después de confirmar su transacción.
+ * Una lectura que falla en la caché consulta la base sin el lock y, como las
+ * páginas de pagos pendientes, solo guarda lo leído si ninguna escritura
+ * ocurrió mientras tanto: no puede pisar un cambio posterior con un valor
+ * viejo.
+ */
+public final class PaymentStatusCache {
+
+    private static final int MAX_ENTRIES = 512;
+
+    /** Consulta el estado en la base cuando no está en caché. */
+    interface Loader {
+        boolean isPending(long id);
+    }
+
+    private final LruCache<Long, Boolean> pending = new LruCache<>(MAX_ENTRIES);
+    // Aumenta con cada escritura; ver isPending() y prime()
+    private long generation;
+
+    PaymentStatusCache() {
+    }
+
+    boolean isPending(String type, long id, Loader loader) {
+        Long key = key(type, id);
+        long readGeneration;
+        synchronized (this) {
+            Boolean cached = pending.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            readGeneration = generation;
+        }
+        // Fuera del lock: la lectura de disco no frena a los demás accesos
+        boolean loaded = loader.isPending(id);
+        synchronized (this) {
+            if (readGeneration == generation) {
+                pending.put(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /** El pago dejó de estar pendiente. Llamar después de confirmar la escritura. */
+    synchronized void markNotPending(String type, long id) {
+        generation++;
+        pending.put(key(type, id), false);
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Guarda como pendientes los pagos de una página leída a partir de
+     * {@code generation}; si hubo escrituras desde entonces la página puede
+     * estar desactualizada y no se guarda nada.
+     */
+    synchronized void prime(List<PaymentItem> items, long generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        for (PaymentItem item : items) {
+            pending.put(key(item.type, item.id), true);
+        }
+    }
+
+    public synchronized int hitCount() {
+        return pending.hitCount();
+    }
+
+    public synchronized int missCount() {
+        return pending.missCount();
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    // Mismo esquema que las filas de PaymentAdapter: gastos pares, cuotas impares
+    private static Long key(String type, long id) {
+        return id * 2 + (type.equals("loan") ? 1 : 0);
+    }
+}
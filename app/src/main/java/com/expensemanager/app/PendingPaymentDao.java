@@ -0,0 +1,197 @@
+package com.expensemanager.app;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.expensemanager.core.Money;
+import com.expensemanager.core.PaymentItem;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pagos pendientes (gastos recurrentes activos y cuotas sin pagar) como una
+ * sola secuencia ordenada por (due_date, id, tipo). Obtener con
+ * {@link DatabaseHelper#getPendingPaymentDao()}.
+ *
+ * Cada página es un solo UNION ALL con ORDER BY sobre el compuesto: SQLite lo
+ * resuelve mezclando las dos ramas, cada una leída en orden desde su índice
+ * (estado, due_date), sin ordenar en memoria. Las páginas se piden con keyset
+ * relativo a un pago ya leído, nunca con OFFSET.
+ */
+public class PendingPaymentDao {
+
+    private static final int KIND_EXPENSE = 0;
+    private static final int KIND_LOAN = 1;
+
+    private static final String TYPE_EXPENSE = "expense";
+    private static final String TYPE_LOAN = "loan";
+
+    private static final int COL_KIND = 0;
+    private static final int COL_ID = 1;
+    private static final int COL_NAME = 2;
+    private static final int COL_NUMBER = 3;
+    private static final int COL_AMOUNT = 4;
+    private static final int COL_DUE_DATE = 5;
+    private static final int COL_REMINDER_DAYS = 6;
+    private static final int COL_INTERVAL_HOURS = 7;
+
+    private static final String SELECT_EXPENSES = "SELECT " + KIND_EXPENSE + " AS kind, " +
+            DatabaseHelper.COLUMN_RE_ID + " AS id, " +
+            DatabaseHelper.COLUMN_RE_NAME + " AS name, " +
+            "0 AS number, " +
+            DatabaseHelper.COLUMN_RE_AMOUNT + " AS amount, " +
+            DatabaseHelper.COLUMN_RE_DUE_DATE + " AS due_date, " +
+            DatabaseHelper.COLUMN_RE_REMINDER_DAYS + ", " +
+            DatabaseHelper.COLUMN_RE_NOTIFICATION_INTERVAL_HOURS +
+            " FROM " + DatabaseHelper.TABLE_RECURRING_EXPENSES +
+            " WHERE " + DatabaseHelper.COLUMN_RE_IS_ACTIVE + " = 1";
+    private static final String SELECT_INSTALLMENTS = "SELECT " + KIND_LOAN + ", " +
+            "li." + DatabaseHelper.COLUMN_LI_ID + ", " +
+            "l." + DatabaseHelper.COLUMN_LOAN_NAME + ", " +
+            "li." + DatabaseHelper.COLUMN_LI_INSTALLMENT_NUMBER + ", " +
+            "li." + DatabaseHelper.COLUMN_LI_AMOUNT + ", " +
+            "li." + DatabaseHelper.COLUMN_LI_DUE_DATE + ", " +
+            "li." + DatabaseHelper.COLUMN_LI_REMINDER_DAYS + ", " +
+            "li." + DatabaseHelper.COLUMN_LI_NOTIFICATION_INTERVAL_HOURS +
+            " FROM " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS + " li JOIN " +
+            DatabaseHelper.TABLE_LOANS + " l ON li." + DatabaseHelper.COLUMN_LI_LOAN_ID +
+            " = l." + DatabaseHelper.COLUMN_LOAN_ID +
+            " WHERE li." + DatabaseHelper.COLUMN_LI_IS_PAID + " = 0";
+
+    // ?1 = due_date, ?2 = id, ?3 = tipo, ?4 = límite. Los argumentos llegan como
+    // texto: ?3 se compara con una constante sin afinidad y necesita el CAST.
+    // Visibles en el paquete para QueryPlanTest.
+    static final String SQL_PAGE_AFTER =
+            SELECT_EXPENSES + after(KIND_EXPENSE, "", DatabaseHelper.COLUMN_RE_DUE_DATE, DatabaseHelper.COLUMN_RE_ID) +
+            " UNION ALL " +
+            SELECT_INSTALLMENTS + after(KIND_LOAN, "li.", DatabaseHelper.COLUMN_LI_DUE_DATE, DatabaseHelper.COLUMN_LI_ID) +
+            " ORDER BY due_date ASC, id ASC, kind ASC LIMIT ?4";
+    static final String SQL_PAGE_BEFORE =
+            SELECT_EXPENSES + before(KIND_EXPENSE, "", DatabaseHelper.COLUMN_RE_DUE_DATE, DatabaseHelper.COLUMN_RE_ID) +
+            " UNION ALL " +
+            SELECT_INSTALLMENTS + before(KIND_LOAN, "li.", DatabaseHelper.COLUMN_LI_DUE_DATE, DatabaseHelper.COLUMN_LI_ID) +
+            " ORDER BY due_date DESC, id DESC, kind DESC LIMIT ?4";
+    // ?1 = ahora
+    static final String SQL_COUNT_OVERDUE =
+            "SELECT (SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_RECURRING_EXPENSES +
+                    " WHERE " + DatabaseHelper.COLUMN_RE_IS_ACTIVE + " = 1" +
+                    " AND " + DatabaseHelper.COLUMN_RE_DUE_DATE + " < ?1)" +
+                    " + (SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS +
+                    " WHERE " + DatabaseHelper.COLUMN_LI_IS_PAID + " = 0" +
+                    " AND " + DatabaseHelper.COLUMN_LI_DUE_DATE + " < ?1)";
+
+    private final SQLiteDatabase db;
+    private final PaymentStatusCache statusCache;
+    private final SQLiteStatement countOverdueStatement;
+
+    PendingPaymentDao(SQLiteDatabase db, PaymentStatusCache statusCache) {
+        this.db = db;
+        this.statusCache = statusCache;
+        this.countOverdueStatement = db.compileStatement(SQL_COUNT_OVERDUE);
+    }
+
+    /** Condición "la fila va después de la clave (?1, ?2, ?3)" para una rama. */
+    private static String after(int kind, String alias, String dueDate, String id) {
+        return " AND " + alias + dueDate + " >= ?1 AND (" + alias + dueDate + " > ?1 OR " + alias + id + " > ?2" +
+                " OR (" + alias + id + " = ?2 AND " + kind + " > CAST(?3 AS INTEGER)))";
+    }
+
+    private static String before(int kind, String alias, String dueDate, String id) {
+        return " AND " + alias + dueDate + " <= ?1 AND (" + alias + dueDate + " < ?1 OR " + alias + id + " < ?2" +
+                " OR (" + alias + id + " = ?2 AND " + kind + " < CAST(?3 AS INTEGER)))";
+    }
+
+    /**
+     * Hasta {@code limit} pagos después de {@code after}, o desde el primero si es
+     * null.
+     */
+    public List<PaymentItem> getPageAfter(PaymentItem after, int limit) {
+        if (after == null) {
+            return getPageAfter(Long.MIN_VALUE, Long.MIN_VALUE, KIND_EXPENSE, limit);
+        }
+        return getPageAfter(after.dueDate, after.id, kind(after), limit);
+    }
+
+    /**
+     * Como {@link #getPageAfter(PaymentItem, int)}, pero incluyendo a
+     * {@code first} si sigue pendiente.
+     */
+    public List<PaymentItem> getPageStartingAt(PaymentItem first, int limit) {
+        // El tipo es entero: (fecha, id, tipo - 1) es la clave justo anterior
+        return getPageAfter(first.dueDate, first.id, kind(first) - 1, limit);
+    }
+
+    /**
+     * Como {@link #getPageAfter(PaymentItem, int)} con la clave guardada por
+     * separado (por ejemplo, un punto de control en disco).
+     */
+    public List<PaymentItem> getPageAfter(long dueDate, long id, String type, int limit) {
+        return getPageAfter(dueDate, id, type.equals(TYPE_LOAN) ? KIND_LOAN : KIND_EXPENSE, limit);
+    }
+
+    /** Hasta {@code limit} pagos que vencen en {@code dueDate} o después. */
+    public List<PaymentItem> getPageDueFrom(long dueDate, int limit) {
+        return getPageAfter(dueDate, Long.MIN_VALUE, KIND_EXPENSE, limit);
+    }
+
+    /**
+     * Hasta {@code limit} pagos inmediatamente anteriores a {@code before}, en
+     * orden ascendente.
+     */
+    public List<PaymentItem> getPageBefore(PaymentItem before, int limit) {
+        List<PaymentItem> page = query(SQL_PAGE_BEFORE, String.valueOf(before.dueDate), String.valueOf(before.id),
+                String.valueOf(kind(before)), String.valueOf(limit));
+        Collections.reverse(page);
+        return page;
+    }
+
+    /** Pagos pendientes vencidos a la fecha {@code now}, con una sola consulta. */
+    public int countOverdue(long now) {
+        synchronized (countOverdueStatement) {
+            countOverdueStatement.bindLong(1, now);
+            return (int) countOverdueStatement.simpleQueryForLong();
+        }
+    }
+
+    private List<PaymentItem> getPageAfter(long dueDate, long id, int kind, int limit) {
+        return query(SQL_PAGE_AFTER, String.valueOf(dueDate), String.valueOf(id), String.valueOf(kind),
+                String.valueOf(limit));
+    }
+
+    private static int kind(PaymentItem item) {
+        return item.type.equals(TYPE_LOAN) ? KIND_LOAN : KIND_EXPENSE;
+    }
+
+    private List<PaymentItem> query(String sql, String... args) {
+        long generation = statusCache.generation();
+        List<PaymentItem> items = new ArrayList<>();
+        Cursor cursor = db.rawQuery(sql, args);
+        try {
+            while (cursor.moveToNext()) {
+                items.add(map(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        // Todo lo leído está pendiente: las alarmas de estos pagos no necesitan ir a disco
+        statusCache.prime(items, generation);
+        return items;
+    }
+
+    private static PaymentItem map(Cursor cursor) {
+        String name = cursor.getString(COL_NAME);
+        Money amount = Money.ofCents(cursor.getLong(COL_AMOUNT));
+        long dueDate = cursor.getLong(COL_DUE_DATE);
+        int reminderDays = cursor.getInt(COL_REMINDER_DAYS);
+        int intervalHours = cursor.getInt(COL_INTERVAL_HOURS);
+
+        if (cursor.getInt(COL_KIND) == KIND_LOAN) {
+            int number = cursor.getInt(COL_NUMBER);
+            return new PaymentItem(cursor.getLong(COL_ID), TYPE_LOAN, name + " - Cuota " + number,
+                    name + " (Cuota " + number + ")", amount, dueDate, reminderDays, intervalHours);
+        }
+        return new PaymentItem(cursor.getLong(COL_ID), TYPE_EXPENSE, name, name, amount, dueDate,
+                reminderDays, intervalHours);
+    }
+}
@@ -0,0 +1,163 @@
+package com.expensemanager.app;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import com.expensemanager.core.Money;
+
+/**
+ * Acceso a recurring_expenses. Obtener con {@link DatabaseHelper#getRecurringExpenseDao()}.
+ *
+ * Las escrituras y consultas escalares usan sentencias compiladas una sola vez.
+ * Las filas pendientes se leen con {@link PendingPaymentDao}.
+ */
+public class RecurringExpenseDao {
+
+    private static final String COLUMNS =
+            DatabaseHelper.COLUMN_RE_ID + ", " +
+            DatabaseHelper.COLUMN_RE_NAME + ", " +
+            DatabaseHelper.COLUMN_RE_AMOUNT + ", " +
+            DatabaseHelper.COLUMN_RE_TYPE + ", " +
+            DatabaseHelper.COLUMN_RE_DUE_DATE + ", " +
+            DatabaseHelper.COLUMN_RE_REMINDER_DAYS + ", " +
+            DatabaseHelper.COLUMN_RE_NOTIFICATION_INTERVAL_HOURS + ", " +
+            DatabaseHelper.COLUMN_RE_IS_ACTIVE;
+
+    private final SQLiteDatabase db;
+    private final PaymentStatusCache statusCache;
+    private final SQLiteStatement insertStatement;
+    private final SQLiteStatement deactivateStatement;
+    private final SQLiteStatement archiveStatement;
+    private final SQLiteStatement deleteStatement;
+    private final SQLiteStatement isActiveStatement;
+
+    private final PaymentStatusCache.Loader pendingLoader = new PaymentStatusCache.Loader() {
+        @Override
+        public boolean isPending(long id) {
+            synchronized (isActiveStatement) {
+                isActiveStatement.bindLong(1, id);
+                try {
+                    return isActiveStatement.simpleQueryForLong() == 1;
+                } catch (SQLiteDoneException e) {
+                    // Archivado o eliminado
+                    return false;
+                }
+            }
+        }
+    };
+
+    RecurringExpenseDao(SQLiteDatabase db, PaymentStatusCache statusCache) {
+        this.db = db;
+        this.statusCache = statusCache;
+        this.insertStatement = db.compileStatement(
+                "INSERT INTO " + DatabaseHelper.TABLE_RECURRING_EXPENSES + " (" +
+                        DatabaseHelper.COLUMN_RE_NAME + ", " +
+                        DatabaseHelper.COLUMN_RE_AMOUNT + ", " +
+                        DatabaseHelper.COLUMN_RE_TYPE + ", " +
+                        DatabaseHelper.COLUMN_RE_DUE_DATE + ", " +
+                        DatabaseHelper.COLUMN_RE_REMINDER_DAYS + ", " +
+                        DatabaseHelper.COLUMN_RE_NOTIFICATION_INTERVAL_HOURS + ", " +
+                        DatabaseHelper.COLUMN_RE_IS_ACTIVE + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+        this.deactivateStatement = db.compileStatement(
+                "UPDATE " + DatabaseHelper.TABLE_RECURRING_EXPENSES +
+                        " SET " + DatabaseHelper.COLUMN_RE_IS_ACTIVE + " = 0" +
+                        " WHERE " + DatabaseHelper.COLUMN_RE_ID + " = ?");
+        // COLUMNS trae todas las columnas, en el mismo orden que la tabla de archivo
+        this.archiveStatement = db.compileStatement(
+                "INSERT INTO " + DatabaseHelper.TABLE_RECURRING_EXPENSES_ARCHIVE + " (" + COLUMNS +
+                        ") SELECT " + COLUMNS + " FROM " + DatabaseHelper.TABLE_RECURRING_EXPENSES +
+                        " WHERE " + DatabaseHelper.COLUMN_RE_ID + " = ?");
+        this.deleteStatement = db.compileStatement(
+                "DELETE FROM " + DatabaseHelper.TABLE_RECURRING_EXPENSES +
+                        " WHERE " + DatabaseHelper.COLUMN_RE_ID + " = ?");
+        this.isActiveStatement = db.compileStatement(
+                "SELECT " + DatabaseHelper.COLUMN_RE_IS_ACTIVE + " FROM " + DatabaseHelper.TABLE_RECURRING_EXPENSES +
+                        " WHERE " + DatabaseHelper.COLUMN_RE_ID + " = ?");
+    }
+
+    /**
+     * Un gasto inactivo (gasto único ya pagado) se archiva en la misma
+     * transacción; el id sale igual de recurring_expenses para no repetirse.
+     *
+     * @return id del nuevo gasto o -1 si falla
+     */
+    public long insert(String name, Money amount, String type, long dueDate, int reminderDays,
+                       int notificationIntervalHours, boolean isActive) {
+        db.beginTransaction();
+        try {
+            long id;
+            synchronized (insertStatement) {
+                insertStatement.bindString(1, name);
+                insertStatement.bindLong(2, amount.getCents());
+                insertStatement.bindString(3, type);
+                insertStatement.bindLong(4, dueDate);
+                insertStatement.bindLong(5, reminderDays);
+                insertStatement.bindLong(6, notificationIntervalHours);
+                insertStatement.bindLong(7, isActive ? 1 : 0);
+                id = insertStatement.executeInsert();
+            }
+            if (id != -1 && !isActive) {
+                archive(id);
+            }
+            db.setTransactionSuccessful();
+            return id;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Marca el gasto como pagado (deja de estar activo) y lo mueve al archivo en
+     * la misma transacción.
+     */
+    public boolean deactivate(long id) {
+        boolean updated;
+        db.beginTransaction();
+        try {
+            synchronized (deactivateStatement) {
+                deactivateStatement.bindLong(1, id);
+                updated = deactivateStatement.executeUpdateDelete() > 0;
+            }
+            if (updated) {
+                archive(id);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (updated) {
+            statusCache.markNotPending("expense", id);
+        }
+        return updated;
+    }
+
+    private void archive(long id) {
+        synchronized (archiveStatement) {
+            archiveStatement.bindLong(1, id);
+            archiveStatement.executeInsert();
+        }
+        delete(id);
+    }
+
+    public boolean delete(long id) {
+        boolean deleted;
+        synchronized (deleteStatement) {
+            deleteStatement.bindLong(1, id);
+            deleted = deleteStatement.executeUpdateDelete() > 0;
+        }
+        // Dentro de una transacción (deactivate, insert) la caché se actualiza al confirmarla
+        if (deleted && !db.inTransaction()) {
+            statusCache.markNotPending("expense", id);
+        }
+        return deleted;
+    }
+
+    /**
+     * Si el gasto sigue activo, normalmente sin leer disco (ver
+     * {@link PaymentStatusCache}). Un gasto desactivado ya está archivado y uno
+     * eliminado no existe: en ambos casos no está pendiente.
+     */
+    public boolean isPending(long id) {
+        return statusCache.isPending("expense", id, pendingLoader);
+    }
+}
@@ -0,0 +1,94 @@
+package com.expensemanager.app;
+
+import com.expensemanager.core.Formatters;
+import com.expensemanager.core.Reminder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Agrupación de recordatorios cercanos en una sola entrega.
+ *
+ * Cuando suena la alarma de la cola se entregan, además de los que ya tocan,
+ * los que tocarían dentro de la ventana configurada: llegan hasta esa cantidad
+ * de minutos antes, a cambio de despertar el equipo una vez por grupo y no una
+ * por recordatorio. Si la entrega tiene más de uno se muestra como resumen
+ * (ver {@link NotificationReceiver}).
+ *
+ * Sin dependencias de Android, para poder medirla en la JVM de escritorio.
+ */
+public final class ReminderDigest {
+
+    /** Ventanas que se ofrecen en Configuración, en minutos; 0 = sin agrupar. */
+    public static final int[] WINDOW_MINUTES = {0, 5, 15, 30, 60};
+    public static final int DEFAULT_WINDOW_MINUTES = 15;
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+
+    private ReminderDigest() {
+    }
+
+    public static long windowMillis(int windowMinutes) {
+        return Math.max(0, windowMinutes) * MINUTE_MILLIS;
+    }
+
+    /**
+     * Hora límite de una entrega que ocurre en {@code now}: se entregan los
+     * recordatorios con trigger_at hasta este valor, inclusive.
+     */
+    public static long cutoff(long now, long windowMillis) {
+        return now + windowMillis;
+    }
+
+    /**
+     * Un recordatorio por pago: la ventana puede alcanzar varios avisos del mismo
+     * pago (se separan por minutos) y solo se muestra el último, el más cercano
+     * al vencimiento. {@code due} viene en orden de trigger_at, como lo devuelve
+     * {@link ReminderQueueDao#takeDue}; el resultado conserva ese orden.
+     */
+    public static List<Reminder> latestPerItem(List<Reminder> due) {
+        Map<String, Reminder> latest = new LinkedHashMap<>();
+        for (Reminder reminder : due) {
+            String key = key(reminder);
+            // Quitar antes de poner: el orden es el del aviso que queda
+            latest.remove(key);
+            latest.put(key, reminder);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    /** "3 pagos por vencer": cuenta pagos distintos, no recordatorios. */
+    public static String title(List<Reminder> reminders) {
+        Set<String> items = new HashSet<>();
+        for (Reminder reminder : reminders) {
+            items.add(key(reminder));
+        }
+        int count = items.size();
+        return count + " pago" + (count > 1 ? "s" : "") + " por vencer";
+    }
+
+    private static String key(Reminder reminder) {
+        return reminder.itemType + ":" + reminder.itemId;
+    }
+
+    /** Línea del resumen: "💳 Préstamo auto - Cuota 2/12 · S/ 350.00 · vence mañana" */
+    public static String line(Reminder reminder) {
+        StringBuilder line = new StringBuilder(64)
+                .append(reminder.itemType.equals("loan") ? "💳 " : "📺 ")
+                .append(reminder.title)
+                .append(" · ")
+                .append(Formatters.money(reminder.amount))
+                .append(" · ");
+        if (reminder.daysRemaining == 0) {
+            line.append("vence hoy");
+        } else if (reminder.daysRemaining == 1) {
+            line.append("vence mañana");
+        } else {
+            line.append("vence en ").append(reminder.daysRemaining).append(" días");
+        }
+        return line.toString();
+    }
+}
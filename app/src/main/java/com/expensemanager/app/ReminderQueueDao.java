@@ -0,0 +1,213 @@
+package com.expensemanager.app;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.expensemanager.core.Money;
+import com.expensemanager.core.PaymentItem;
+import com.expensemanager.core.Reminder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Acceso a reminder_queue. Obtener con {@link DatabaseHelper#getReminderQueueDao()}.
+ *
+ * La cola reemplaza a las alarmas por aviso: aquí viven todos los recordatorios
+ * futuros y {@link NotificationScheduler} arma solo el de {@link #getNextTriggerAt()}.
+ */
+public class ReminderQueueDao {
+
+    /** No hay recordatorios en la cola. */
+    public static final long NONE = -1;
+
+    private static final String COLUMNS =
+            DatabaseHelper.COLUMN_RQ_ID + ", " +
+            DatabaseHelper.COLUMN_RQ_ITEM_TYPE + ", " +
+            DatabaseHelper.COLUMN_RQ_ITEM_ID + ", " +
+            DatabaseHelper.COLUMN_RQ_TITLE + ", " +
+            DatabaseHelper.COLUMN_RQ_AMOUNT + ", " +
+            DatabaseHelper.COLUMN_RQ_DAYS_REMAINING + ", " +
+            DatabaseHelper.COLUMN_RQ_TRIGGER_AT;
+    private static final int COL_ID = 0;
+    private static final int COL_ITEM_TYPE = 1;
+    private static final int COL_ITEM_ID = 2;
+    private static final int COL_TITLE = 3;
+    private static final int COL_AMOUNT = 4;
+    private static final int COL_DAYS_REMAINING = 5;
+    private static final int COL_TRIGGER_AT = 6;
+
+    private static final String SQL_DUE = "SELECT " + COLUMNS + " FROM " + DatabaseHelper.TABLE_REMINDER_QUEUE +
+            " WHERE " + DatabaseHelper.COLUMN_RQ_TRIGGER_AT + " <= ?" +
+            " ORDER BY " + DatabaseHelper.COLUMN_RQ_TRIGGER_AT + " ASC";
+
+    private final SQLiteDatabase db;
+    private final SQLiteStatement insertStatement;
+    private final SQLiteStatement deleteForItemStatement;
+    private final SQLiteStatement deleteOrphansStatement;
+    private final SQLiteStatement deleteDueStatement;
+    private final SQLiteStatement nextTriggerStatement;
+    private final SQLiteStatement countStatement;
+
+    ReminderQueueDao(SQLiteDatabase db) {
+        this.db = db;
+        this.insertStatement = db.compileStatement(
+                "INSERT INTO " + DatabaseHelper.TABLE_REMINDER_QUEUE + " (" +
+                        DatabaseHelper.COLUMN_RQ_ITEM_TYPE + ", " +
+                        DatabaseHelper.COLUMN_RQ_ITEM_ID + ", " +
+                        DatabaseHelper.COLUMN_RQ_TITLE + ", " +
+                        DatabaseHelper.COLUMN_RQ_AMOUNT + ", " +
+                        DatabaseHelper.COLUMN_RQ_DAYS_REMAINING + ", " +
+                        DatabaseHelper.COLUMN_RQ_TRIGGER_AT + ") VALUES (?, ?, ?, ?, ?, ?)");
+        this.deleteForItemStatement = db.compileStatement(
+                "DELETE FROM " + DatabaseHelper.TABLE_REMINDER_QUEUE +
+                        " WHERE " + DatabaseHelper.COLUMN_RQ_ITEM_TYPE + " = ?" +
+                        " AND " + DatabaseHelper.COLUMN_RQ_ITEM_ID + " = ?");
+        this.deleteOrphansStatement = db.compileStatement(
+                "DELETE FROM " + DatabaseHelper.TABLE_REMINDER_QUEUE + " WHERE (" +
+                        DatabaseHelper.COLUMN_RQ_ITEM_TYPE + " = 'expense' AND " +
+                        DatabaseHelper.COLUMN_RQ_ITEM_ID + " NOT IN (SELECT " + DatabaseHelper.COLUMN_RE_ID +
+                        " FROM " + DatabaseHelper.TABLE_RECURRING_EXPENSES +
+                        " WHERE " + DatabaseHelper.COLUMN_RE_IS_ACTIVE + " = 1)) OR (" +
+                        DatabaseHelper.COLUMN_RQ_ITEM_TYPE + " = 'loan' AND " +
+                        DatabaseHelper.COLUMN_RQ_ITEM_ID + " NOT IN (SELECT " + DatabaseHelper.COLUMN_LI_ID +
+                        " FROM " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS +
+                        " WHERE " + DatabaseHelper.COLUMN_LI_IS_PAID + " = 0))");
+        this.deleteDueStatement = db.compileStatement(
+                "DELETE FROM " + DatabaseHelper.TABLE_REMINDER_QUEUE +
+                        " WHERE " + DatabaseHelper.COLUMN_RQ_TRIGGER_AT + " <= ?");
+        this.nextTriggerStatement = db.compileStatement(
+                "SELECT IFNULL(MIN(" + DatabaseHelper.COLUMN_RQ_TRIGGER_AT + "), " + NONE + ") FROM " +
+                        DatabaseHelper.TABLE_REMINDER_QUEUE);
+        this.countStatement = db.compileStatement(
+                "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_REMINDER_QUEUE);
+    }
+
+    /**
+     * Reemplaza en una transacción los recordatorios de un pago por
+     * {@code reminders}; reprogramar el mismo pago no duplica avisos.
+     */
+    public void replaceForItem(String itemType, long itemId, List<Reminder> reminders) {
+        db.beginTransaction();
+        try {
+            deleteForItem(itemType, itemId);
+            insert(reminders);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Como {@link #replaceForItem} para varios pagos con un solo commit: las
+     * cuotas de un préstamo nuevo o una página de la pasada de arranque son
+     * cientos de pagos seguidos.
+     *
+     * @param reminders recordatorios de todos los {@code items}; un pago sin
+     *                  ninguno (ya vencido) queda sin filas en la cola
+     */
+    public void replaceForItems(List<PaymentItem> items, List<Reminder> reminders) {
+        db.beginTransaction();
+        try {
+            for (PaymentItem item : items) {
+                deleteForItem(item.type, item.id);
+            }
+            insert(reminders);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void insert(List<Reminder> reminders) {
+        synchronized (insertStatement) {
+            for (Reminder reminder : reminders) {
+                insertStatement.bindString(1, reminder.itemType);
+                insertStatement.bindLong(2, reminder.itemId);
+                insertStatement.bindString(3, reminder.title);
+                insertStatement.bindLong(4, reminder.amount.getCents());
+                insertStatement.bindLong(5, reminder.daysRemaining);
+                insertStatement.bindLong(6, reminder.triggerAt);
+                insertStatement.executeInsert();
+            }
+        }
+    }
+
+    /**
+     * Quita los recordatorios de un pago. Solo borra filas que existen: sin
+     * recordatorios no hay nada más que hacer.
+     *
+     * @return filas eliminadas
+     */
+    public int deleteForItem(String itemType, long itemId) {
+        synchronized (deleteForItemStatement) {
+            deleteForItemStatement.bindString(1, itemType);
+            deleteForItemStatement.bindLong(2, itemId);
+            return deleteForItemStatement.executeUpdateDelete();
+        }
+    }
+
+    /**
+     * Quita los recordatorios de pagos que ya no están pendientes (pagados,
+     * desactivados o eliminados por un camino que no los canceló).
+     *
+     * @return filas eliminadas
+     */
+    public int deleteOrphans() {
+        synchronized (deleteOrphansStatement) {
+            return deleteOrphansStatement.executeUpdateDelete();
+        }
+    }
+
+    /**
+     * Saca de la cola los recordatorios con hora {@code now} o anterior y los
+     * devuelve en orden, en una sola transacción.
+     */
+    public List<Reminder> takeDue(long now) {
+        List<Reminder> due = new ArrayList<>();
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.rawQuery(SQL_DUE, new String[]{String.valueOf(now)});
+            try {
+                while (cursor.moveToNext()) {
+                    due.add(map(cursor));
+                }
+            } finally {
+                cursor.close();
+            }
+            synchronized (deleteDueStatement) {
+                deleteDueStatement.bindLong(1, now);
+                deleteDueStatement.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return due;
+    }
+
+    /**
+     * @return hora del próximo recordatorio, o {@link #NONE} si la cola está vacía
+     */
+    public long getNextTriggerAt() {
+        synchronized (nextTriggerStatement) {
+            return nextTriggerStatement.simpleQueryForLong();
+        }
+    }
+
+    public int count() {
+        synchronized (countStatement) {
+            return (int) countStatement.simpleQueryForLong();
+        }
+    }
+
+    private static Reminder map(Cursor cursor) {
+        return new Reminder(
+                cursor.getLong(COL_ID),
+                cursor.getString(COL_ITEM_TYPE),
+                cursor.getLong(COL_ITEM_ID),
+                cursor.getString(COL_TITLE),
+                Money.ofCents(cursor.getLong(COL_AMOUNT)),
+                cursor.getInt(COL_DAYS_REMAINING),
+                cursor.getLong(COL_TRIGGER_AT));
+    }
+}
@@ -0,0 +1,163 @@
+package com.expensemanager.app;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ejecuta las migraciones registradas entre dos versiones y al final compara el
+ * esquema resultante con el que crea {@link DatabaseHelper#onCreate}.
+ */
+final class SchemaMigrator {
+
+    private static final String TAG = "SchemaMigrator";
+
+    /** Una migración por versión, en orden. Agregar aquí cada paso nuevo. */
+    private static final Migration[] MIGRATIONS = {
+            new MigrationTo2(),
+            new MigrationTo3(),
+            new MigrationTo4(),
+            new MigrationTo5(),
+            new MigrationTo6(),
+            new MigrationTo7(),
+            new MigrationTo8(),
+            new MigrationTo9(),
+            new MigrationTo10(),
+            new MigrationTo11(),
+            new MigrationTo12(),
+            new MigrationTo13(),
+    };
+
+    private final DatabaseHelper helper;
+
+    SchemaMigrator(DatabaseHelper helper) {
+        this.helper = helper;
+    }
+
+    /**
+     * Cada paso corre en su propia transacción, anidada en la de onUpgrade: si un
+     * paso falla, la excepción sube y SQLiteOpenHelper descarta toda la
+     * actualización, dejando la base en {@code oldVersion}.
+     */
+    void migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+        long start = SystemClock.elapsedRealtime();
+
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            Migration migration = find(version);
+            long stepStart = SystemClock.elapsedRealtime();
+
+            db.beginTransaction();
+            try {
+                migration.migrate(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            Log.i(TAG, "v" + version + " (" + migration.description + "): "
+                    + (SystemClock.elapsedRealtime() - stepStart) + " ms");
+        }
+
+        verifySchema(db, newVersion);
+        Log.i(TAG, "v" + oldVersion + " -> v" + newVersion + ": "
+                + (SystemClock.elapsedRealtime() - start) + " ms");
+    }
+
+    private static Migration find(int version) {
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version == version) {
+                return migration;
+            }
+        }
+        throw new IllegalStateException("No hay migración a la versión " + version);
+    }
+
+    /**
+     * Crea el esquema esperado en una base en memoria con onCreate y lo compara
+     * con el migrado: tablas, columnas (tipo, NOT NULL, default, PK), índices con
+     * sus columnas, vistas y triggers.
+     */
+    private void verifySchema(SQLiteDatabase db, int version) {
+        List<String> actual = describeSchema(db);
+
+        SQLiteDatabase expectedDb = SQLiteDatabase.create(null);
+        List<String> expected;
+        try {
+            helper.onCreate(expectedDb);
+            expected = describeSchema(expectedDb);
+        } finally {
+            expectedDb.close();
+        }
+
+        if (!actual.equals(expected)) {
+            List<String> missing = new ArrayList<>(expected);
+            missing.removeAll(actual);
+            List<String> unexpected = new ArrayList<>(actual);
+            unexpected.removeAll(expected);
+            throw new SQLiteException("El esquema migrado a v" + version + " no coincide con onCreate."
+                    + " Falta: " + missing + " Sobra: " + unexpected);
+        }
+    }
+
+    static List<String> describeSchema(SQLiteDatabase db) {
+        List<String> schema = new ArrayList<>();
+        List<String> tables = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+
+        Cursor cursor = db.rawQuery("SELECT type, name FROM sqlite_master"
+                + " WHERE name NOT LIKE 'sqlite_%' AND name != 'android_metadata'"
+                + " ORDER BY type, name", null);
+        try {
+            while (cursor.moveToNext()) {
+                String type = cursor.getString(0);
+                String name = cursor.getString(1);
+                schema.add(type + " " + name);
+                if (type.equals("table")) {
+                    tables.add(name);
+                } else if (type.equals("index")) {
+                    indexes.add(name);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        for (String table : tables) {
+            cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+            try {
+                // 1 = name, 2 = type, 3 = notnull, 4 = dflt_value, 5 = pk
+                while (cursor.moveToNext()) {
+                    schema.add("column " + table + "." + cursor.getString(1) + " " + cursor.getString(2)
+                            + (cursor.getInt(3) != 0 ? " NOT NULL" : "")
+                            + (cursor.isNull(4) ? "" : " DEFAULT " + cursor.getString(4))
+                            + (cursor.getInt(5) != 0 ? " PK" : ""));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        for (String index : indexes) {
+            StringBuilder columns = new StringBuilder();
+            cursor = db.rawQuery("PRAGMA index_info(" + index + ")", null);
+            try {
+                // 0 = seqno, 2 = name; se devuelven en el orden del índice
+                while (cursor.moveToNext()) {
+                    if (columns.length() > 0) {
+                        columns.append(", ");
+                    }
+                    columns.append(cursor.getString(2));
+                }
+            } finally {
+                cursor.close();
+            }
+            schema.add("index " + index + "(" + columns + ")");
+        }
+
+        return schema;
+    }
+}
@@ -0,0 +1,131 @@
+package com.expensemanager.app;
+
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.ListView;
+import androidx.appcompat.app.AppCompatActivity;
+import com.expensemanager.core.Formatters;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchActivity extends AppCompatActivity {
+
+    private static final int MAX_RESULTS = 50;
+
+    private EditText searchEditText;
+    private ListView searchResultsListView;
+    private Button backBtn;
+    private DbExecutor.Task pendingSearch;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+
+        initializeViews();
+        setupListeners();
+        updateResults("");
+    }
+
+    private void initializeViews() {
+        searchEditText = findViewById(R.id.searchEditText);
+        searchResultsListView = findViewById(R.id.searchResultsListView);
+        backBtn = findViewById(R.id.backBtn);
+    }
+
+    private void setupListeners() {
+        // Buscar mientras se escribe: cada palabra se busca como prefijo
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                updateResults(s.toString());
+            }
+        });
+
+        backBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                finish();
+            }
+        });
+    }
+
+    private void updateResults(final String query) {
+        // Solo importa la última búsqueda: la anterior se descarta si aún no termina
+        if (pendingSearch != null) {
+            pendingSearch.cancel();
+            pendingSearch = null;
+        }
+
+        if (query.trim().isEmpty()) {
+            List<String> lines = new ArrayList<>();
+            lines.add("Escribe para buscar por nombre o categoría");
+            showLines(lines);
+            return;
+        }
+
+        pendingSearch = DbExecutor.read(this, new DbExecutor.Work<List<SearchResult>>() {
+            @Override
+            public List<SearchResult> run(DatabaseHelper db) {
+                return db.getSearchDao().search(query, MAX_RESULTS);
+            }
+        }, new DbExecutor.Callback<List<SearchResult>>() {
+            @Override
+            public void onResult(List<SearchResult> results) {
+                pendingSearch = null;
+                showResults(query, results);
+            }
+        });
+    }
+
+    private void showResults(String query, List<SearchResult> results) {
+        List<String> lines = new ArrayList<>();
+        for (SearchResult result : results) {
+            String line = kindEmoji(result.kind) + " " + result.name + " - "
+                    + Formatters.money(result.amount);
+            String detail = result.detail;
+            if (result.date > 0) {
+                detail = (detail.isEmpty() ? "" : detail + " · ") + Formatters.date(result.date);
+            }
+            if (!detail.isEmpty()) {
+                line += "\n   " + detail;
+            }
+            lines.add(line);
+        }
+
+        if (lines.isEmpty()) {
+            lines.add("Sin resultados para \"" + query.trim() + "\"");
+        }
+        showLines(lines);
+    }
+
+    private void showLines(List<String> lines) {
+        ExpenseAdapter adapter = new ExpenseAdapter(this, lines);
+        searchResultsListView.setAdapter(adapter);
+    }
+
+    private static String kindEmoji(int kind) {
+        switch (kind) {
+            case DatabaseHelper.SEARCH_KIND_RECURRING_EXPENSE:
+                return "📺";
+            case DatabaseHelper.SEARCH_KIND_OTHER_EXPENSE:
+                return "🧾";
+            case DatabaseHelper.SEARCH_KIND_LOAN:
+                return "🏦";
+            default:
+                return "💰";
+        }
+    }
+}
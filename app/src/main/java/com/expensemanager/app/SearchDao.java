@@ -0,0 +1,136 @@
+package com.expensemanager.app;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import com.expensemanager.core.Money;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Búsqueda sobre search_index. Obtener con {@link DatabaseHelper#getSearchDao()}.
+ *
+ * SQLite en Android no permite registrar funciones de ranking, así que se lee
+ * matchinfo de un número acotado de coincidencias y se ordena en Java.
+ */
+public class SearchDao {
+
+    /** Coincidencias leídas como máximo antes de ordenar. */
+    private static final int MAX_CANDIDATES = 500;
+
+    // Peso por columna del índice: el nombre pesa más que la categoría
+    private static final double[] COLUMN_WEIGHTS = {2.0, 1.0, 0, 0};
+
+    private static final String SQL_SEARCH = "SELECT docid, " +
+            DatabaseHelper.COLUMN_SI_NAME + ", " +
+            DatabaseHelper.COLUMN_SI_DETAIL + ", " +
+            DatabaseHelper.COLUMN_SI_AMOUNT + ", " +
+            DatabaseHelper.COLUMN_SI_DATE + ", " +
+            "matchinfo(" + DatabaseHelper.TABLE_SEARCH_INDEX + ", 'pcnx')" +
+            " FROM " + DatabaseHelper.TABLE_SEARCH_INDEX +
+            " WHERE " + DatabaseHelper.TABLE_SEARCH_INDEX + " MATCH ? LIMIT " + MAX_CANDIDATES;
+    private static final int COL_DOCID = 0;
+    private static final int COL_NAME = 1;
+    private static final int COL_DETAIL = 2;
+    private static final int COL_AMOUNT = 3;
+    private static final int COL_DATE = 4;
+    private static final int COL_MATCHINFO = 5;
+
+    private static final Comparator<SearchResult> BY_RELEVANCE = new Comparator<SearchResult>() {
+        @Override
+        public int compare(SearchResult a, SearchResult b) {
+            int byScore = Double.compare(b.score, a.score);
+            return byScore != 0 ? byScore : Long.compare(b.date, a.date);
+        }
+    };
+
+    private final SQLiteDatabase db;
+
+    SearchDao(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * Busca cada palabra de {@code text} como prefijo, sin importar mayúsculas
+     * ni tildes, y devuelve los {@code limit} resultados más relevantes.
+     */
+    public List<SearchResult> search(String text, int limit) {
+        List<SearchResult> results = new ArrayList<>();
+        String match = toMatchQuery(text);
+        if (match.isEmpty()) {
+            return results;
+        }
+
+        Cursor cursor = db.rawQuery(SQL_SEARCH, new String[]{match});
+        try {
+            while (cursor.moveToNext()) {
+                long docId = cursor.getLong(COL_DOCID);
+                results.add(new SearchResult(
+                        (int) (docId % DatabaseHelper.SEARCH_KIND_COUNT),
+                        docId / DatabaseHelper.SEARCH_KIND_COUNT,
+                        cursor.getString(COL_NAME),
+                        cursor.getString(COL_DETAIL),
+                        Money.ofCents(cursor.getLong(COL_AMOUNT)),
+                        cursor.getLong(COL_DATE),
+                        score(cursor.getBlob(COL_MATCHINFO))));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Collections.sort(results, BY_RELEVANCE);
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    /**
+     * "Suscripción netf" -> "suscripción* netf*". Solo se conservan letras y
+     * dígitos, así el texto del usuario nunca se interpreta como operador FTS.
+     */
+    static String toMatchQuery(String text) {
+        StringBuilder match = new StringBuilder();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                // En minúsculas, para que "OR" o "NEAR" no se lean como operadores
+                match.append(token.toString().toLowerCase(Locale.ROOT)).append('*');
+                token.setLength(0);
+            }
+        }
+        return match.toString();
+    }
+
+    /**
+     * Puntaje tipo tf-idf a partir de matchinfo 'pcnx': por cada frase y columna,
+     * apariciones en la fila por log(1 + filas / filas con la frase).
+     */
+    private static double score(byte[] matchInfo) {
+        IntBuffer values = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = values.get(0);
+        int columns = values.get(1);
+        int rows = values.get(2);
+
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns && column < COLUMN_WEIGHTS.length; column++) {
+                int base = 3 + 3 * (phrase * columns + column);
+                int hitsInRow = values.get(base);
+                int rowsWithHits = values.get(base + 2);
+                if (hitsInRow > 0) {
+                    score += COLUMN_WEIGHTS[column] * hitsInRow * Math.log(1 + (double) rows / rowsWithHits);
+                }
+            }
+        }
+        return score;
+    }
+}
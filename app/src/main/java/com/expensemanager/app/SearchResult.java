@@ -0,0 +1,28 @@
+package com.expensemanager.app;
+
+import com.expensemanager.core.Money;
+
+/**
+ * Resultado de búsqueda: una fila de cualquiera de las tablas indexadas.
+ */
+public class SearchResult {
+
+    /** Uno de los DatabaseHelper.SEARCH_KIND_* */
+    public final int kind;
+    public final long id;
+    public final String name;
+    public final String detail;
+    public final Money amount;
+    public final long date;
+    public final double score;
+
+    public SearchResult(int kind, long id, String name, String detail, Money amount, long date, double score) {
+        this.kind = kind;
+        this.id = id;
+        this.name = name;
+        this.detail = detail;
+        this.amount = amount;
+        this.date = date;
+        this.score = score;
+    }
+}
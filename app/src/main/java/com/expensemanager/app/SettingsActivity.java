@@ -1,32 +1,36 @@
 package com.expensemanager.app;
 
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
+import android.content.Context;
+import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.ListView;
+import android.widget.Spinner;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
-import java.text.NumberFormat;
+import com.expensemanager.core.Formatters;
+import com.expensemanager.core.Money;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
 public class SettingsActivity extends AppCompatActivity {
 
-    private DatabaseHelper dbHelper;
     private ListView balanceSourcesListView;
-    private TextView totalExpensesText, totalLoansText;
-    private Button backBtn;
+    private TextView totalExpensesText, totalLoansText, monthTotalText;
+    private Spinner digestWindowSpinner;
+    private Button diagnosticsBtn, backBtn;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_settings);
 
-        dbHelper = new DatabaseHelper(this);
-
         initializeViews();
         setupClickListeners();
         updateUI();
@@ -36,10 +40,28 @@ public class SettingsActivity extends AppCompatActivity {
         balanceSourcesListView = findViewById(R.id.balanceSourcesListView);
         totalExpensesText = findViewById(R.id.totalExpensesText);
         totalLoansText = findViewById(R.id.totalLoansText);
+        monthTotalText = findViewById(R.id.monthTotalText);
+        digestWindowSpinner = findViewById(R.id.digestWindowSpinner);
+
+        List<String> windows = new ArrayList<>();
+        for (int minutes : ReminderDigest.WINDOW_MINUTES) {
+            windows.add(minutes == 0 ? "Sin agrupar" : "Agrupar los de " + minutes + " min");
+        }
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, windows);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        digestWindowSpinner.setAdapter(adapter);
+        diagnosticsBtn = findViewById(R.id.diagnosticsBtn);
         backBtn = findViewById(R.id.backBtn);
     }
 
     private void setupClickListeners() {
+        diagnosticsBtn.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                startActivity(new Intent(SettingsActivity.this, DiagnosticsActivity.class));
+            }
+        });
+
         backBtn.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -49,27 +71,35 @@ public class SettingsActivity extends AppCompatActivity {
     }
 
     private void updateUI() {
-        updateBalanceSources();
-        updateTotalExpenses();
-        updateTotalLoans();
+        final String month = new SimpleDateFormat("yyyy-MM", Locale.US).format(new Date());
+        final Context appContext = getApplicationContext();
+
+        DbExecutor.read(this, new DbExecutor.Work<SettingsData>() {
+            @Override
+            public SettingsData run(DatabaseHelper db) {
+                return new SettingsData(
+                        db.getBalanceSourceDao().getAll(),
+                        // Totales mantenidos por triggers: lectura de una sola fila
+                        db.getDashboardSummaryDao().get(),
+                        db.getMonthlyRollupDao().getMonthTotal(month),
+                        // Las preferencias también son disco
+                        NotificationScheduler.getDigestWindowMinutes(appContext));
+            }
+        }, new DbExecutor.Callback<SettingsData>() {
+            @Override
+            public void onResult(SettingsData data) {
+                updateBalanceSources(data.sources);
+                updateTotals(data.summary, data.monthTotal);
+                updateDigestWindow(data.digestWindowMinutes);
+            }
+        });
     }
 
-    private void updateBalanceSources() {
+    private void updateBalanceSources(List<BalanceSource> balanceSources) {
         List<String> sources = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-
-        Cursor cursor = db.query(DatabaseHelper.TABLE_BALANCE_SOURCES, null, null, null, null, null, null);
-
-        NumberFormat formatter = NumberFormat.getCurrencyInstance(new Locale("es", "PE"));
-
-        while (cursor.moveToNext()) {
-            String name = cursor.getString(cursor.getColumnIndex(DatabaseHelper.COLUMN_BS_NAME));
-            String type = cursor.getString(cursor.getColumnIndex(DatabaseHelper.COLUMN_BS_TYPE));
-            double balance = cursor.getDouble(cursor.getColumnIndex(DatabaseHelper.COLUMN_BS_BALANCE));
-
-            sources.add(name + " (" + type + ")\n" + formatter.format(balance));
+        for (BalanceSource source : balanceSources) {
+            sources.add(source.name + " (" + source.type + ")\n" + Formatters.money(source.balance));
         }
-        cursor.close();
 
         if (sources.isEmpty()) {
             sources.add("No hay fuentes de saldo registradas");
@@ -79,39 +109,51 @@ public class SettingsActivity extends AppCompatActivity {
         balanceSourcesListView.setAdapter(adapter);
     }
 
-    private void updateTotalExpenses() {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-
-        Cursor cursor = db.rawQuery(
-                "SELECT SUM(" + DatabaseHelper.COLUMN_RE_AMOUNT + ") as total FROM " +
-                        DatabaseHelper.TABLE_RECURRING_EXPENSES +
-                        " WHERE " + DatabaseHelper.COLUMN_RE_IS_ACTIVE + " = 1", null);
+    private void updateTotals(DashboardSummary summary, Money monthTotal) {
+        Money totalExpenses = summary.activeRecurringTotal;
+        Money totalLoans = summary.pendingInstallmentTotal;
 
-        double totalExpenses = 0;
-        if (cursor.moveToFirst()) {
-            totalExpenses = cursor.getDouble(cursor.getColumnIndex("total"));
-        }
-        cursor.close();
+        totalExpensesText.setText("Gastos Recurrentes Mensuales: " + Formatters.money(totalExpenses));
+        totalLoansText.setText("Total Pendiente en Préstamos: " + Formatters.money(totalLoans));
 
-        NumberFormat formatter = NumberFormat.getCurrencyInstance(new Locale("es", "PE"));
-        totalExpensesText.setText("Gastos Recurrentes Mensuales: " + formatter.format(totalExpenses));
+        // Gastos, cuotas y gastos diversos que caen en el mes actual (monthly_rollups)
+        monthTotalText.setText("Gastos de este Mes: " + Formatters.money(monthTotal));
     }
 
-    private void updateTotalLoans() {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+    private void updateDigestWindow(int windowMinutes) {
+        for (int i = 0; i < ReminderDigest.WINDOW_MINUTES.length; i++) {
+            if (ReminderDigest.WINDOW_MINUTES[i] == windowMinutes) {
+                digestWindowSpinner.setSelection(i);
+            }
+        }
 
-        Cursor cursor = db.rawQuery(
-                "SELECT SUM(" + DatabaseHelper.COLUMN_LI_AMOUNT + ") as total FROM " +
-                        DatabaseHelper.TABLE_LOAN_INSTALLMENTS +
-                        " WHERE " + DatabaseHelper.COLUMN_LI_IS_PAID + " = 0", null);
+        // Recién ahora: la selección inicial no debe guardarse como un cambio
+        digestWindowSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                NotificationScheduler.setDigestWindowMinutes(getApplicationContext(),
+                        ReminderDigest.WINDOW_MINUTES[position]);
+            }
 
-        double totalLoans = 0;
-        if (cursor.moveToFirst()) {
-            totalLoans = cursor.getDouble(cursor.getColumnIndex("total"));
-        }
-        cursor.close();
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+    }
 
-        NumberFormat formatter = NumberFormat.getCurrencyInstance(new Locale("es", "PE"));
-        totalLoansText.setText("Total Pendiente en Préstamos: " + formatter.format(totalLoans));
+    // Resultado de la lectura en segundo plano
+    private static class SettingsData {
+        final List<BalanceSource> sources;
+        final DashboardSummary summary;
+        final Money monthTotal;
+        final int digestWindowMinutes;
+
+        SettingsData(List<BalanceSource> sources, DashboardSummary summary, Money monthTotal,
+                     int digestWindowMinutes) {
+            this.sources = sources;
+            this.summary = summary;
+            this.monthTotal = monthTotal;
+            this.digestWindowMinutes = digestWindowMinutes;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package com.expensemanager.app;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+import java.util.ArrayDeque;
+
+/**
+ * Secciones del arranque de {@link MainActivity}. Cada sección aparece en
+ * Perfetto/systrace (android.os.Trace) y, con su duración, en el informe que
+ * {@link #report} escribe en logcat (etiqueta "Startup"):
+ * <pre>
+ * onCreate 48 ms
+ *   setContentView 31 ms
+ *   HomeSnapshot.load 2 ms
+ *   render 9 ms
+ * fully_drawn a 405 ms del inicio del proceso, 57 ms desde onCreate
+ * first_draw a 412 ms del inicio del proceso, 64 ms desde onCreate
+ * database a 455 ms del inicio del proceso, 107 ms desde onCreate
+ * </pre>
+ * Crearla junto con la actividad: los hitos se miden desde ahí.
+ *
+ * Solo hilo principal: las secciones de Trace se cierran en el hilo que las
+ * abrió.
+ */
+final class StartupTrace {
+
+    private static final String TAG = "Startup";
+
+    private final ArrayDeque<String> names = new ArrayDeque<>();
+    private final ArrayDeque<Long> starts = new ArrayDeque<>();
+    // Dónde va la línea de cada sección abierta: antes de las de sus hijas,
+    // que terminan primero
+    private final ArrayDeque<Integer> positions = new ArrayDeque<>();
+    private final StringBuilder report = new StringBuilder();
+    private final long createdAt = SystemClock.uptimeMillis();
+
+    void begin(String name) {
+        Trace.beginSection(name);
+        positions.push(report.length());
+        names.push(name);
+        starts.push(SystemClock.uptimeMillis());
+    }
+
+    void end() {
+        Trace.endSection();
+        long millis = SystemClock.uptimeMillis() - starts.pop();
+        String name = names.pop();
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            line.append("  ");
+        }
+        line.append(name).append(' ').append(millis).append(" ms\n");
+        report.insert(positions.pop(), line);
+    }
+
+    /**
+     * Hito puntual, medido desde el inicio del proceso y desde onCreate.
+     *
+     * @return ms desde onCreate
+     */
+    long mark(String event) {
+        long now = SystemClock.uptimeMillis();
+        report.append(event).append(" a ").append(now - Process.getStartUptimeMillis())
+                .append(" ms del inicio del proceso, ").append(now - createdAt).append(" ms desde onCreate\n");
+        return now - createdAt;
+    }
+
+    /** ms desde el inicio del proceso hasta onCreate. */
+    long processToCreate() {
+        return createdAt - Process.getStartUptimeMillis();
+    }
+
+    void report() {
+        Log.i(TAG, report.toString().trim());
+    }
+}
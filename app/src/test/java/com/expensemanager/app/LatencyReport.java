@@ -0,0 +1,53 @@
+package com.expensemanager.app;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Tabla de tiempos de una medición (las clases *Report): primera corrida,
+ * mediana y máximo de cada caso, en build/reports/latency/&lt;nombre&gt;.txt.
+ *
+ * Las mediciones no fallan por tiempo ni corren con el resto de los tests: en
+ * la JVM, con el SQLite de Robolectric, los tiempos sirven para comparar dos
+ * versiones en la misma máquina, no como los del equipo.
+ * <pre>
+ * ./gradlew :app:testDebugUnitTest -Preports --tests '*Report'
+ * </pre>
+ */
+final class LatencyReport {
+
+    private static final File DIRECTORY = new File("build/reports/latency");
+
+    private final String name;
+    private final StringBuilder table = new StringBuilder();
+
+    LatencyReport(String name, String title) {
+        this.name = name;
+        table.append(title).append('\n')
+                .append(String.format("%-28s %10s %10s %10s%n", "", "primera", "mediana", "máximo"));
+    }
+
+    /** @param nanos una medición por corrida, en orden: la primera es la de en frío */
+    void add(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        table.append(String.format("%-28s %7.2f ms %7.2f ms %7.2f ms%n", label, nanos[0] / 1e6,
+                sorted[sorted.length / 2] / 1e6, sorted[sorted.length - 1] / 1e6));
+    }
+
+    void write() throws IOException {
+        if (!DIRECTORY.isDirectory() && !DIRECTORY.mkdirs()) {
+            throw new IOException("No se pudo crear " + DIRECTORY);
+        }
+        Writer out = new OutputStreamWriter(new FileOutputStream(new File(DIRECTORY, name + ".txt")), "UTF-8");
+        try {
+            out.write(table.toString());
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.expensemanager.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import com.expensemanager.core.Amortization;
+import com.expensemanager.core.InstallmentSchedule;
+import com.expensemanager.core.Money;
+import java.util.TimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * {@link LoanDao#insertWithInstallments} guarda el préstamo y todas sus cuotas
+ * o nada: si una cuota falla a mitad del cronograma no queda un préstamo con
+ * cuotas de menos. Lo que cuesta cada forma de insertar lo mide
+ * LoanInsertBenchmark en el módulo benchmark.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LoanInsertTransactionTest {
+
+    private static final int INSTALLMENTS = 360;
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        helper = new DatabaseHelper(RuntimeEnvironment.getApplication(), null);
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void insertsEveryInstallment() {
+        long[] ids = helper.getLoanDao().insertWithInstallments(loan(), schedule(), 3, 2);
+
+        assertNotNull(ids);
+        assertEquals(INSTALLMENTS, ids.length);
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_LOANS));
+        assertEquals(INSTALLMENTS, DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_LOAN_INSTALLMENTS));
+    }
+
+    @Test
+    public void failureMidScheduleRollsBackTheLoan() {
+        // La cuota 180 no se puede insertar
+        db.execSQL("CREATE TRIGGER fail_installment BEFORE INSERT ON " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS
+                + " WHEN NEW." + DatabaseHelper.COLUMN_LI_INSTALLMENT_NUMBER + " = " + INSTALLMENTS / 2
+                + " BEGIN SELECT RAISE(ABORT, 'cuota rechazada'); END");
+
+        assertNull(helper.getLoanDao().insertWithInstallments(loan(), schedule(), 3, 2));
+
+        assertEquals(0, DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_LOANS));
+        assertEquals(0, DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_LOAN_INSTALLMENTS));
+        // Los triggers del resumen tampoco dejaron rastro
+        assertEquals(0, helper.getDashboardSummaryDao().get().pendingInstallmentTotal.getCents());
+    }
+
+    @Test
+    public void insertsAgainAfterARollback() {
+        db.execSQL("CREATE TRIGGER fail_installment BEFORE INSERT ON " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS
+                + " WHEN NEW." + DatabaseHelper.COLUMN_LI_INSTALLMENT_NUMBER + " = " + INSTALLMENTS
+                + " BEGIN SELECT RAISE(ABORT, 'cuota rechazada'); END");
+        assertNull(helper.getLoanDao().insertWithInstallments(loan(), schedule(), 3, 2));
+        db.execSQL("DROP TRIGGER fail_installment");
+
+        // La transacción fallida no deja la conexión a medias
+        assertNotNull(helper.getLoanDao().insertWithInstallments(loan(), schedule(), 3, 2));
+        assertEquals(1, DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_LOANS));
+        assertEquals(INSTALLMENTS, DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_LOAN_INSTALLMENTS));
+    }
+
+    private static Loan loan() {
+        Money capital = Money.ofCents(1000000);
+        return new Loan(0, "Préstamo", capital, 12, capital, INSTALLMENTS,
+                Money.ofCents(1000000 / INSTALLMENTS), 0, "MENSUAL", 30, Amortization.FRENCH);
+    }
+
+    private static InstallmentSchedule schedule() {
+        return InstallmentSchedule.of(Amortization.FRENCH, Money.ofCents(1000000), 12, INSTALLMENTS,
+                0, 30, TimeZone.getTimeZone("UTC"));
+    }
+}
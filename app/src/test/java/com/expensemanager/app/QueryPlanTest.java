@@ -0,0 +1,138 @@
+package com.expensemanager.app;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Las consultas de pagos pendientes deben resolverse con los índices de
+ * {@link DatabaseHelper} (estado, due_date) y (loan_id): si un cambio de
+ * esquema o de SQL las lleva a recorrer la tabla entera (SCAN) u ordenar en
+ * memoria (TEMP B-TREE), estos tests fallan con el plan completo.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class QueryPlanTest {
+
+    private static final int LOANS = 200;
+    private static final int INSTALLMENTS_PER_LOAN = 24;
+    private static final int EXPENSES = 2000;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private DatabaseHelper helper;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        helper = new DatabaseHelper(RuntimeEnvironment.getApplication(), null);
+        db = helper.getWritableDatabase();
+        seed();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void firstPageUsesIndexes() {
+        assertIndexed(PendingPaymentDao.SQL_PAGE_AFTER,
+                String.valueOf(Long.MIN_VALUE), String.valueOf(Long.MIN_VALUE), "0", "30");
+    }
+
+    @Test
+    public void nextPageUsesIndexes() {
+        assertIndexed(PendingPaymentDao.SQL_PAGE_AFTER, String.valueOf(100 * DAY), "500", "1", "30");
+    }
+
+    @Test
+    public void previousPageUsesIndexes() {
+        assertIndexed(PendingPaymentDao.SQL_PAGE_BEFORE, String.valueOf(100 * DAY), "500", "1", "30");
+    }
+
+    @Test
+    public void overdueCountUsesIndexes() {
+        assertIndexed(PendingPaymentDao.SQL_COUNT_OVERDUE, String.valueOf(100 * DAY));
+    }
+
+    /** Las cuotas se insertan en orden: por id es por número, y el índice ya lo trae. */
+    @Test
+    public void installmentsOfLoanUseLoanIdIndex() {
+        assertIndexed("SELECT " + DatabaseHelper.COLUMN_LI_ID + " FROM " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS
+                + " WHERE " + DatabaseHelper.COLUMN_LI_LOAN_ID + " = ?"
+                + " ORDER BY " + DatabaseHelper.COLUMN_LI_ID, "7");
+    }
+
+    private void assertIndexed(String sql, String... args) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        try {
+            // 3 = detail
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(3)).append('\n');
+            }
+        } finally {
+            cursor.close();
+        }
+
+        String text = plan.toString();
+        assertTrue("Plan vacío para " + sql, text.length() > 0);
+        // "SCAN CONSTANT ROW" es el SELECT sin FROM que suma los dos COUNT
+        String scans = text.replace("SCAN CONSTANT ROW", "");
+        assertFalse("Recorre la tabla entera:\n" + text, scans.contains("SCAN"));
+        assertFalse("Ordena en memoria:\n" + text, text.contains("TEMP B-TREE"));
+    }
+
+    /** Cuotas pagadas y pendientes, gastos activos e inactivos, vencidos y por vencer. */
+    private void seed() {
+        SQLiteStatement loan = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_LOANS + " ("
+                + DatabaseHelper.COLUMN_LOAN_NAME + ", " + DatabaseHelper.COLUMN_LOAN_CAPITAL + ", "
+                + DatabaseHelper.COLUMN_LOAN_INTEREST_RATE + ", " + DatabaseHelper.COLUMN_LOAN_TOTAL_AMOUNT + ", "
+                + DatabaseHelper.COLUMN_LOAN_INSTALLMENTS + ", " + DatabaseHelper.COLUMN_LOAN_INSTALLMENT_AMOUNT + ", "
+                + DatabaseHelper.COLUMN_LOAN_START_DATE + ") VALUES (?, 120000, 20, 144000, ?, 6000, 0)");
+        SQLiteStatement installment = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_LOAN_INSTALLMENTS
+                + " (" + DatabaseHelper.COLUMN_LI_LOAN_ID + ", " + DatabaseHelper.COLUMN_LI_INSTALLMENT_NUMBER + ", "
+                + DatabaseHelper.COLUMN_LI_AMOUNT + ", " + DatabaseHelper.COLUMN_LI_DUE_DATE + ", "
+                + DatabaseHelper.COLUMN_LI_IS_PAID + ") VALUES (?, ?, 6000, ?, ?)");
+        SQLiteStatement expense = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_RECURRING_EXPENSES
+                + " (" + DatabaseHelper.COLUMN_RE_NAME + ", " + DatabaseHelper.COLUMN_RE_AMOUNT + ", "
+                + DatabaseHelper.COLUMN_RE_TYPE + ", " + DatabaseHelper.COLUMN_RE_DUE_DATE + ", "
+                + DatabaseHelper.COLUMN_RE_IS_ACTIVE + ") VALUES (?, 2990, 'SUSCRIPCIÓN', ?, ?)");
+
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < LOANS; i++) {
+                loan.bindString(1, "Préstamo " + i);
+                loan.bindLong(2, INSTALLMENTS_PER_LOAN);
+                long loanId = loan.executeInsert();
+                for (int n = 1; n <= INSTALLMENTS_PER_LOAN; n++) {
+                    installment.bindLong(1, loanId);
+                    installment.bindLong(2, n);
+                    installment.bindLong(3, (i % 60 + n * 30) * DAY);
+                    installment.bindLong(4, n <= INSTALLMENTS_PER_LOAN / 2 ? 1 : 0);
+                    installment.executeInsert();
+                }
+            }
+            for (int i = 0; i < EXPENSES; i++) {
+                expense.bindString(1, "Gasto " + i);
+                expense.bindLong(2, (i % 365) * DAY);
+                expense.bindLong(3, i % 4 == 0 ? 0 : 1);
+                expense.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            loan.close();
+            installment.close();
+            expense.close();
+        }
+    }
+}
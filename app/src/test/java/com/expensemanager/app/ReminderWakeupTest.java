@@ -0,0 +1,177 @@
+package com.expensemanager.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import com.expensemanager.core.Money;
+import com.expensemanager.core.PaymentItem;
+import com.expensemanager.core.Reminder;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+/**
+ * Despertares y aperturas de la base para entregar los recordatorios de 50
+ * pagos que vencen el mismo día, con cada ventana de {@link ReminderDigest}.
+ *
+ * Los pagos se programan con {@link NotificationScheduler#enqueueReminders} y
+ * cada entrega hace lo que NotificationReceiver al sonar la alarma: abre la
+ * base (el proceso suele estar muerto), {@link ReminderQueueDao#takeDue} hasta
+ * el corte de la ventana y {@link NotificationScheduler#armNext}. Antes de la
+ * cola había una alarma, y una apertura, por recordatorio.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ReminderWakeupTest {
+
+    private static final int ITEMS = 50;
+    // Con ReminderSchedule: 3 avisos cada 2 minutos (uno después del vencimiento) y el del vencimiento
+    private static final int REMINDER_DAYS = 3;
+    private static final int INTERVAL_HOURS = 2;
+    private static final int REMINDERS_PER_ITEM = 4;
+    private static final long MINUTE = 60 * 1000L;
+
+    private Context context;
+    private ShadowAlarmManager alarms;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        alarms = shadowOf((AlarmManager) context.getSystemService(Context.ALARM_SERVICE));
+    }
+
+    /**
+     * La instancia única sobrevive entre tests pero cada test tiene su propia
+     * carpeta de datos: cerrarla para que el siguiente abra la suya.
+     */
+    @After
+    public void tearDown() throws Exception {
+        Field instance = DatabaseHelper.class.getDeclaredField("instance");
+        instance.setAccessible(true);
+        DatabaseHelper helper = (DatabaseHelper) instance.get(null);
+        if (helper != null) {
+            helper.close();
+            instance.set(null, null);
+        }
+    }
+
+    @Test
+    public void sameTime() {
+        long[] dueDates = new long[ITEMS];
+        long day = tomorrow();
+        for (int i = 0; i < ITEMS; i++) {
+            dueDates[i] = day + 9 * 60 * MINUTE;
+        }
+
+        // Todos los avisos caen en 4 minutos: desde 5 minutos, una sola entrega
+        assertDeliveries(dueDates, new int[] {4, 1, 1, 1, 1});
+    }
+
+    @Test
+    public void spreadOverTheDay() {
+        long[] dueDates = new long[ITEMS];
+        long day = tomorrow();
+        for (int i = 0; i < ITEMS; i++) {
+            dueDates[i] = day + 10 * MINUTE + i * 28 * MINUTE;
+        }
+
+        // Uno cada 28 minutos: con 30 minutos una entrega alcanza parte del pago
+        // siguiente, con 60 minutos tres pagos enteros
+        assertDeliveries(dueDates, new int[] {200, 50, 50, 34, 17});
+    }
+
+    /**
+     * @param expected entregas (despertares y aperturas) con cada ventana de
+     *                 {@link ReminderDigest#WINDOW_MINUTES}, en orden
+     */
+    private void assertDeliveries(long[] dueDates, int[] expected) {
+        for (int w = 0; w < ReminderDigest.WINDOW_MINUTES.length; w++) {
+            int minutes = ReminderDigest.WINDOW_MINUTES[w];
+            enqueue(dueDates);
+            int reminders = DatabaseHelper.getInstance(context).getReminderQueueDao().count();
+            // Una alarma por aviso, como antes de la cola
+            assertEquals(ITEMS * REMINDERS_PER_ITEM, reminders);
+
+            int[] opens = new int[1];
+            Set<Long> shown = new HashSet<>();
+            int wakeups = 0;
+            ShadowAlarmManager.ScheduledAlarm alarm;
+            // armNext reemplaza la alarma que sonó, o la cancela con la cola vacía
+            while ((alarm = alarms.getNextScheduledAlarm()) != null) {
+                wakeups++;
+                shown.addAll(deliver(alarm.triggerAtTime, ReminderDigest.windowMillis(minutes), opens));
+            }
+
+            String label = minutes + " min";
+            assertEquals(label, expected[w], wakeups);
+            assertEquals(label, wakeups, opens[0]);
+            // Cada pago se mostró
+            assertEquals(label, ITEMS, shown.size());
+            assertEquals(label, 0, DatabaseHelper.getInstance(context).getReminderQueueDao().count());
+            assertNull(label, alarms.getNextScheduledAlarm());
+        }
+    }
+
+    private void enqueue(long[] dueDates) {
+        List<PaymentItem> items = new ArrayList<>();
+        for (int i = 0; i < dueDates.length; i++) {
+            String name = "Pago " + (i + 1);
+            items.add(new PaymentItem(i + 1, "expense", name, name, Money.ofCents(10000), dueDates[i],
+                    REMINDER_DAYS, INTERVAL_HOURS));
+        }
+        NotificationScheduler.enqueueReminders(context, items);
+        NotificationScheduler.armNext(context);
+    }
+
+    /**
+     * Una entrega en {@code now} con su propia conexión, como un proceso nuevo.
+     *
+     * @return ids de los pagos mostrados
+     */
+    private Set<Long> deliver(long now, long windowMillis, final int[] opens) {
+        DatabaseHelper process = new DatabaseHelper(context, DatabaseHelper.DATABASE_NAME) {
+            @Override
+            public void onOpen(SQLiteDatabase db) {
+                super.onOpen(db);
+                opens[0]++;
+            }
+        };
+        Set<Long> items = new HashSet<>();
+        try {
+            List<Reminder> due = ReminderDigest.latestPerItem(
+                    process.getReminderQueueDao().takeDue(ReminderDigest.cutoff(now, windowMillis)));
+            for (Reminder reminder : due) {
+                assertTrue(reminder.title, items.add(reminder.itemId));
+            }
+        } finally {
+            process.close();
+        }
+        NotificationScheduler.armNext(context);
+        return items;
+    }
+
+    /** Mañana a medianoche en la zona del equipo: todos los avisos quedan en el futuro. */
+    private static long tomorrow() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+}
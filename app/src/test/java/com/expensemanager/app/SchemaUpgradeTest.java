@@ -0,0 +1,354 @@
+package com.expensemanager.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import java.io.File;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Bases de v1, v2 y v3 creadas con el SQL de su época (montos REAL) y llenas
+ * con unas cien mil filas, migradas a {@link DatabaseHelper#DATABASE_VERSION}
+ * por {@link SchemaMigrator}: el esquema ya lo compara verifySchema; aquí se
+ * comprueban los datos y el tiempo.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SchemaUpgradeTest {
+
+    private static final String DATABASE_NAME = "upgrade_test.db";
+
+    private static final int BALANCE_SOURCES = 1000;
+    private static final int LOANS = 2000;
+    private static final int INSTALLMENTS_PER_LOAN = 24;
+    /** Uno de cada DELETED_EVERY préstamos no tiene esta cuota: el usuario la eliminó. */
+    private static final int DELETED_INSTALLMENT = 5;
+    private static final int DELETED_EVERY = 10;
+    private static final int RECURRING_EXPENSES = 40000;
+    private static final int OTHER_EXPENSES = 10000;
+
+    /** Desde v1, la más lenta, tarda 4-5 s en la JVM: un cambio que la haga más lenta falla. */
+    private static final long UPGRADE_BUDGET_MS = 6000;
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private Context context;
+
+    // Lo que deben sumar los montos en céntimos después de migrar
+    private long balanceCents;
+    private long activeRecurringCents;
+    private long recurringCents;
+    private long pendingInstallmentCents;
+    private long installmentCents;
+    private long otherExpenseCents;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void upgradesFromVersion1() {
+        seed(1);
+        upgradeAndCheck(1);
+    }
+
+    @Test
+    public void upgradesFromVersion2() {
+        seed(2);
+        upgradeAndCheck(2);
+    }
+
+    @Test
+    public void upgradesFromVersion3() {
+        seed(3);
+        upgradeAndCheck(3);
+    }
+
+    private void upgradeAndCheck(int fromVersion) {
+        DatabaseHelper helper = new DatabaseHelper(context, DATABASE_NAME);
+        try {
+            // SystemClock es de mentira en Robolectric
+            long start = System.nanoTime();
+            SQLiteDatabase db = helper.getWritableDatabase();
+            long elapsed = (System.nanoTime() - start) / 1000000;
+            System.out.println("v" + fromVersion + " -> v" + DatabaseHelper.DATABASE_VERSION + ": " + elapsed + " ms");
+
+            assertEquals(DatabaseHelper.DATABASE_VERSION, db.getVersion());
+            assertTrue("v" + fromVersion + ": " + elapsed + " ms", elapsed < UPGRADE_BUDGET_MS);
+            assertEquals("ok", DatabaseUtils.stringForQuery(db, "PRAGMA integrity_check", null));
+            assertEquals(0, count(db, "pragma_foreign_key_check"));
+
+            assertEquals(BALANCE_SOURCES, count(db, "balance_sources"));
+            assertEquals(LOANS, count(db, "loans"));
+            assertEquals(LOANS * INSTALLMENTS_PER_LOAN - LOANS / DELETED_EVERY,
+                    count(db, "loan_installments_history"));
+            assertEquals(RECURRING_EXPENSES, count(db, "recurring_expenses_history"));
+            assertEquals(OTHER_EXPENSES, count(db, "other_expenses"));
+            // Lo pagado y lo inactivo queda en el archivo
+            assertEquals(0, DatabaseUtils.longForQuery(db,
+                    "SELECT COUNT(*) FROM loan_installments WHERE is_paid = 1", null));
+            assertEquals(0, DatabaseUtils.longForQuery(db,
+                    "SELECT COUNT(*) FROM recurring_expenses WHERE is_active = 0", null));
+
+            assertEquals(balanceCents, sum(db, "balance_sources", "balance"));
+            assertEquals(recurringCents, sum(db, "recurring_expenses_history", "amount"));
+            assertEquals(installmentCents, sum(db, "loan_installments_history", "amount"));
+            assertEquals(otherExpenseCents, sum(db, "other_expenses", "amount"));
+
+            DashboardSummary summary = helper.getDashboardSummaryDao().get();
+            assertEquals(balanceCents, summary.totalBalance.getCents());
+            assertEquals(activeRecurringCents, summary.activeRecurringTotal.getCents());
+            assertEquals(pendingInstallmentCents, summary.pendingInstallmentTotal.getCents());
+
+            checkBreakdown(db, fromVersion);
+        } finally {
+            helper.close();
+        }
+    }
+
+    /**
+     * v13: capital + interés = cuota en cada una; el capital de las cuotas suma
+     * el del préstamo y el saldo baja hasta 0. Antes de v2 no había capital, y si
+     * el redondeo dejó las cuotas por debajo del capital, amortizan lo que suman.
+     * Una cuota eliminada sigue contando en el cronograma: las siguientes no se
+     * corren.
+     */
+    private static void checkBreakdown(SQLiteDatabase db, int fromVersion) {
+        assertEquals(LOANS, DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM loans WHERE amortization_method = 'PLANO'", null));
+        assertEquals(0, DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM loan_installments_history WHERE principal + interest != amount"
+                        + " OR principal < 0 OR interest < 0", null));
+        // Cada cuota amortiza sobre el saldo de la anterior
+        assertEquals(0, DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM loan_installments_history a JOIN loan_installments_history b"
+                        + " ON b.loan_id = a.loan_id AND b.installment_number = a.installment_number + 1"
+                        + " WHERE a.balance - b.principal != b.balance", null));
+
+        Cursor cursor = db.rawQuery("SELECT l.capital, l.installments * l.installment_amount,"
+                + " SUM(h.principal), SUM(h.interest), SUM(h.amount), COUNT(*),"
+                + " (SELECT balance FROM loan_installments_history WHERE loan_id = l.id"
+                + " AND installment_number = l.installments),"
+                + " (SELECT balance + principal FROM loan_installments_history WHERE loan_id = l.id"
+                + " AND installment_number = 1)"
+                + " FROM loans l JOIN loan_installments_history h ON h.loan_id = l.id GROUP BY l.id", null);
+        try {
+            assertEquals(LOANS, cursor.getCount());
+            while (cursor.moveToNext()) {
+                // Todas las cuotas del préstamo son iguales, también la eliminada
+                long total = cursor.getLong(1);
+                long capital = Math.min(cursor.getLong(0), total);
+                if (fromVersion == 1) {
+                    assertEquals(0, capital);
+                }
+                assertEquals(0, cursor.getLong(6));
+                // El saldo tras la primera cuota es el capital menos lo que amortizó
+                assertEquals(capital, cursor.getLong(7));
+                if (cursor.getInt(5) == INSTALLMENTS_PER_LOAN) {
+                    assertEquals(total, cursor.getLong(4));
+                    assertEquals(capital, cursor.getLong(2));
+                    assertEquals(total - capital, cursor.getLong(3));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        // Lo que amortiza la cuota eliminada queda entre el saldo de la anterior y el de la siguiente
+        cursor = db.rawQuery("SELECT l.capital, l.installment_amount, a.balance, b.principal, b.balance"
+                + " FROM loans l JOIN loan_installments_history a ON a.loan_id = l.id"
+                + " AND a.installment_number = " + (DELETED_INSTALLMENT - 1)
+                + " JOIN loan_installments_history b ON b.loan_id = l.id"
+                + " AND b.installment_number = " + (DELETED_INSTALLMENT + 1)
+                + " WHERE NOT EXISTS (SELECT 1 FROM loan_installments_history WHERE loan_id = l.id"
+                + " AND installment_number = " + DELETED_INSTALLMENT + ")", null);
+        try {
+            assertEquals(LOANS / DELETED_EVERY, cursor.getCount());
+            while (cursor.moveToNext()) {
+                long payment = cursor.getLong(1);
+                long total = payment * INSTALLMENTS_PER_LOAN;
+                long capital = Math.min(cursor.getLong(0), total);
+                long before = cursor.getLong(2);
+                long regularInterest = (total - capital) / INSTALLMENTS_PER_LOAN;
+                long deletedPrincipal = payment - Math.min(payment, Math.max(regularInterest, payment - before));
+                assertEquals(before - deletedPrincipal - cursor.getLong(3), cursor.getLong(4));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static long count(SQLiteDatabase db, String table) {
+        return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + table, null);
+    }
+
+    private static long sum(SQLiteDatabase db, String table, String column) {
+        return DatabaseUtils.longForQuery(db, "SELECT IFNULL(SUM(" + column + "), 0) FROM " + table, null);
+    }
+
+    /** Monto en soles (REAL), como lo guardaba la app antes de v6. */
+    private static double soles(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Esquema y datos de {@code version}: v2 agregó capital e interest_rate a
+     * loans; v3, la frecuencia de pago y paid_date; v4, el intervalo de
+     * notificaciones.
+     */
+    private void seed(int version) {
+        File file = context.getDatabasePath(DATABASE_NAME);
+        // SQLiteOpenHelper crea la carpeta; aquí se abre el archivo directamente
+        file.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        try {
+            db.execSQL("CREATE TABLE balance_sources(id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + "name TEXT NOT NULL,type TEXT NOT NULL,balance REAL DEFAULT 0)");
+            db.execSQL("CREATE TABLE recurring_expenses(id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + "name TEXT NOT NULL,amount REAL NOT NULL,type TEXT NOT NULL,due_date INTEGER NOT NULL,"
+                    + "reminder_days INTEGER DEFAULT 3,is_active INTEGER DEFAULT 1)");
+            db.execSQL("CREATE TABLE loans(id INTEGER PRIMARY KEY AUTOINCREMENT,name TEXT NOT NULL,"
+                    + (version >= 2 ? "capital REAL NOT NULL,interest_rate REAL NOT NULL," : "")
+                    + "total_amount REAL NOT NULL,installments INTEGER NOT NULL,installment_amount REAL NOT NULL,"
+                    + "start_date INTEGER NOT NULL"
+                    + (version >= 3 ? ",payment_frequency TEXT DEFAULT 'MENSUAL',"
+                    + "payment_interval_days INTEGER DEFAULT 30" : "") + ")");
+            db.execSQL("CREATE TABLE loan_installments(id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + "loan_id INTEGER NOT NULL,installment_number INTEGER NOT NULL,amount REAL NOT NULL,"
+                    + "due_date INTEGER NOT NULL,is_paid INTEGER DEFAULT 0,"
+                    + (version >= 3 ? "paid_date INTEGER DEFAULT 0," : "")
+                    + "reminder_days INTEGER DEFAULT 3,FOREIGN KEY(loan_id) REFERENCES loans(id))");
+            db.execSQL("CREATE TABLE other_expenses(id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + "name TEXT NOT NULL,amount REAL NOT NULL,date INTEGER NOT NULL,category TEXT,"
+                    + "source_id INTEGER,FOREIGN KEY(source_id) REFERENCES balance_sources(id))");
+
+            db.beginTransaction();
+            try {
+                seedBalanceSources(db);
+                seedRecurringExpenses(db);
+                seedLoans(db, version);
+                seedOtherExpenses(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            db.setVersion(version);
+        } finally {
+            db.close();
+        }
+    }
+
+    private void seedBalanceSources(SQLiteDatabase db) {
+        SQLiteStatement insert = db.compileStatement(
+                "INSERT INTO balance_sources (name, type, balance) VALUES (?, 'BANCO', ?)");
+        for (int i = 0; i < BALANCE_SOURCES; i++) {
+            long cents = 100000 + i * 1237L;
+            insert.bindString(1, "Cuenta " + i);
+            insert.bindDouble(2, soles(cents));
+            insert.executeInsert();
+            balanceCents += cents;
+        }
+        insert.close();
+    }
+
+    private void seedRecurringExpenses(SQLiteDatabase db) {
+        SQLiteStatement insert = db.compileStatement("INSERT INTO recurring_expenses"
+                + " (name, amount, type, due_date, is_active) VALUES (?, ?, 'SERVICIO', ?, ?)");
+        for (int i = 0; i < RECURRING_EXPENSES; i++) {
+            // Céntimos que no son exactos en binario: 0,10, 0,29, 19,99...
+            long cents = 10 + (i % 9973) * 19L;
+            boolean active = i % 5 != 0;
+            insert.bindString(1, "Gasto " + i);
+            insert.bindDouble(2, soles(cents));
+            insert.bindLong(3, (i % 365) * DAY);
+            insert.bindLong(4, active ? 1 : 0);
+            insert.executeInsert();
+            recurringCents += cents;
+            if (active) {
+                activeRecurringCents += cents;
+            }
+        }
+        insert.close();
+    }
+
+    /**
+     * Como la app antes de v4: todas las cuotas iguales, total / n sin redondear.
+     * La migración a céntimos redondea cada una.
+     */
+    private void seedLoans(SQLiteDatabase db, int version) {
+        SQLiteStatement loan = db.compileStatement("INSERT INTO loans (name, "
+                + (version >= 2 ? "capital, interest_rate, " : "")
+                + "total_amount, installments, installment_amount, start_date) VALUES (?, ?, ?, ?, ?"
+                + (version >= 2 ? ", ?, ?" : "") + ")");
+        SQLiteStatement installment = db.compileStatement("INSERT INTO loan_installments"
+                + " (loan_id, installment_number, amount, due_date, is_paid) VALUES (?, ?, ?, ?, ?)");
+        for (int i = 0; i < LOANS; i++) {
+            long capitalCents = 50000 + i * 3331L;
+            long totalCents = capitalCents + capitalCents * (i % 40) / 100 + i % 7;
+            double installmentAmount = soles(totalCents) / INSTALLMENTS_PER_LOAN;
+            long installmentCentsEach = Math.round(installmentAmount * 100);
+
+            int column = 1;
+            loan.bindString(column++, "Préstamo " + i);
+            if (version >= 2) {
+                loan.bindDouble(column++, soles(capitalCents));
+                loan.bindDouble(column++, (totalCents - capitalCents) * 100.0 / capitalCents);
+            }
+            loan.bindDouble(column++, soles(totalCents));
+            loan.bindLong(column++, INSTALLMENTS_PER_LOAN);
+            loan.bindDouble(column++, installmentAmount);
+            loan.bindLong(column, 0);
+            long loanId = loan.executeInsert();
+
+            int paid = i % (INSTALLMENTS_PER_LOAN + 1);
+            for (int n = 1; n <= INSTALLMENTS_PER_LOAN; n++) {
+                if (i % DELETED_EVERY == 3 && n == DELETED_INSTALLMENT) {
+                    continue;
+                }
+                installment.bindLong(1, loanId);
+                installment.bindLong(2, n);
+                installment.bindDouble(3, installmentAmount);
+                installment.bindLong(4, n * 30 * DAY);
+                installment.bindLong(5, n <= paid ? 1 : 0);
+                installment.executeInsert();
+                installmentCents += installmentCentsEach;
+                if (n > paid) {
+                    pendingInstallmentCents += installmentCentsEach;
+                }
+            }
+        }
+        loan.close();
+        installment.close();
+    }
+
+    private void seedOtherExpenses(SQLiteDatabase db) {
+        SQLiteStatement insert = db.compileStatement("INSERT INTO other_expenses"
+                + " (name, amount, date, category, source_id) VALUES (?, ?, ?, 'Comida', ?)");
+        for (int i = 0; i < OTHER_EXPENSES; i++) {
+            long cents = 5 + i * 7L;
+            insert.bindString(1, "Compra " + i);
+            insert.bindDouble(2, soles(cents));
+            insert.bindLong(3, (i % 365) * DAY);
+            insert.bindLong(4, 1 + i % BALANCE_SOURCES);
+            insert.executeInsert();
+            otherExpenseCents += cents;
+        }
+        insert.close();
+    }
+}
@@ -0,0 +1,82 @@
+package com.expensemanager.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * {@link SearchDao#search}: prefijos sin tildes, varias palabras y consultas
+ * sin resultados. El tiempo de cada consulta sobre cien mil filas lo mide
+ * {@link SearchLatencyReport}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SearchDaoTest {
+
+    private static final int ROWS = 10000;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private static final String[] NAMES = {"Suscripción Netflix", "Suscripción Spotify", "Supermercado Plaza Vea",
+            "Luz del Sur", "Agua Sedapal", "Gasolina Primax", "Farmacia Inkafarma", "Almuerzo oficina",
+            "Taxi aeropuerto", "Cine Cineplanet", "Gimnasio mensual", "Teléfono Movistar"};
+    private static final String[] CATEGORIES = {"Comida", "Transporte", "Servicios", "Salud", "Entretenimiento"};
+
+    private DatabaseHelper helper;
+    private SearchDao searchDao;
+
+    @Before
+    public void setUp() {
+        helper = new DatabaseHelper(RuntimeEnvironment.getApplication(), null);
+        seed(helper.getWritableDatabase(), ROWS);
+        searchDao = helper.getSearchDao();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void findsPrefixesWithoutAccents() {
+        List<SearchResult> results = searchDao.search("suscripcion net", 50);
+
+        assertEquals(50, results.size());
+        for (SearchResult result : results) {
+            assertTrue(result.name, result.name.startsWith("Suscripción Netflix "));
+        }
+        assertTrue(searchDao.search("xyz", 50).isEmpty());
+        assertFalse(searchDao.search("salud", 50).isEmpty());
+    }
+
+    /** Gastos con nombres y categorías repetidos, como los de un usuario real. */
+    static void seed(SQLiteDatabase db, int rows) {
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_OTHER_EXPENSES + " ("
+                + DatabaseHelper.COLUMN_OE_NAME + ", " + DatabaseHelper.COLUMN_OE_AMOUNT + ", "
+                + DatabaseHelper.COLUMN_OE_DATE + ", " + DatabaseHelper.COLUMN_OE_CATEGORY + ") VALUES (?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < rows; i++) {
+                insert.bindString(1, NAMES[i % NAMES.length] + " " + i);
+                insert.bindLong(2, 100 + i % 10000);
+                insert.bindLong(3, (i % 730) * DAY);
+                insert.bindString(4, CATEGORIES[i % CATEGORIES.length]);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+        assertEquals(rows, DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_SEARCH_INDEX));
+    }
+}
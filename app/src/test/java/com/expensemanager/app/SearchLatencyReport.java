@@ -0,0 +1,56 @@
+package com.expensemanager.app;
+
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Tiempo de {@link SearchDao#search} sobre un índice de cien mil filas,
+ * escribiendo como en SearchActivity, con el ranking en Java incluido. El
+ * objetivo en el equipo es menos de 50 ms por consulta; aquí no se exige (ver
+ * {@link LatencyReport}).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SearchLatencyReport {
+
+    private static final int ROWS = 100000;
+    private static final int RUNS = 21;
+
+    /** Una letra, prefijos cortos y largos, sin tildes, varias palabras, sin resultados. */
+    private static final String[] QUERIES = {"s", "su", "sus", "suscripcion", "Suscripción net", "super plaza",
+            "luz", "comida", "farmacia salud", "xyz"};
+
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        helper = new DatabaseHelper(RuntimeEnvironment.getApplication(), null);
+        SearchDaoTest.seed(helper.getWritableDatabase(), ROWS);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void search() throws IOException {
+        SearchDao searchDao = helper.getSearchDao();
+        LatencyReport report = new LatencyReport("search", "SearchDao.search, " + ROWS + " filas");
+        for (String query : QUERIES) {
+            long[] nanos = new long[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                // SystemClock es de mentira en Robolectric
+                long start = System.nanoTime();
+                searchDao.search(query, 50);
+                nanos[run] = System.nanoTime() - start;
+            }
+            report.add("\"" + query + "\"", nanos);
+        }
+        report.write();
+    }
+}
@@ -0,0 +1,117 @@
+package com.expensemanager.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import com.expensemanager.core.Money;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Trabajo de disco del arranque de MainActivity con 5.000 gastos recurrentes:
+ * {@link HomeSnapshot#load} en el hilo principal antes del primer frame, y
+ * {@link HomeSnapshot#query} después, en el pool de lectura. La consulta se mide
+ * con una conexión nueva por corrida (abrir la base, como en un proceso
+ * recién creado) y con una ya abierta. Los tiempos del equipo los registra
+ * MainActivity en Diagnósticos (ver {@link StartupTrace}); ver también
+ * {@link LatencyReport}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StartupReport {
+
+    private static final String DATABASE_NAME = "startup_report.db";
+    private static final int EXPENSES = 5000;
+    private static final int RUNS = 21;
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.deleteDatabase(DATABASE_NAME);
+        DatabaseHelper helper = new DatabaseHelper(context, DATABASE_NAME);
+        try {
+            seed(helper);
+        } finally {
+            helper.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void homeSnapshot() throws IOException {
+        long now = System.currentTimeMillis();
+        LatencyReport report = new LatencyReport("startup",
+                "Arranque de MainActivity, " + EXPENSES + " gastos recurrentes");
+
+        long[] cold = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            DatabaseHelper helper = new DatabaseHelper(context, DATABASE_NAME);
+            try {
+                // SystemClock es de mentira en Robolectric
+                long start = System.nanoTime();
+                HomeSnapshot snapshot = HomeSnapshot.query(helper, now);
+                cold[run] = System.nanoTime() - start;
+                assertEquals(PaymentPager.PAGE_SIZE, snapshot.items.size());
+            } finally {
+                helper.close();
+            }
+        }
+
+        long[] warm = new long[RUNS];
+        DatabaseHelper helper = new DatabaseHelper(context, DATABASE_NAME);
+        try {
+            HomeSnapshot.query(helper, now).save(context);
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                HomeSnapshot.query(helper, now);
+                warm[run] = System.nanoTime() - start;
+            }
+        } finally {
+            helper.close();
+        }
+
+        long[] load = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            HomeSnapshot snapshot = HomeSnapshot.load(context);
+            load[run] = System.nanoTime() - start;
+            assertNotNull(snapshot);
+        }
+
+        report.add("HomeSnapshot.load", load);
+        report.add("query, conexión nueva", cold);
+        report.add("query, conexión abierta", warm);
+        report.write();
+    }
+
+    /** Vencidos y por vencer, como en la primera página de un usuario con muchos pagos. */
+    private static void seed(DatabaseHelper helper) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        RecurringExpenseDao expenses = helper.getRecurringExpenseDao();
+        long now = System.currentTimeMillis();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < EXPENSES; i++) {
+                long id = expenses.insert("Suscripción " + i, Money.ofCents(2990 + (i % 12) * 1500), "SERVICIO",
+                        now + (i - EXPENSES / 10) * HOUR, 3, 2, true);
+                assertEquals(i + 1, id);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.expensemanager.benchmark;
+
+import com.expensemanager.core.Formatters;
+import com.expensemanager.core.Money;
+import com.expensemanager.core.PaymentItem;
+import java.text.DateFormat;
+import java.text.NumberFormat;
+import java.util.Date;
+import java.util.Locale;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Textos de la lista de próximos pagos y de montos: {@link Formatters} contra
+ * la forma anterior (formateadores nuevos por fila y concatenación), con la
+ * lista típica y una de 10.000 filas.
+ *
+ * Con el profiler gc, gc.alloc.rate.norm da los bytes asignados por operación
+ * (una operación = todas las filas).
+ */
+@State(Scope.Benchmark)
+public class FormattersBenchmark {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Param({"120", "10000"})
+    public int rows;
+
+    private long now;
+    private PaymentItem[] items;
+    // Montos todos distintos: fallos de la caché de Formatters.money
+    private long[] distinctCents;
+
+    @Setup
+    public void setUp() {
+        now = 20000 * 24 * HOUR;
+        items = new PaymentItem[rows];
+        distinctCents = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            // Cuotas y suscripciones con montos repetidos, vencidas y por vencer
+            boolean loan = i % 3 != 0;
+            Money amount = Money.ofCents(2990 + (i % 12) * 1500);
+            long dueDate = now + (i % 240 - 10) * 7 * HOUR;
+            String name = loan ? "Préstamo auto - Cuota " + (i + 1) : "Streaming " + i;
+            String label = loan ? "Préstamo auto (Cuota " + (i + 1) + ")" : name;
+            items[i] = new PaymentItem(i, loan ? "loan" : "expense", name, label, amount, dueDate, 3, 2);
+            distinctCents[i] = 100000 + i * 101L;
+        }
+    }
+
+    @Benchmark
+    public void paymentRow(Blackhole blackhole) {
+        for (PaymentItem item : items) {
+            blackhole.consume(Formatters.paymentRow(item, now));
+        }
+    }
+
+    @Benchmark
+    public void paymentRowLegacy(Blackhole blackhole) {
+        for (PaymentItem item : items) {
+            blackhole.consume(legacyRow(item, now));
+        }
+    }
+
+    /** Pocos montos distintos, como en una lista real: aciertos de caché. */
+    @Benchmark
+    public void moneyRepeated(Blackhole blackhole) {
+        for (PaymentItem item : items) {
+            blackhole.consume(Formatters.money(item.amount));
+        }
+    }
+
+    @Benchmark
+    public void moneyDistinct(Blackhole blackhole) {
+        for (long cents : distinctCents) {
+            blackhole.consume(Formatters.money(cents));
+        }
+    }
+
+    @Benchmark
+    public void timeUntilDue(Blackhole blackhole) {
+        for (PaymentItem item : items) {
+            blackhole.consume(Formatters.timeUntilDue(item.dueDate, now));
+        }
+    }
+
+    // Copia de MainActivity antes de Formatters
+    private static String legacyRow(PaymentItem item, long currentTime) {
+        NumberFormat formatter = NumberFormat.getCurrencyInstance(new Locale("es", "PE"));
+        String emoji = item.type.equals("loan") ? "💳 " : "📺 ";
+        return emoji + item.label + " - " + formatter.format(item.amount.toDouble()) + "\n   "
+                + legacyTimeUntilDue(item.dueDate, currentTime);
+    }
+
+    private static String legacyTimeUntilDue(long dueDate, long currentTime) {
+        long diffMillis = dueDate - currentTime;
+
+        if (diffMillis < 0) {
+            long overdueDays = Math.abs(diffMillis) / (24 * 60 * 60 * 1000);
+            if (overdueDays == 0) {
+                return "🔴 VENCIDO HOY - FALTA PAGAR";
+            } else if (overdueDays == 1) {
+                return "🔴 VENCIDO hace 1 día - FALTA PAGAR";
+            } else {
+                return "🔴 VENCIDO hace " + overdueDays + " días - FALTA PAGAR";
+            }
+        }
+
+        long days = diffMillis / (24 * 60 * 60 * 1000);
+        long hours = (diffMillis % (24 * 60 * 60 * 1000)) / (60 * 60 * 1000);
+        long minutes = (diffMillis % (60 * 60 * 1000)) / (60 * 1000);
+
+        if (days > 0) {
+            DateFormat dateFormat = DateFormat.getDateInstance();
+            return "Vence en " + days + " día" + (days > 1 ? "s" : "") + " (" +
+                    dateFormat.format(new Date(dueDate)) + ")";
+        } else if (hours > 0) {
+            return "⚠️ Vence en " + hours + " hora" + (hours > 1 ? "s" : "");
+        } else {
+            return "🔴 Vence en " + minutes + " minuto" + (minutes > 1 ? "s" : "");
+        }
+    }
+}
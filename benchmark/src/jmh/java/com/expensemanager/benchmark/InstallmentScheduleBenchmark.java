@@ -0,0 +1,80 @@
+package com.expensemanager.benchmark;
+
+import com.expensemanager.core.Amortization;
+import com.expensemanager.core.InstallmentSchedule;
+import com.expensemanager.core.Money;
+import java.util.Random;
+import java.util.TimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Generación de cuotas con cada método de amortización: un préstamo típico y el
+ * extremo de 1.000 préstamos de 360 cuotas, por ejemplo al recalcular todos.
+ * {@code collect} guarda el cronograma como al crear un préstamo
+ * (AddLoanActivity.saveLoan); {@code stream} lo recorre sin guardarlo, como el
+ * resumen de la pantalla o un recálculo que escribe fila por fila.
+ */
+@State(Scope.Benchmark)
+public class InstallmentScheduleBenchmark {
+
+    private static final TimeZone LIMA = TimeZone.getTimeZone("America/Lima");
+    private static final long MINUTE = 60 * 1000L;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    @Param({"1", "1000"})
+    public int loans;
+
+    @Param({"12", "360"})
+    public int installments;
+
+    @Param({Amortization.FLAT, Amortization.FRENCH, Amortization.GERMAN})
+    public String method;
+
+    private Money[] capitals;
+    private double[] rates;
+    private long[] firstDueDates;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        capitals = new Money[loans];
+        rates = new double[loans];
+        firstDueDates = new long[loans];
+        long base = 20000 * DAY;
+        for (int i = 0; i < loans; i++) {
+            capitals[i] = Money.ofCents(100000 + random.nextInt(5000000));
+            // Recargo total en cuotas iguales, TEA en los demás
+            rates[i] = 10 + random.nextInt(9000) / 100.0;
+            firstDueDates[i] = base + random.nextInt(365) * DAY + random.nextInt(24 * 60) * MINUTE;
+        }
+    }
+
+    /** Mensual (30 días), como la frecuencia por defecto. */
+    @Benchmark
+    public void collect(Blackhole blackhole) {
+        for (int i = 0; i < loans; i++) {
+            blackhole.consume(InstallmentSchedule.of(method, capitals[i], rates[i], installments,
+                    firstDueDates[i], 30, LIMA));
+        }
+    }
+
+    @Benchmark
+    public void stream(final Blackhole blackhole) {
+        Amortization.Sink sink = new Amortization.Sink() {
+            @Override
+            public void row(int number, long dueDate, long payment, long principal, long interest, long balance) {
+                blackhole.consume(dueDate);
+                blackhole.consume(payment + principal + interest + balance);
+            }
+        };
+        for (int i = 0; i < loans; i++) {
+            Amortization.generate(method, capitals[i].getCents(), rates[i], installments, firstDueDates[i], 30,
+                    LIMA, sink);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.expensemanager.benchmark;
+
+import com.expensemanager.core.Amortization;
+import com.expensemanager.core.InstallmentSchedule;
+import com.expensemanager.core.Money;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.TimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Guardar un préstamo con sus cuotas en una transacción (como
+ * LoanDao.insertWithInstallments) contra una transacción implícita por cuota,
+ * como se hacía antes. SQLite de escritorio (sqlite-jdbc) sobre un archivo con
+ * WAL, igual que la app: las tablas loans y loan_installments con sus índices,
+ * sin los triggers del resumen ni de los totales mensuales.
+ *
+ * {@code synchronous}: NORMAL no sincroniza el disco en cada commit con WAL;
+ * FULL sí, como en los equipos que lo configuran así.
+ */
+@State(Scope.Benchmark)
+public class LoanInsertBenchmark {
+
+    private static final TimeZone LIMA = TimeZone.getTimeZone("America/Lima");
+
+    @Param({"60", "360", "1000"})
+    public int installments;
+
+    @Param({"NORMAL", "FULL"})
+    public String synchronous;
+
+    private File file;
+    private Connection connection;
+    private PreparedStatement insertLoan;
+    private PreparedStatement insertInstallment;
+    private InstallmentSchedule schedule;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        file = File.createTempFile("loan_insert", ".db");
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute("PRAGMA journal_mode = WAL");
+            statement.execute("PRAGMA synchronous = " + synchronous);
+            statement.execute("PRAGMA foreign_keys = ON");
+            // Como DatabaseHelper.onCreate y createIndexes en v13
+            statement.execute("CREATE TABLE loans(id INTEGER PRIMARY KEY AUTOINCREMENT,name TEXT NOT NULL,"
+                    + "capital INTEGER NOT NULL,interest_rate REAL NOT NULL,total_amount INTEGER NOT NULL,"
+                    + "installments INTEGER NOT NULL,installment_amount INTEGER NOT NULL,"
+                    + "start_date INTEGER NOT NULL,payment_frequency TEXT DEFAULT 'MENSUAL',"
+                    + "payment_interval_days INTEGER DEFAULT 30,"
+                    + "amortization_method TEXT NOT NULL DEFAULT 'PLANO')");
+            statement.execute("CREATE TABLE loan_installments(id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + "loan_id INTEGER NOT NULL,installment_number INTEGER NOT NULL,amount INTEGER NOT NULL,"
+                    + "due_date INTEGER NOT NULL,is_paid INTEGER DEFAULT 0,paid_date INTEGER DEFAULT 0,"
+                    + "reminder_days INTEGER DEFAULT 3,notification_interval_hours INTEGER DEFAULT 2,"
+                    + "principal INTEGER NOT NULL DEFAULT 0,interest INTEGER NOT NULL DEFAULT 0,"
+                    + "balance INTEGER NOT NULL DEFAULT 0,FOREIGN KEY(loan_id) REFERENCES loans(id))");
+            statement.execute("CREATE INDEX idx_loan_installments_pending_due"
+                    + " ON loan_installments(is_paid, due_date)");
+            statement.execute("CREATE INDEX idx_loan_installments_loan_id ON loan_installments(loan_id)");
+        } finally {
+            statement.close();
+        }
+        insertLoan = connection.prepareStatement("INSERT INTO loans (name, capital, interest_rate,"
+                + " total_amount, installments, installment_amount, start_date, payment_frequency,"
+                + " payment_interval_days, amortization_method) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        insertInstallment = connection.prepareStatement("INSERT INTO loan_installments (loan_id,"
+                + " installment_number, amount, due_date, reminder_days, notification_interval_hours,"
+                + " principal, interest, balance) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        schedule = InstallmentSchedule.of(Amortization.FRENCH, Money.ofCents(1000000), 12, installments,
+                0, 30, LIMA);
+    }
+
+    /** Sin vaciar las tablas crecerían con cada iteración y sus índices con ellas. */
+    @TearDown(Level.Iteration)
+    public void clear() throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute("DELETE FROM loan_installments");
+            statement.execute("DELETE FROM loans");
+        } finally {
+            statement.close();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        insertLoan.close();
+        insertInstallment.close();
+        connection.close();
+        new File(file.getPath() + "-wal").delete();
+        new File(file.getPath() + "-shm").delete();
+        file.delete();
+    }
+
+    @Benchmark
+    public long oneTransaction() throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            long loanId = insertLoan();
+            for (int i = 0; i < installments; i++) {
+                insertInstallment(loanId, i);
+            }
+            connection.commit();
+            return loanId;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    @Benchmark
+    public long commitPerInstallment() throws SQLException {
+        long loanId = insertLoan();
+        for (int i = 0; i < installments; i++) {
+            insertInstallment(loanId, i);
+        }
+        return loanId;
+    }
+
+    private long insertLoan() throws SQLException {
+        insertLoan.setString(1, "Préstamo");
+        insertLoan.setLong(2, 1000000);
+        insertLoan.setDouble(3, 12);
+        insertLoan.setLong(4, 1000000);
+        insertLoan.setLong(5, installments);
+        insertLoan.setLong(6, 1000000 / installments);
+        insertLoan.setLong(7, 0);
+        insertLoan.setString(8, "MENSUAL");
+        insertLoan.setLong(9, 30);
+        insertLoan.setString(10, Amortization.FRENCH);
+        insertLoan.executeUpdate();
+        ResultSet keys = insertLoan.getGeneratedKeys();
+        try {
+            keys.next();
+            return keys.getLong(1);
+        } finally {
+            keys.close();
+        }
+    }
+
+    private void insertInstallment(long loanId, int i) throws SQLException {
+        insertInstallment.setLong(1, loanId);
+        insertInstallment.setInt(2, i + 1);
+        insertInstallment.setLong(3, schedule.amounts[i].getCents());
+        insertInstallment.setLong(4, schedule.dueDates[i]);
+        insertInstallment.setInt(5, 3);
+        insertInstallment.setInt(6, 2);
+        insertInstallment.setLong(7, schedule.principals[i].getCents());
+        insertInstallment.setLong(8, schedule.interests[i].getCents());
+        insertInstallment.setLong(9, schedule.balances[i].getCents());
+        insertInstallment.executeUpdate();
+    }
+}
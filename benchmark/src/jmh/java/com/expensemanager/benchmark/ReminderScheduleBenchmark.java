@@ -0,0 +1,58 @@
+package com.expensemanager.benchmark;
+
+import com.expensemanager.core.Money;
+import com.expensemanager.core.ReminderSchedule;
+import java.util.Random;
+import java.util.TimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Expansión de recordatorios al programar pagos (NotificationScheduler y la
+ * reprogramación al encender): un pago, y 2.500 pagos con 3 avisos más el del
+ * vencimiento, 10.000 recordatorios.
+ */
+@State(Scope.Benchmark)
+public class ReminderScheduleBenchmark {
+
+    private static final TimeZone LIMA = TimeZone.getTimeZone("America/Lima");
+    private static final long MINUTE = 60 * 1000L;
+    private static final long DAY = 24 * 60 * MINUTE;
+    private static final int REMINDER_DAYS = 3;
+    private static final int INTERVAL_HOURS = 2;
+
+    @Param({"1", "2500"})
+    public int items;
+
+    private long now;
+    private long[] dueDates;
+    private Money[] amounts;
+    private String[] titles;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        now = 20000 * DAY;
+        dueDates = new long[items];
+        amounts = new Money[items];
+        titles = new String[items];
+        for (int i = 0; i < items; i++) {
+            // Todos en el futuro: ningún aviso se omite
+            dueDates[i] = now + DAY + random.nextInt(365) * DAY + random.nextInt(24 * 60) * MINUTE;
+            amounts[i] = Money.ofCents(2990 + (i % 12) * 1500);
+            titles[i] = "Préstamo auto - Cuota " + (i % 360 + 1) + "/360";
+        }
+    }
+
+    @Benchmark
+    public void expand(Blackhole blackhole) {
+        for (int i = 0; i < items; i++) {
+            blackhole.consume(ReminderSchedule.expand("loan", i, titles[i], amounts[i], dueDates[i],
+                    REMINDER_DAYS, INTERVAL_HOURS, now, LIMA));
+        }
+    }
+}
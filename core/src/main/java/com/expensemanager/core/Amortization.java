@@ -0,0 +1,145 @@
+package com.expensemanager.core;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Cronograma de un préstamo: por cada cuota, su vencimiento, el pago y cuánto
+ * de él es capital y cuánto interés, y el saldo de capital que queda.
+ *
+ * Las cuotas se entregan una por una a un {@link Sink}, en céntimos y sin crear
+ * objetos por cuota: recalcular miles de cronogramas no llena el heap. Quien
+ * necesite guardarlas todas usa {@link InstallmentSchedule}.
+ *
+ * Métodos (se guardan con este nombre en loans.amortization_method):
+ * <ul>
+ * <li>{@link #FLAT}: cuotas iguales; la tasa es el recargo sobre el capital por
+ * todo el préstamo, como se registraban los préstamos antes.</li>
+ * <li>{@link #FRENCH}: cuota constante; el interés baja y el capital sube.</li>
+ * <li>{@link #GERMAN}: amortización de capital constante; la cuota baja.</li>
+ * </ul>
+ * En francés y alemán la tasa es efectiva anual (TEA) y se convierte a la del
+ * período con año de 360 días, como en los cronogramas de los bancos.
+ *
+ * Cada interés se redondea al céntimo; la última cuota amortiza el saldo que
+ * quede, así la suma del capital de las cuotas es exactamente el capital.
+ */
+public final class Amortization {
+
+    public static final String FLAT = "PLANO";
+    public static final String FRENCH = "FRANCES";
+    public static final String GERMAN = "ALEMAN";
+
+    /** Recibe las cuotas en orden. Montos en céntimos. */
+    public interface Sink {
+        /**
+         * @param number  1 a {@code count}
+         * @param payment {@code principal + interest}
+         * @param balance capital pendiente después de pagar esta cuota
+         */
+        void row(int number, long dueDate, long payment, long principal, long interest, long balance);
+    }
+
+    private static final double DAYS_PER_YEAR = 360.0;
+
+    private Amortization() {
+    }
+
+    /** Tasa del período de {@code intervalDays} días equivalente a una TEA en porcentaje. */
+    public static double periodRate(double annualPercent, int intervalDays) {
+        return Math.pow(1 + annualPercent / 100, intervalDays / DAYS_PER_YEAR) - 1;
+    }
+
+    /**
+     * Genera las {@code count} cuotas.
+     *
+     * @param capital      monto prestado, en céntimos
+     * @param ratePercent  recargo total en {@link #FLAT}; TEA en los demás
+     * @param firstDueDate vencimiento de la primera cuota; las demás cada
+     *                     {@code intervalDays} días de calendario, a la misma
+     *                     hora local (un cambio de horario no la corre)
+     * @param zone         zona de las fechas; la del sistema en la app
+     */
+    public static void generate(String method, long capital, double ratePercent, int count,
+                                long firstDueDate, int intervalDays, TimeZone zone, Sink sink) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Número de cuotas inválido: " + count);
+        }
+        if (capital < 0 || ratePercent < 0) {
+            throw new IllegalArgumentException("Capital o tasa negativos: " + capital + ", " + ratePercent);
+        }
+        // Un solo Calendar para todas las cuotas: crearlo cuesta más que avanzarlo
+        Calendar date = Calendar.getInstance(zone);
+        date.setTimeInMillis(firstDueDate);
+
+        switch (method) {
+            case FLAT:
+                flat(capital, Math.round(capital * ratePercent / 100), count, date, intervalDays, sink);
+                break;
+            case FRENCH:
+                french(capital, periodRate(ratePercent, intervalDays), count, date, intervalDays, sink);
+                break;
+            case GERMAN:
+                german(capital, periodRate(ratePercent, intervalDays), count, date, intervalDays, sink);
+                break;
+            default:
+                throw new IllegalArgumentException("Método de amortización desconocido: " + method);
+        }
+    }
+
+    /**
+     * Cuota = total / count, con el resto en la última (igual que
+     * {@link Money#installment} y {@link Money#lastInstallment}). El interés se
+     * reparte igual; si una cuota no alcanza para su parte de capital, el
+     * capital pendiente se termina de pagar antes y el resto es interés.
+     */
+    private static void flat(long capital, long interest, int count, Calendar date, int intervalDays,
+                             Sink sink) {
+        long total = capital + interest;
+        long regularPayment = total / count;
+        long regularInterest = interest / count;
+        long balance = capital;
+        for (int n = 1; n < count; n++) {
+            long rowInterest = Math.max(regularInterest, regularPayment - balance);
+            long principal = regularPayment - rowInterest;
+            balance -= principal;
+            sink.row(n, date.getTimeInMillis(), regularPayment, principal, rowInterest, balance);
+            date.add(Calendar.DAY_OF_YEAR, intervalDays);
+        }
+        long lastPayment = total - regularPayment * (count - 1);
+        sink.row(count, date.getTimeInMillis(), lastPayment, balance, lastPayment - balance, 0);
+    }
+
+    /** Cuota = C·i / (1 − (1 + i)^−n), redondeada al céntimo. */
+    private static void french(long capital, double rate, int count, Calendar date, int intervalDays,
+                               Sink sink) {
+        long payment = rate == 0
+                ? capital / count
+                : Math.round(capital * rate / (1 - Math.pow(1 + rate, -count)));
+        long balance = capital;
+        for (int n = 1; n < count; n++) {
+            long interest = Math.round(balance * rate);
+            long principal = Math.max(0, Math.min(payment - interest, balance));
+            balance -= principal;
+            sink.row(n, date.getTimeInMillis(), principal + interest, principal, interest, balance);
+            date.add(Calendar.DAY_OF_YEAR, intervalDays);
+        }
+        long interest = Math.round(balance * rate);
+        sink.row(count, date.getTimeInMillis(), balance + interest, balance, interest, 0);
+    }
+
+    /** Capital = C / n en cada cuota, con el resto en la última; interés sobre el saldo. */
+    private static void german(long capital, double rate, int count, Calendar date, int intervalDays,
+                               Sink sink) {
+        long principal = capital / count;
+        long balance = capital;
+        for (int n = 1; n < count; n++) {
+            long interest = Math.round(balance * rate);
+            balance -= principal;
+            sink.row(n, date.getTimeInMillis(), principal + interest, principal, interest, balance);
+            date.add(Calendar.DAY_OF_YEAR, intervalDays);
+        }
+        long interest = Math.round(balance * rate);
+        sink.row(count, date.getTimeInMillis(), balance + interest, balance, interest, 0);
+    }
+}
@@ -0,0 +1,152 @@
+package com.expensemanager.core;
+
+import java.text.DateFormat;
+import java.text.FieldPosition;
+import java.text.NumberFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Textos de montos, fechas y filas de pagos, con los formateadores creados una
+ * vez por hilo (NumberFormat y DateFormat no son thread-safe y crearlos cuesta
+ * más que usarlos).
+ *
+ * Los montos ya formateados se guardan en una caché pequeña de acceso directo
+ * por céntimos: en una lista los mismos importes se repiten mucho y un acierto
+ * no asigna memoria.
+ */
+public final class Formatters {
+
+    private static final Locale LOCALE_PE = new Locale("es", "PE");
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    // Potencia de 2: la posición es (hash de los céntimos) & (tamaño - 1)
+    private static final int AMOUNT_CACHE_SIZE = 256;
+    private static final AmountEntry[] AMOUNT_CACHE = new AmountEntry[AMOUNT_CACHE_SIZE];
+
+    private static final ThreadLocal<State> STATE = new ThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            return new State();
+        }
+    };
+
+    private Formatters() {
+    }
+
+    /** "S/ 1,234.50" */
+    public static String money(Money amount) {
+        return money(amount.getCents());
+    }
+
+    public static String money(long cents) {
+        int slot = (int) (cents ^ (cents >>> 32)) & (AMOUNT_CACHE_SIZE - 1);
+        // Entradas inmutables: leer una a medio publicar no es posible (campos final)
+        AmountEntry entry = AMOUNT_CACHE[slot];
+        if (entry != null && entry.cents == cents) {
+            return entry.text;
+        }
+        String text = STATE.get().currency.format(cents / 100.0);
+        AMOUNT_CACHE[slot] = new AmountEntry(cents, text);
+        return text;
+    }
+
+    /** Fecha en el formato corto del sistema. */
+    public static String date(long millis) {
+        State state = STATE.get();
+        StringBuilder out = state.builder();
+        appendDate(state, out, millis);
+        return out.toString();
+    }
+
+    /** "Vence en 3 días (12 oct. 2024)", "⚠️ Vence en 2 horas", "🔴 VENCIDO hace 1 día - FALTA PAGAR"... */
+    public static String timeUntilDue(long dueDate, long now) {
+        State state = STATE.get();
+        StringBuilder out = state.builder();
+        appendTimeUntilDue(state, out, dueDate, now);
+        return out.toString();
+    }
+
+    /**
+     * Texto de una fila de la lista de próximos pagos: emoji, etiqueta, monto y
+     * tiempo hasta el vencimiento. Solo asigna el String resultante (y el monto,
+     * si no estaba en caché).
+     */
+    public static String paymentRow(PaymentItem item, long now) {
+        State state = STATE.get();
+        StringBuilder out = state.builder();
+        out.append(item.type.equals("loan") ? "💳 " : "📺 ")
+                .append(item.label)
+                .append(" - ")
+                .append(money(item.amount.getCents()))
+                .append("\n   ");
+        appendTimeUntilDue(state, out, item.dueDate, now);
+        return out.toString();
+    }
+
+    private static void appendTimeUntilDue(State state, StringBuilder out, long dueDate, long now) {
+        long diffMillis = dueDate - now;
+
+        if (diffMillis < 0) {
+            // Ya venció
+            long overdueDays = -diffMillis / DAY_MILLIS;
+            if (overdueDays == 0) {
+                out.append("🔴 VENCIDO HOY - FALTA PAGAR");
+            } else {
+                out.append("🔴 VENCIDO hace ").append(overdueDays).append(overdueDays == 1 ? " día" : " días")
+                        .append(" - FALTA PAGAR");
+            }
+            return;
+        }
+
+        long days = diffMillis / DAY_MILLIS;
+        long hours = (diffMillis % DAY_MILLIS) / HOUR_MILLIS;
+        long minutes = (diffMillis % HOUR_MILLIS) / MINUTE_MILLIS;
+
+        if (days > 0) {
+            out.append("Vence en ").append(days).append(days > 1 ? " días" : " día").append(" (");
+            appendDate(state, out, dueDate);
+            out.append(')');
+        } else if (hours > 0) {
+            out.append("⚠️ Vence en ").append(hours).append(hours > 1 ? " horas" : " hora");
+        } else {
+            out.append("🔴 Vence en ").append(minutes).append(minutes > 1 ? " minutos" : " minuto");
+        }
+    }
+
+    private static void appendDate(State state, StringBuilder out, long millis) {
+        state.scratchDate.setTime(millis);
+        state.dateBuffer.setLength(0);
+        state.date.format(state.scratchDate, state.dateBuffer, state.fieldPosition);
+        out.append(state.dateBuffer);
+    }
+
+    /** Formateadores y buffers de un hilo. */
+    private static final class State {
+        final NumberFormat currency = NumberFormat.getCurrencyInstance(LOCALE_PE);
+        final DateFormat date = DateFormat.getDateInstance();
+        final Date scratchDate = new Date(0);
+        final StringBuffer dateBuffer = new StringBuffer(32);
+        final FieldPosition fieldPosition = new FieldPosition(0);
+        private final StringBuilder builder = new StringBuilder(128);
+
+        /** El builder del hilo, vacío. No anidar: cada método público lo usa entero. */
+        StringBuilder builder() {
+            builder.setLength(0);
+            return builder;
+        }
+    }
+
+    private static final class AmountEntry {
+        final long cents;
+        final String text;
+
+        AmountEntry(long cents, String text) {
+            this.cents = cents;
+            this.text = text;
+        }
+    }
+}
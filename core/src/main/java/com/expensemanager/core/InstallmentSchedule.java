@@ -0,0 +1,68 @@
+package com.expensemanager.core;
+
+import java.util.TimeZone;
+
+/**
+ * Cronograma completo de un préstamo en arreglos, uno por columna de
+ * loan_installments. Lo genera {@link Amortization}; usar esta clase solo cuando
+ * se necesiten todas las cuotas a la vez, como al guardar un préstamo nuevo.
+ */
+public final class InstallmentSchedule {
+
+    public final long[] dueDates;
+    public final Money[] amounts;
+    public final Money[] principals;
+    public final Money[] interests;
+    /** Capital pendiente después de pagar cada cuota. */
+    public final Money[] balances;
+
+    private InstallmentSchedule(int count) {
+        dueDates = new long[count];
+        amounts = new Money[count];
+        principals = new Money[count];
+        interests = new Money[count];
+        balances = new Money[count];
+    }
+
+    /**
+     * @param method       {@link Amortization#FLAT}, {@link Amortization#FRENCH} o
+     *                     {@link Amortization#GERMAN}
+     * @param ratePercent  ver {@link Amortization#generate}
+     * @param firstDueDate vencimiento de la primera cuota
+     * @param zone         zona de las fechas; la del sistema en la app
+     */
+    public static InstallmentSchedule of(String method, Money capital, double ratePercent, int count,
+                                         long firstDueDate, int intervalDays, TimeZone zone) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Número de cuotas inválido: " + count);
+        }
+        final InstallmentSchedule schedule = new InstallmentSchedule(count);
+        Amortization.generate(method, capital.getCents(), ratePercent, count, firstDueDate, intervalDays, zone,
+                new Amortization.Sink() {
+                    @Override
+                    public void row(int number, long dueDate, long payment, long principal, long interest,
+                                    long balance) {
+                        int i = number - 1;
+                        schedule.dueDates[i] = dueDate;
+                        schedule.amounts[i] = Money.ofCents(payment);
+                        schedule.principals[i] = Money.ofCents(principal);
+                        schedule.interests[i] = Money.ofCents(interest);
+                        schedule.balances[i] = Money.ofCents(balance);
+                    }
+                });
+        return schedule;
+    }
+
+    public int size() {
+        return dueDates.length;
+    }
+
+    /** Suma de todas las cuotas. */
+    public Money total() {
+        Money total = Money.ZERO;
+        for (Money amount : amounts) {
+            total = total.plus(amount);
+        }
+        return total;
+    }
+}
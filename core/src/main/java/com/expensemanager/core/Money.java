@@ -0,0 +1,102 @@
+package com.expensemanager.core;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Monto exacto en céntimos. Los importes se guardan en columnas INTEGER y se
+ * operan con este tipo, así las sumas y divisiones no acumulan redondeos.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Convierte el texto ingresado por el usuario ("150", "99.9", "12.345").
+     * Más de dos decimales se redondean al céntimo más cercano.
+     */
+    public static Money parse(String text) {
+        try {
+            BigDecimal value = new BigDecimal(text.trim()).setScale(2, RoundingMode.HALF_UP);
+            return ofCents(value.unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Monto fuera de rango: " + text);
+        }
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money times(long factor) {
+        return ofCents(Math.multiplyExact(cents, factor));
+    }
+
+    /**
+     * Cuota regular al dividir este monto en {@code count} cuotas.
+     */
+    public Money installment(int count) {
+        return ofCents(cents / count);
+    }
+
+    /**
+     * Última cuota: la regular más el resto de la división, de modo que la
+     * suma de todas las cuotas es exactamente este monto.
+     */
+    public Money lastInstallment(int count) {
+        return ofCents(cents - (cents / count) * (count - 1));
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    /**
+     * Valor aproximado en soles; solo para mostrar o calcular porcentajes.
+     */
+    public double toDouble() {
+        return cents / 100.0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (cents ^ (cents >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return BigDecimal.valueOf(cents, 2).toPlainString();
+    }
+}
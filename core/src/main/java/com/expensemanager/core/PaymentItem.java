@@ -0,0 +1,44 @@
+package com.expensemanager.core;
+
+/**
+ * Pago pendiente: un gasto recurrente ("expense") o una cuota de préstamo
+ * ("loan"). Es la fila de PendingPaymentDao (en la app), que usan la pantalla
+ * principal y la reprogramación de recordatorios.
+ */
+public class PaymentItem {
+
+    public final long id;
+    public final String type;
+    /** Nombre para diálogos, notificaciones y confirmaciones */
+    public final String name;
+    /** Texto de la fila en la lista */
+    public final String label;
+    public final Money amount;
+    public final long dueDate;
+    public final int reminderDays;
+    public final int notificationIntervalHours;
+
+    public PaymentItem(long id, String type, String name, String label, Money amount, long dueDate,
+                       int reminderDays, int notificationIntervalHours) {
+        this.id = id;
+        this.type = type;
+        this.name = name;
+        this.label = label;
+        this.amount = amount;
+        this.dueDate = dueDate;
+        this.reminderDays = reminderDays;
+        this.notificationIntervalHours = notificationIntervalHours;
+    }
+
+    /** Mismos valores en todos los campos; ver HomeSnapshot.sameContentAs en la app. */
+    public boolean sameContentAs(PaymentItem other) {
+        return id == other.id
+                && type.equals(other.type)
+                && name.equals(other.name)
+                && label.equals(other.label)
+                && amount.equals(other.amount)
+                && dueDate == other.dueDate
+                && reminderDays == other.reminderDays
+                && notificationIntervalHours == other.notificationIntervalHours;
+    }
+}
@@ -0,0 +1,28 @@
+package com.expensemanager.core;
+
+/**
+ * Fila de reminder_queue: un aviso a mostrar en {@link #triggerAt}.
+ */
+public class Reminder {
+
+    /** Id de la fila; también id de la notificación que muestra (0 si aún no se guardó) */
+    public final long id;
+    /** "expense" o "loan" */
+    public final String itemType;
+    public final long itemId;
+    public final String title;
+    public final Money amount;
+    public final int daysRemaining;
+    public final long triggerAt;
+
+    public Reminder(long id, String itemType, long itemId, String title, Money amount,
+                    int daysRemaining, long triggerAt) {
+        this.id = id;
+        this.itemType = itemType;
+        this.itemId = itemId;
+        this.title = title;
+        this.amount = amount;
+        this.daysRemaining = daysRemaining;
+        this.triggerAt = triggerAt;
+    }
+}
@@ -0,0 +1,58 @@
+package com.expensemanager.core;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Horas de los recordatorios de un pago: {@code reminderDays} avisos antes del
+ * vencimiento, separados por {@code intervalHours}, y uno al vencer. Los que ya
+ * pasaron se omiten.
+ */
+public final class ReminderSchedule {
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+
+    private ReminderSchedule() {
+    }
+
+    /**
+     * @return los recordatorios por guardar en la cola, sin id (0)
+     */
+    public static List<Reminder> expand(String type, long itemId, String title, Money amount, long dueDate,
+                                        int reminderDays, int intervalHours, long now, TimeZone zone) {
+        List<Reminder> reminders = new ArrayList<>(Math.max(0, reminderDays) + 1);
+        Calendar calendar = Calendar.getInstance(zone);
+
+        calendar.setTimeInMillis(dueDate);
+        // CAMBIO PARA PRUEBAS: usar MINUTOS en vez de DÍAS
+        calendar.add(Calendar.MINUTE, -reminderDays); // Ahora son MINUTOS
+        calendar.set(Calendar.SECOND, 0);
+        long reminderStart = calendar.getTimeInMillis();
+
+        // Para pruebas: cada "hora" es en realidad 1 minuto
+        int notificationsPerPeriod = reminderDays; // Total de notificaciones en el período
+
+        for (int notification = 0; notification < notificationsPerPeriod; notification++) {
+            // CAMBIO: intervalHours ahora representa MINUTOS. Sumar minutos es
+            // aritmética de milisegundos también en Calendar
+            long triggerTime = reminderStart + (long) notification * intervalHours * MINUTE_MILLIS;
+
+            if (triggerTime > now) {
+                reminders.add(new Reminder(0, type, itemId, title, amount, notificationsPerPeriod - notification,
+                        triggerTime));
+            }
+        }
+
+        calendar.setTimeInMillis(dueDate);
+        calendar.set(Calendar.SECOND, 0);
+        long sameDay = calendar.getTimeInMillis();
+
+        if (sameDay > now) {
+            reminders.add(new Reminder(0, type, itemId, "¡HOY VENCE! " + title, amount, notificationsPerPeriod,
+                    sameDay));
+        }
+        return reminders;
+    }
+}
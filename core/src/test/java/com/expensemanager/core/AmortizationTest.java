@@ -0,0 +1,228 @@
+package com.expensemanager.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import org.junit.Test;
+
+public class AmortizationTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    /** Una fila por cuota: número, vencimiento, pago, capital, interés, saldo. */
+    private static List<long[]> generate(String method, long capital, double ratePercent, int count) {
+        return generate(method, capital, ratePercent, count, 0, 30, UTC);
+    }
+
+    private static List<long[]> generate(String method, long capital, double ratePercent, int count,
+                                         long firstDueDate, int intervalDays, TimeZone zone) {
+        final List<long[]> rows = new ArrayList<>();
+        Amortization.generate(method, capital, ratePercent, count, firstDueDate, intervalDays, zone,
+                new Amortization.Sink() {
+                    @Override
+                    public void row(int number, long dueDate, long payment, long principal, long interest,
+                                    long balance) {
+                        rows.add(new long[] {number, dueDate, payment, principal, interest, balance});
+                    }
+                });
+        return rows;
+    }
+
+    /** Lo que vale para cualquier cronograma: el capital de las cuotas suma el capital. */
+    private static void assertConsistent(List<long[]> rows, long capital, int count) {
+        assertEquals(count, rows.size());
+        long balance = capital;
+        long principals = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            long[] row = rows.get(i);
+            assertEquals(i + 1, row[0]);
+            assertEquals("pago = capital + interés", row[2], row[3] + row[4]);
+            assertTrue("capital negativo en la cuota " + row[0], row[3] >= 0);
+            assertTrue("interés negativo en la cuota " + row[0], row[4] >= 0);
+            balance -= row[3];
+            assertEquals("saldo de la cuota " + row[0], balance, row[5]);
+            principals += row[3];
+        }
+        assertEquals(capital, principals);
+        assertEquals(0, rows.get(rows.size() - 1)[5]);
+    }
+
+    private static long sumPayments(List<long[]> rows) {
+        long total = 0;
+        for (long[] row : rows) {
+            total += row[2];
+        }
+        return total;
+    }
+
+    @Test
+    public void periodRateConvertsEffectiveAnnualRate() {
+        assertEquals(0.12, Amortization.periodRate(12, 360), 1e-12);
+        assertEquals(Math.pow(1.12, 30 / 360.0) - 1, Amortization.periodRate(12, 30), 1e-12);
+        assertEquals(0, Amortization.periodRate(0, 30), 0);
+    }
+
+    @Test
+    public void frenchMatchesKnownSchedule() {
+        // 10.000,00 a TEA 12 % en 12 cuotas mensuales
+        List<long[]> rows = generate(Amortization.FRENCH, 1000000, 12, 12);
+
+        assertConsistent(rows, 1000000, 12);
+        assertEquals(88562, rows.get(0)[2]);
+        assertEquals(9489, rows.get(0)[4]);
+        for (int i = 0; i < 11; i++) {
+            assertEquals(88562, rows.get(i)[2]);
+        }
+        assertEquals(1062744, sumPayments(rows));
+        // El interés baja y el capital sube
+        assertTrue(rows.get(11)[4] < rows.get(0)[4]);
+        assertTrue(rows.get(11)[3] > rows.get(0)[3]);
+    }
+
+    @Test
+    public void germanMatchesKnownSchedule() {
+        List<long[]> rows = generate(Amortization.GERMAN, 1000000, 12, 12);
+
+        assertConsistent(rows, 1000000, 12);
+        assertEquals(92822, rows.get(0)[2]);
+        assertEquals(84128, rows.get(11)[2]);
+        assertEquals(1061677, sumPayments(rows));
+        for (int i = 0; i < 11; i++) {
+            assertEquals(83333, rows.get(i)[3]);
+        }
+        assertEquals(1000000 - 11 * 83333, rows.get(11)[3]);
+    }
+
+    @Test
+    public void flatMatchesEnteredTotal() {
+        // Como AddLoanActivity: el usuario da capital y total; la tasa sale de ellos
+        long[][] loans = {{1000000, 1200000, 12}, {100000, 120001, 7}, {333333, 400000, 36},
+                {99999, 99999, 5}, {150000, 187654, 24}, {1, 7, 3}};
+        for (long[] loan : loans) {
+            long capital = loan[0];
+            long total = loan[1];
+            int count = (int) loan[2];
+            double rate = (total - capital) * 100.0 / capital;
+
+            List<long[]> rows = generate(Amortization.FLAT, capital, rate, count);
+
+            assertConsistent(rows, capital, count);
+            assertEquals(total, sumPayments(rows));
+            // Las mismas cuotas que total / n con el resto en la última
+            Money entered = Money.ofCents(total);
+            for (int i = 0; i < count - 1; i++) {
+                assertEquals(entered.installment(count).getCents(), rows.get(i)[2]);
+            }
+            assertEquals(entered.lastInstallment(count).getCents(), rows.get(count - 1)[2]);
+        }
+    }
+
+    @Test
+    public void flatSplitsInterestEvenly() {
+        List<long[]> rows = generate(Amortization.FLAT, 100000, 20.001, 7);
+
+        assertConsistent(rows, 100000, 7);
+        long interest = 0;
+        for (int i = 0; i < 6; i++) {
+            assertEquals(20001 / 7, rows.get(i)[4]);
+            interest += rows.get(i)[4];
+        }
+        interest += rows.get(6)[4];
+        assertEquals(20001, interest);
+    }
+
+    @Test
+    public void zeroRateRepaysCapitalOnly() {
+        for (String method : new String[] {Amortization.FLAT, Amortization.FRENCH, Amortization.GERMAN}) {
+            List<long[]> rows = generate(method, 100001, 0, 12);
+
+            assertConsistent(rows, 100001, 12);
+            assertEquals(100001, sumPayments(rows));
+            for (long[] row : rows) {
+                assertEquals(method, 0, row[4]);
+            }
+            assertEquals(method, 100001 / 12, rows.get(0)[2]);
+            assertEquals(method, 100001 - 11 * (100001 / 12), rows.get(11)[2]);
+        }
+    }
+
+    @Test
+    public void singleInstallmentPaysEverything() {
+        List<long[]> flat = generate(Amortization.FLAT, 100000, 10, 1);
+        assertConsistent(flat, 100000, 1);
+        assertEquals(110000, flat.get(0)[2]);
+
+        // Un mes de TEA 12 %
+        long interest = Math.round(100000 * Amortization.periodRate(12, 30));
+        for (String method : new String[] {Amortization.FRENCH, Amortization.GERMAN}) {
+            List<long[]> rows = generate(method, 100000, 12, 1);
+            assertConsistent(rows, 100000, 1);
+            assertEquals(method, interest, rows.get(0)[4]);
+            assertEquals(method, 100000 + interest, rows.get(0)[2]);
+        }
+    }
+
+    @Test
+    public void capitalSmallerThanCountInCents() {
+        for (String method : new String[] {Amortization.FLAT, Amortization.FRENCH, Amortization.GERMAN}) {
+            List<long[]> rows = generate(method, 5, 12, 12);
+
+            assertConsistent(rows, 5, 12);
+        }
+    }
+
+    @Test
+    public void zeroCapital() {
+        for (String method : new String[] {Amortization.FLAT, Amortization.FRENCH, Amortization.GERMAN}) {
+            List<long[]> rows = generate(method, 0, 12, 6);
+
+            assertConsistent(rows, 0, 6);
+            assertEquals(method, 0, sumPayments(rows));
+        }
+    }
+
+    @Test
+    public void dueDatesKeepLocalTimeAcrossDaylightSaving() {
+        TimeZone zone = TimeZone.getTimeZone("America/New_York");
+        Calendar first = Calendar.getInstance(zone);
+        first.clear();
+        first.set(2024, Calendar.JANUARY, 15, 9, 0);
+
+        List<long[]> rows = generate(Amortization.FRENCH, 100000, 12, 12, first.getTimeInMillis(), 30, zone);
+
+        Calendar date = Calendar.getInstance(zone);
+        for (int i = 0; i < rows.size(); i++) {
+            date.setTimeInMillis(rows.get(i)[1]);
+            assertEquals(9, date.get(Calendar.HOUR_OF_DAY));
+            assertEquals(0, date.get(Calendar.MINUTE));
+        }
+        // 30 días de calendario, no 30 × 24 h
+        long daylightSaving = rows.get(2)[1] - rows.get(1)[1];
+        assertEquals(30 * DAY - 60 * 60 * 1000L, daylightSaving);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroInstallments() {
+        generate(Amortization.FRENCH, 100000, 12, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeCapital() {
+        generate(Amortization.GERMAN, -1, 12, 12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeRate() {
+        generate(Amortization.FLAT, 100000, -1, 12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownMethod() {
+        generate("AMERICANO", 100000, 12, 12);
+    }
+}